@@ -0,0 +1,116 @@
+package com.wiseasy.ecr.hub.sdk.benchmark;
+
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig;
+import com.wiseasy.ecr.hub.sdk.enums.ETopic;
+import com.wiseasy.ecr.hub.sdk.model.request.CloseRequest;
+import com.wiseasy.ecr.hub.sdk.model.request.ECRHubRequest;
+import com.wiseasy.ecr.hub.sdk.model.request.PurchaseRequest;
+import com.wiseasy.ecr.hub.sdk.model.request.QueryRequest;
+import com.wiseasy.ecr.hub.sdk.model.request.RefundRequest;
+import com.wiseasy.ecr.hub.sdk.model.response.CloseResponse;
+import com.wiseasy.ecr.hub.sdk.model.response.ECRHubResponse;
+import com.wiseasy.ecr.hub.sdk.model.response.PurchaseResponse;
+import com.wiseasy.ecr.hub.sdk.model.response.QueryResponse;
+import com.wiseasy.ecr.hub.sdk.model.response.RefundResponse;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto;
+
+/**
+ * Realistic requests and responses, sized like the messages of a card purchase
+ */
+public final class Fixtures {
+
+    static final String APP_ID = "wz6012822ca2f1as78";
+    static final ECRHubConfig CONFIG = new ECRHubConfig(APP_ID);
+
+    private Fixtures() {
+    }
+
+    public enum Type {
+        PURCHASE(ETopic.PAY_ORDER, PurchaseResponse.class),
+        REFUND(ETopic.PAY_ORDER, RefundResponse.class),
+        QUERY(ETopic.QUERY_ORDER, QueryResponse.class),
+        CLOSE(ETopic.CLOSE_ORDER, CloseResponse.class);
+
+        final ETopic topic;
+        final Class<? extends ECRHubResponse> responseClass;
+
+        Type(ETopic topic, Class<? extends ECRHubResponse> responseClass) {
+            this.topic = topic;
+            this.responseClass = responseClass;
+        }
+    }
+
+    static ECRHubRequest<?> request(Type type) {
+        switch (type) {
+            case PURCHASE: {
+                PurchaseRequest request = new PurchaseRequest();
+                request.setMerchant_order_no("O1695032342508");
+                request.setOrder_amount("10.00");
+                request.setPrice_currency("USD");
+                request.setPay_method_category("BANKCARD");
+                request.setDescription("Coffee and croissant");
+                request.getVoice_data().setContent("Payment received");
+                request.setMsg_id("1ly7c5zk0xv2o");
+                return request;
+            }
+            case REFUND: {
+                RefundRequest request = new RefundRequest();
+                request.setMerchant_order_no("R1695032342508");
+                request.setOrig_merchant_order_no("O1695032342508");
+                request.setOrder_amount("10.00");
+                request.setPrice_currency("USD");
+                request.setPay_method_category("BANKCARD");
+                request.setMsg_id("1ly7c5zk0xv2p");
+                return request;
+            }
+            case QUERY: {
+                QueryRequest request = new QueryRequest();
+                request.setMerchant_order_no("O1695032342508");
+                request.setMsg_id("1ly7c5zk0xv2q");
+                return request;
+            }
+            default: {
+                CloseRequest request = new CloseRequest();
+                request.setMerchant_order_no("O1695032342508");
+                request.setMsg_id("1ly7c5zk0xv2r");
+                return request;
+            }
+        }
+    }
+
+    static byte[] response(Type type) {
+        ECRHubResponseProto.ResponseBizData.Builder bizData = ECRHubResponseProto.ResponseBizData.newBuilder()
+                .setMerchantOrderNo(type == Type.REFUND ? "R1695032342508" : "O1695032342508");
+        if (type != Type.CLOSE) {
+            bizData.setOrderAmount("10.00")
+                    .setTransNo("1217752501201407033233368018")
+                    .setPriceCurrency("USD")
+                    .setTransType(type == Type.REFUND ? "2" : "1")
+                    .setStoreNo("4786")
+                    .setTerminalSn("PP35272137000268")
+                    .setPayScenario("SWIPE_CARD")
+                    .setTransStatus("2")
+                    .setPayChannelTransNo("2023091822001482211412345678")
+                    .setPayUserAccountId("4761 **** **** 0119")
+                    .setPaidAmount("10.00")
+                    .setTransEndTime("2023-09-18 18:19:02")
+                    .setPayMethodId("Visa")
+                    .putExtendsParams("batch_no", "000012")
+                    .putExtendsParams("auth_code", "A1B2C3");
+        }
+        return ECRHubResponseProto.ECRHubResponse.newBuilder()
+                .setTopic(type.topic.getValue())
+                .setMsgId("1ly7c5zk0xv2o")
+                .setAppId(APP_ID)
+                .setTimestamp("1695032342508")
+                .setSuccess(true)
+                .setVersion("1.0")
+                .setBizData(bizData)
+                .setDeviceData(ECRHubResponseProto.ResponseDeviceData.newBuilder()
+                        .setDeviceSn("PP35272137000268")
+                        .setAppName("ECR Hub")
+                        .setAppVersion("1.0.3"))
+                .build()
+                .toByteArray();
+    }
+}
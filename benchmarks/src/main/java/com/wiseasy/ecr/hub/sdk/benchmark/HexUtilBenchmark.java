@@ -0,0 +1,52 @@
+package com.wiseasy.ecr.hub.sdk.benchmark;
+
+import com.wiseasy.ecr.hub.sdk.utils.HexUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class HexUtilBenchmark {
+
+    /**
+     * ACK packet, typical response packet, large response
+     */
+    @Param({"10", "300", "4096"})
+    public int size;
+
+    private byte[] bytes;
+    private String hex;
+
+    @Setup
+    public void setup() {
+        bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        hex = HexUtil.byte2hex(bytes);
+    }
+
+    @Benchmark
+    public String byte2hex() {
+        return HexUtil.byte2hex(bytes);
+    }
+
+    @Benchmark
+    public byte[] hex2byte() {
+        return HexUtil.hex2byte(hex);
+    }
+}
@@ -0,0 +1,67 @@
+package com.wiseasy.ecr.hub.sdk.benchmark;
+
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.model.request.ECRHubRequest;
+import com.wiseasy.ecr.hub.sdk.model.response.ECRHubResponse;
+import com.wiseasy.ecr.hub.sdk.model.response.ECRHubResponseView;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubProtobufHelper;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseDecoder;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request encoding and response decoding for each transaction type.
+ *
+ * decodeResponse benchmarks the public ECRHubResponseDecoder directly, the path ECRHubAbstractClient takes for a response.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class ProtobufBenchmark {
+
+    @Param({"PURCHASE", "REFUND", "QUERY", "CLOSE"})
+    public Fixtures.Type type;
+
+    private ECRHubRequest<?> request;
+    private byte[] response;
+    private Class<? extends ECRHubResponse> responseClass;
+
+    @Setup
+    public void setup() {
+        request = Fixtures.request(type);
+        response = Fixtures.response(type);
+        responseClass = type.responseClass;
+    }
+
+    @Benchmark
+    public byte[] pack() throws ECRHubException {
+        return ECRHubProtobufHelper.pack(Fixtures.CONFIG, request);
+    }
+
+    @Benchmark
+    public ECRHubResponse decodeResponse() throws ECRHubException {
+        ECRHubResponseProto.ECRHubResponse respProto = ECRHubProtobufHelper.unpack(response);
+        return ECRHubResponseDecoder.decode(respProto, responseClass);
+    }
+
+    @Benchmark
+    public String decodeView() throws ECRHubException {
+        ECRHubResponseView view = new ECRHubResponseView(response);
+        return view.getTrans_status();
+    }
+}
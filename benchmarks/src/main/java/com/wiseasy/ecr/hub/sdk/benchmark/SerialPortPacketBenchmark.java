@@ -0,0 +1,62 @@
+package com.wiseasy.ecr.hub.sdk.benchmark;
+
+import com.wiseasy.ecr.hub.sdk.spi.serialport.SerialPortPacket;
+import com.wiseasy.ecr.hub.sdk.utils.HexUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Framing of a single serial packet around a purchase response sized payload
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class SerialPortPacketBenchmark {
+
+    private byte[] data;
+    private byte[] buffer;
+    private byte[] pack;
+    private String hexPack;
+
+    @Setup
+    public void setup() {
+        data = Fixtures.response(Fixtures.Type.PURCHASE);
+        buffer = new byte[SerialPortPacket.HEADER_LENGTH + data.length + SerialPortPacket.TRAILER_LENGTH];
+        System.arraycopy(data, 0, buffer, SerialPortPacket.HEADER_LENGTH, data.length);
+        pack = new SerialPortPacket.MsgPacket(data).encode();
+        hexPack = HexUtil.byte2hex(pack);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return new SerialPortPacket.MsgPacket(data).encode();
+    }
+
+    @Benchmark
+    public byte[] encodeInPlace() {
+        return SerialPortPacket.encodeMsgPacket(buffer, data.length);
+    }
+
+    @Benchmark
+    public SerialPortPacket decode() {
+        return new SerialPortPacket().decode(pack);
+    }
+
+    @Benchmark
+    public SerialPortPacket decodeHex() {
+        return new SerialPortPacket().decode(hexPack);
+    }
+}
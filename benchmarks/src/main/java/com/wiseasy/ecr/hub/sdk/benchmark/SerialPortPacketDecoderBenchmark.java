@@ -0,0 +1,88 @@
+package com.wiseasy.ecr.hub.sdk.benchmark;
+
+import com.wiseasy.ecr.hub.sdk.spi.serialport.SerialPortPacket;
+import com.wiseasy.ecr.hub.sdk.spi.serialport.SerialPortPacketDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reassembly of a stream of packets as the serial port delivers it.
+ *
+ * One operation feeds a burst of a data packet, its ACK and a heartbeat through the decoder,
+ * cut into the chunks the port listener typically sees.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class SerialPortPacketDecoderBenchmark {
+
+    /**
+     * whole: one read per burst, packet: one read per packet, 64/16: fixed size reads
+     * as with a small driver buffer, 1: byte by byte as with a slow link
+     */
+    @Param({"whole", "packet", "64", "16", "1"})
+    public String chunking;
+
+    private SerialPortPacketDecoder decoder;
+    private byte[][] chunks;
+
+    @Setup
+    public void setup() {
+        List<byte[]> packets = new ArrayList<>();
+        packets.add(new SerialPortPacket.MsgPacket(Fixtures.response(Fixtures.Type.PURCHASE)).encode());
+        packets.add(new SerialPortPacket.AckPacket((byte) 1).encode());
+        packets.add(new SerialPortPacket.HeartBeatPacket().encode());
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (byte[] packet : packets) {
+            stream.write(packet, 0, packet.length);
+        }
+        byte[] burst = stream.toByteArray();
+
+        switch (chunking) {
+            case "whole":
+                chunks = new byte[][]{burst};
+                break;
+            case "packet":
+                chunks = packets.toArray(new byte[0][]);
+                break;
+            default:
+                chunks = split(burst, Integer.parseInt(chunking));
+        }
+        decoder = new SerialPortPacketDecoder();
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        for (byte[] chunk : chunks) {
+            blackhole.consume(decoder.decode(chunk));
+        }
+    }
+
+    private static byte[][] split(byte[] bytes, int size) {
+        byte[][] chunks = new byte[(bytes.length + size - 1) / size][];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = Arrays.copyOfRange(bytes, i * size, Math.min(bytes.length, (i + 1) * size));
+        }
+        return chunks;
+    }
+}
@@ -1,86 +1,526 @@
 package com.wiseasy.ecr.hub.sdk;
 
 import cn.hutool.core.thread.ThreadUtil;
-import com.alibaba.fastjson2.JSONObject;
+import com.wiseasy.ecr.hub.sdk.enums.ECounter;
+import com.wiseasy.ecr.hub.sdk.enums.EEvent;
+import com.wiseasy.ecr.hub.sdk.enums.EMetric;
+import com.wiseasy.ecr.hub.sdk.enums.EPriority;
+import com.wiseasy.ecr.hub.sdk.enums.ETopic;
 import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubRejectedException;
 import com.wiseasy.ecr.hub.sdk.exception.ECRHubTimeoutException;
 import com.wiseasy.ecr.hub.sdk.model.request.ECRHubRequest;
+import com.wiseasy.ecr.hub.sdk.model.request.HeartbeatRequest;
 import com.wiseasy.ecr.hub.sdk.model.response.ECRHubResponse;
-import com.wiseasy.ecr.hub.sdk.model.response.ECRHubResponse.DeviceData;
+import com.wiseasy.ecr.hub.sdk.model.response.ECRHubResponseView;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubEncodeContext;
 import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubProtobufHelper;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubRequestProto;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseDecoder;
 import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto;
-import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto.ResponseDeviceData;
-import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto.ResponseBizData;
+import com.wiseasy.ecr.hub.sdk.spi.ClockOffsetEstimator;
+import com.wiseasy.ecr.hub.sdk.spi.ECRHubEvents;
+import com.wiseasy.ecr.hub.sdk.spi.FlightRecorder;
+import com.wiseasy.ecr.hub.sdk.spi.ResponseTable;
+import com.wiseasy.ecr.hub.sdk.spi.WireTrace;
+import com.wiseasy.ecr.hub.sdk.spi.metrics.MetricsRecorder;
+import com.wiseasy.ecr.hub.sdk.spi.transport.Transport;
+import com.wiseasy.ecr.hub.sdk.spi.transport.TransportContext;
+import com.wiseasy.ecr.hub.sdk.utils.NetHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Client core shared by every {@link Transport}: connection and pairing, response correlation,
+ * timeouts, circuit breaker, metrics and timing.
+ */
 public abstract class ECRHubAbstractClient implements ECRHubClient {
 
+    private static final Logger log = LoggerFactory.getLogger(ECRHubAbstractClient.class);
+
     /**
      * Default synchronous read data timeout (milliseconds)
      */
     protected static final long DEF_READ_TIMEOUT = 5 * 60 * 1000;
 
     private final ECRHubConfig config;
+    private final Transport transport;
+    private final ResponseTable responses;
+    private final Lock lock = new ReentrantLock();
+    private volatile boolean isPaired = false;
+    private final ECRHubCircuitBreaker circuitBreaker;
+    private final WireTrace wireTrace;
+    private final FlightRecorder flightRecorder;
+    private final ClockOffsetEstimator clock = new ClockOffsetEstimator();
+    /**
+     * Timing of the requests waiting for their response, by msg_id
+     */
+    private final Map<String, ECRHubTiming> inFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger connectCount = new AtomicInteger();
 
-    public ECRHubAbstractClient(ECRHubConfig config) {
-        this.config = config;
+    protected ECRHubAbstractClient(TransportContext context, Transport transport) {
+        this.config = context.getConfig();
+        this.transport = transport;
+        this.wireTrace = context.getWireTrace();
+        this.flightRecorder = context.getFlightRecorder();
+        this.circuitBreaker = new ECRHubCircuitBreaker(config.getCircuitBreakerConfig(), this::probe);
+        this.responses = new ResponseTable(20, 10 * 60 * 1000, () -> getMetrics().increment(ECounter.EVICTIONS, getTerminal(), null, 1));
+        transport.setListener(new Transport.Listener() {
+            @Override
+            public ECRHubResponseProto.ECRHubResponse onMessage(byte[] message) {
+                return ECRHubAbstractClient.this.onMessage(message);
+            }
+
+            @Override
+            public void onRetarget() {
+                // Round trips over the new path are not comparable with the old ones
+                clock.reset();
+            }
+        });
     }
 
     public ECRHubConfig getConfig() {
         return config;
     }
 
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public ECRHubCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    protected WireTrace getWireTrace() {
+        return wireTrace;
+    }
+
+    /**
+     * Recent wire frames of this client, can be dumped on demand
+     */
+    public FlightRecorder getFlightRecorder() {
+        return flightRecorder;
+    }
+
+    /**
+     * Offset of the terminal clock, estimated from the {@link HeartbeatRequest} exchanges
+     */
+    public ClockOffsetEstimator getClock() {
+        return clock;
+    }
+
+    /**
+     * Exchange one heartbeat with the terminal to refine the clock offset estimate.
+     * Call it a few times after connecting, and then and again to follow the clock drift.
+     *
+     * @return Whether an estimate is available
+     */
+    public boolean syncClock() throws ECRHubException {
+        execute(new HeartbeatRequest());
+        return clock.hasEstimate();
+    }
+
+    @Override
+    public boolean connect() throws ECRHubException {
+        return connect2().isSuccess();
+    }
+
     @Override
     public ECRHubResponse connect2() throws ECRHubException {
-        return null;
+        lock.lock();
+        try {
+            log.info("Connecting...");
+            // The terminal may have been restarted or replaced, its clock with it
+            clock.reset();
+            long deadline = System.currentTimeMillis() + transport.getConnTimeout(config);
+            transport.connect(deadline);
+            ECRHubResponse response;
+            if (transport.isPairingRequired()) {
+                response = doPair(deadline);
+            } else {
+                response = new ECRHubResponse();
+                response.setSuccess(true);
+            }
+            isPaired = response.isSuccess();
+            onConnected();
+            log.info("Connection successful");
+            return response;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void prewarm() {
+        transport.prewarm();
+    }
+
+    @Override
+    public boolean isConnected() throws ECRHubException {
+        return isPaired && transport.isOpen();
+    }
+
+    @Override
+    public boolean disconnect() throws ECRHubException {
+        lock.lock();
+        try {
+            log.info("Disconnecting...");
+            boolean isClosed = transport.disconnect();
+            if (isClosed) {
+                isPaired = false;
+                log.info("Disconnect successful");
+            }
+            return isClosed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public ECRHubHealth getHealth() {
+        ECRHubHealth health = new ECRHubHealth();
+        health.setTerminal(getTerminal());
+        health.setCircuitState(circuitBreaker.getState());
+        health.setReconnectCount(Math.max(connectCount.get() - 1, 0));
+
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, ECRHubTiming>> entries = new ArrayList<>(inFlight.entrySet());
+        entries.sort(Comparator.comparingLong(entry -> entry.getValue().getSendTime()));
+        Map<String, Long> ages = new LinkedHashMap<>();
+        for (Map.Entry<String, ECRHubTiming> entry : entries) {
+            ages.put(entry.getKey(), now - entry.getValue().getSendTime());
+        }
+        health.setInFlight(ages);
+
+        transport.fillHealth(health);
+        health.setPaired(isPaired && transport.isOpen());
+        health.setPendingResponses(responses.size());
+        return health;
+    }
+
+    private void onConnected() {
+        connectCount.incrementAndGet();
+        circuitBreaker.reset();
     }
 
     @Override
     public <T extends ECRHubResponse> T execute(ECRHubRequest<T> request) throws ECRHubException {
-        sendReq(request);
+        circuitBreaker.acquire();
+        ECRHubTiming timing = send(request);
+
+        Exception failure = null;
+        try {
+            return getResp(request, timing);
+        } catch (ECRHubException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            onComplete(failure);
+        }
+    }
 
-        return getResp(request);
+    @Override
+    public ECRHubResponseView executeView(ECRHubRequest<?> request) throws ECRHubException {
+        circuitBreaker.acquire();
+        ECRHubTiming timing = send(request);
+
+        Exception failure = null;
+        try {
+            ECRHubResponseView view = new ECRHubResponseView(receive(request, timing));
+            view.setTiming(timing);
+            onTiming(request, timing, view.getTimestamp());
+            return view;
+        } catch (ECRHubException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            onComplete(failure);
+        }
     }
 
     @Override
     public <T extends ECRHubResponse> void asyncExecute(ECRHubRequest<T> request, ECRHubResponseCallBack<T> callback) throws ECRHubException {
-        sendReq(request);
+        circuitBreaker.acquire();
+        ECRHubTiming timing = send(request);
 
         ThreadUtil.execute(() -> {
+            T resp;
             try {
-                callback.onResponse(getResp(request));
+                resp = getResp(request, timing);
             } catch (ECRHubTimeoutException e) {
+                onComplete(e);
                 callback.onTimeout(e);
+                return;
             } catch (ECRHubException e) {
+                onComplete(e);
                 callback.onError(e);
+                return;
+            } catch (Exception e) {
+                onComplete(e);
+                callback.onError(new ECRHubException(e));
+                return;
+            }
+            onComplete(null);
+            try {
+                callback.onResponse(resp);
             } catch (Exception e) {
                 callback.onError(new ECRHubException(e));
             }
         });
     }
 
-    protected abstract void sendReq(ECRHubRequest request) throws ECRHubException;
+    private ECRHubTiming send(ECRHubRequest<?> request) throws ECRHubException {
+        if (!request.hasMsg_id()) {
+            request.setMsg_id(config.getMsgIdGenerator().nextId());
+        }
+        ECRHubTiming timing = new ECRHubTiming();
+        inFlight.put(request.getMsg_id(), timing);
+        try {
+            sendReq(request);
+            return timing;
+        } catch (ECRHubRejectedException e) {
+            // Local back-pressure, not a terminal failure
+            inFlight.remove(request.getMsg_id());
+            circuitBreaker.onRejected();
+            throw e;
+        } catch (ECRHubException | RuntimeException e) {
+            inFlight.remove(request.getMsg_id());
+            circuitBreaker.onFailure();
+            getMetrics().increment(ECounter.ERRORS, getTerminal(), request.getTopic(), 1);
+            throw e;
+        }
+    }
 
-    protected abstract <T extends ECRHubResponse> T getResp(ECRHubRequest<T> request) throws ECRHubException;
+    private byte[] receive(ECRHubRequest<?> request, ECRHubTiming timing) throws ECRHubException {
+        MetricsRecorder metrics = getMetrics();
+        Object event = ECRHubEvents.begin(EEvent.TIMEOUT);
+        try {
+            byte[] respPack = responses.await(request.getMsg_id(), System.currentTimeMillis() + getReadTimeout(request));
+            timing.setReceiveTime(System.currentTimeMillis());
+            metrics.recordLatency(EMetric.RESPONSE, getTerminal(), request.getTopic(), System.nanoTime() - timing.sendNanos);
+            return respPack;
+        } catch (ECRHubException | RuntimeException e) {
+            // Timeouts and other failures are counted apart
+            if (e instanceof ECRHubTimeoutException) {
+                metrics.increment(ECounter.TIMEOUTS, getTerminal(), request.getTopic(), 1);
+                ECRHubEvents.commit(event, getTerminal(), request.getTopic(), request.getMsg_id(), 0);
+                flightRecorder.onTimeout(request.getMsg_id());
+            } else {
+                metrics.increment(ECounter.ERRORS, getTerminal(), request.getTopic(), 1);
+            }
+            throw e;
+        } finally {
+            inFlight.remove(request.getMsg_id());
+        }
+    }
 
-    protected <T extends ECRHubResponse> T decodeRespPack(byte[] respPack, Class<T> respClass) throws ECRHubException {
-        if (respPack == null || respPack.length == 0) {
+    /**
+     * Complete the timing of a transaction with the terminal timestamp of its response.
+     * Heartbeat responses refine the clock offset estimate, the others are broken down with it.
+     */
+    private void onTiming(ECRHubRequest<?> request, ECRHubTiming timing, String terminalTimestamp) {
+        timing.setTerminalTime(parseTimestamp(terminalTimestamp));
+        if (ETopic.HEARTBEAT.getValue().equals(request.getTopic())) {
+            long writeTime = timing.getWriteTime() > 0 ? timing.getWriteTime() : timing.getSendTime();
+            clock.addSample(writeTime, timing.getReceiveTime(), timing.getTerminalTime());
+        }
+        if (!clock.hasEstimate()) {
+            return;
+        }
+        timing.setClockSynced(true);
+        timing.setClockOffset(clock.getOffset());
+        timing.setClockRoundTrip(clock.getRoundTrip());
+
+        long processing = timing.getProcessingTime();
+        if (processing >= 0) {
+            getMetrics().recordLatency(EMetric.TERMINAL, getTerminal(), request.getTopic(), processing * 1000000);
+            getMetrics().recordLatency(EMetric.LINK, getTerminal(), request.getTopic(), timing.getLinkTime() * 1000000);
+        }
+    }
+
+    /**
+     * Response timestamps are milliseconds since the epoch, seconds are accepted from older firmware
+     *
+     * @return The timestamp in milliseconds, 0 if missing or invalid
+     */
+    private static long parseTimestamp(String timestamp) {
+        if (timestamp == null || timestamp.isEmpty()) {
+            return 0;
+        }
+        try {
+            long value = Long.parseLong(timestamp.trim());
+            return value < 100000000000L ? value * 1000 : value;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Listener passed to the transport, records when the request is actually written to the link
+     * and fails the waiting caller if the request is dropped before that
+     */
+    private Transport.WriteListener writeListener(ECRHubRequest<?> request) {
+        String msgId = request.getMsg_id();
+        ECRHubTiming timing = inFlight.get(msgId);
+        return new Transport.WriteListener() {
+            @Override
+            public void onWritten() {
+                if (timing != null) {
+                    timing.onWritten();
+                }
+            }
+
+            @Override
+            public void onDropped(ECRHubException reason) {
+                responses.fail(msgId, reason);
+            }
+        };
+    }
+
+    /**
+     * @param failure null if the transaction succeeded
+     */
+    private void onComplete(Exception failure) {
+        if (failure == null) {
+            circuitBreaker.onSuccess();
+        } else if (failure instanceof ECRHubRejectedException) {
+            // Local back-pressure, not a terminal failure
+            circuitBreaker.onRejected();
+        } else {
+            circuitBreaker.onFailure();
+        }
+    }
+
+    /**
+     * Cheap heartbeat used by the circuit breaker to check whether the terminal has recovered
+     */
+    protected boolean probe(long timeout) {
+        return isPaired && transport.heartbeat(timeout);
+    }
+
+    protected MetricsRecorder getMetrics() {
+        return config.getMetricsRecorder();
+    }
+
+    /**
+     * Terminal name used in metrics: serial port name or WebSocket URL
+     */
+    protected String getTerminal() {
+        return transport.getTerminal();
+    }
+
+    private long getReadTimeout(ECRHubRequest<?> request) {
+        ECRHubConfig config = request.getConfig();
+        return config != null ? transport.getReadTimeout(config) : DEF_READ_TIMEOUT;
+    }
+
+    private void sendReq(ECRHubRequest<?> request) throws ECRHubException {
+        if (!isConnected()) {
+            throw new ECRHubException("Not connected to the terminal:" + getTerminal());
+        }
+        Object event = ECRHubEvents.begin(EEvent.ENCODE);
+        ECRHubEncodeContext context = ECRHubEncodeContext.get();
+        int length = ECRHubProtobufHelper.write(context, ECRHubProtobufHelper.build(context, config, request),
+                transport.getHeadroom(), transport.getTailroom());
+        ECRHubEvents.commit(event, getTerminal(), request.getTopic(), request.getMsg_id(), length);
+        transport.send(context.buffer(), length, request.getTopic(), request.getPriority(),
+                System.currentTimeMillis() + getReadTimeout(request), writeListener(request));
+    }
+
+    /**
+     * Correlate a message received by the transport with the request waiting for it
+     */
+    private ECRHubResponseProto.ECRHubResponse onMessage(byte[] message) {
+        ECRHubResponseProto.ECRHubResponse respProto;
+        try {
+            respProto = ECRHubProtobufHelper.unpack(message);
+        } catch (ECRHubException e) {
+            getMetrics().increment(ECounter.ERRORS, getTerminal(), null, 1);
             return null;
+        }
+        responses.put(respProto.getMsgId(), message);
+        return respProto;
+    }
+
+    private ECRHubResponse doPair(long deadline) throws ECRHubException {
+        log.info("Start pairing");
+        Object event = ECRHubEvents.begin(EEvent.PAIRING);
+        ECRHubRequestProto.ECRHubRequest request = buildPairRequest();
+        ECRHubResponse response;
+        try {
+            ECRHubEncodeContext context = ECRHubEncodeContext.get();
+            int length = ECRHubProtobufHelper.write(context, request, transport.getHeadroom(), transport.getTailroom());
+            transport.send(context.buffer(), length, request.getTopic(), EPriority.URGENT, deadline, null);
+
+            byte[] respPack = responses.await(request.getMsgId(), deadline);
+            response = decodeRespPack(respPack, ECRHubResponse.class);
+        } finally {
+            ECRHubEvents.commit(event, getTerminal(), request.getTopic(), request.getMsgId(), 0);
+        }
+        if (response.isSuccess()) {
+            log.info("Successful pairing");
+            return response;
         } else {
-            ECRHubResponseProto.ECRHubResponse respProto = ECRHubProtobufHelper.unpack(respPack);
+            log.error("Failed pairing: {}", response.getError_msg());
+            throw new ECRHubException(response.getError_msg());
+        }
+    }
 
-            ResponseDeviceData deviceData = respProto.getDeviceData();
-            JSONObject deviceDataJson = ECRHubProtobufHelper.proto2Json(deviceData);
-            DeviceData device = deviceDataJson.toJavaObject(DeviceData.class);
+    private ECRHubRequestProto.ECRHubRequest buildPairRequest() {
+        String deviceName = Optional.ofNullable(config.getDeviceName()).orElse(NetHelper.getLocalHostName());
+        String aliasName = Optional.ofNullable(config.getAliasName()).orElse(deviceName);
+        String macAddress = NetHelper.getLocalMacAddress();
 
-            ResponseBizData bizData = respProto.getBizData();
-            JSONObject bizDataJson = ECRHubProtobufHelper.proto2Json(bizData);
+        ECRHubEncodeContext context = ECRHubEncodeContext.get();
+        return context.requestBuilder()
+                .setTimestamp(String.valueOf(System.currentTimeMillis()))
+                .setMsgId(config.getMsgIdGenerator().nextId())
+                .setTopic(ETopic.PAIR.getValue())
+                .setPairData(context.pairDataBuilder()
+                            .setDeviceName(deviceName)
+                            .setAliasName(aliasName)
+                            .setMacAddress(macAddress))
+                .build();
+    }
 
-            T resp = bizDataJson.toJavaObject(respClass);
-            resp.setMsg_id(respProto.getMsgId());
-            resp.setSuccess(respProto.getSuccess());
-            resp.setError_msg(respProto.getErrorMsg());
-            resp.setDevice_data(device);
+    private <T extends ECRHubResponse> T getResp(ECRHubRequest<T> request, ECRHubTiming timing) throws ECRHubException {
+        byte[] respPack = receive(request, timing);
+        long decodeTime = System.nanoTime();
+        Object event = ECRHubEvents.begin(EEvent.DECODE);
+        try {
+            if (respPack == null || respPack.length == 0) {
+                return null;
+            }
+            ECRHubResponseProto.ECRHubResponse respProto = ECRHubProtobufHelper.unpack(respPack);
+            T resp = ECRHubResponseDecoder.decode(respProto, request.getResponseClass());
+            getMetrics().recordLatency(EMetric.DECODE, getTerminal(), request.getTopic(), System.nanoTime() - decodeTime);
+            ECRHubEvents.commit(event, getTerminal(), request.getTopic(), request.getMsg_id(), respPack.length);
+            resp.setTiming(timing);
+            onTiming(request, timing, respProto.getTimestamp());
             return resp;
+        } catch (ECRHubException | RuntimeException e) {
+            getMetrics().increment(ECounter.ERRORS, getTerminal(), request.getTopic(), 1);
+            throw e;
+        }
+    }
+
+    private <T extends ECRHubResponse> T decodeRespPack(byte[] respPack, Class<T> respClass) throws ECRHubException {
+        if (respPack == null || respPack.length == 0) {
+            return null;
+        } else {
+            ECRHubResponseProto.ECRHubResponse respProto = ECRHubProtobufHelper.unpack(respPack);
+            return ECRHubResponseDecoder.decode(respProto, respClass);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,169 @@
+package com.wiseasy.ecr.hub.sdk;
+
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig.CircuitBreakerConfig;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubCircuitOpenException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-terminal circuit breaker.
+ *
+ * CLOSED: requests pass through, consecutive timeouts or transport errors are counted.
+ * OPEN: requests fail fast with {@link ECRHubCircuitOpenException} until the open timeout elapses.
+ * HALF_OPEN: a single caller sends a heartbeat probe, if it succeeds the caller's request is let through
+ * and its outcome decides whether the circuit closes or opens again.
+ */
+public class ECRHubCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(ECRHubCircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Cheap liveness check of the terminal link
+     */
+    public interface Probe {
+        boolean probe(long timeout);
+    }
+
+    private final CircuitBreakerConfig config;
+    private final Probe probe;
+    private final Lock lock = new ReentrantLock();
+
+    private volatile State state = State.CLOSED;
+    private int failures = 0;
+    private long openUntil = 0;
+
+    public ECRHubCircuitBreaker(CircuitBreakerConfig config, Probe probe) {
+        this.config = config;
+        this.probe = probe;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Called before a request is sent.
+     *
+     * @throws ECRHubCircuitOpenException if the circuit is open, or the recovery probe failed
+     */
+    public void acquire() throws ECRHubCircuitOpenException {
+        if (!config.isEnabled() || state == State.CLOSED) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (state == State.CLOSED) {
+                return;
+            }
+            if (state == State.HALF_OPEN || System.currentTimeMillis() < openUntil) {
+                throw new ECRHubCircuitOpenException("The circuit breaker is open, the terminal is not responding.");
+            }
+            state = State.HALF_OPEN;
+        } finally {
+            lock.unlock();
+        }
+
+        boolean alive;
+        try {
+            alive = probe.probe(config.getProbeTimeout());
+        } catch (Exception e) {
+            log.warn("Heartbeat probe error:", e);
+            alive = false;
+        }
+        if (!alive) {
+            log.info("Heartbeat probe failed, circuit breaker stays open");
+            open();
+            throw new ECRHubCircuitOpenException("The circuit breaker is open, heartbeat probe failed.");
+        }
+        log.info("Heartbeat probe successful, circuit breaker is half open");
+    }
+
+    /**
+     * Called when a response has been received
+     */
+    public void onSuccess() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        lock.lock();
+        try {
+            failures = 0;
+            if (state != State.CLOSED) {
+                state = State.CLOSED;
+                log.info("Circuit breaker closed");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called when a request failed with a timeout or transport error
+     */
+    public void onFailure() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        lock.lock();
+        try {
+            failures++;
+            if (state == State.HALF_OPEN || failures >= config.getFailureThreshold()) {
+                open();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called when a request was rejected locally before reaching the terminal
+     */
+    public void onRejected() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        lock.lock();
+        try {
+            // The heartbeat probe already proved the terminal is alive
+            if (state == State.HALF_OPEN) {
+                state = State.CLOSED;
+                failures = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Close the circuit, e.g. after a successful reconnect
+     */
+    public void reset() {
+        lock.lock();
+        try {
+            failures = 0;
+            state = State.CLOSED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void open() {
+        lock.lock();
+        try {
+            if (state != State.OPEN) {
+                log.warn("Circuit breaker opened after {} consecutive failures", failures);
+            }
+            state = State.OPEN;
+            openUntil = System.currentTimeMillis() + config.getOpenTimeout();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
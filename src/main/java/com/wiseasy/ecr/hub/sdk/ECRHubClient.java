@@ -3,11 +3,19 @@ package com.wiseasy.ecr.hub.sdk;
 import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
 import com.wiseasy.ecr.hub.sdk.model.request.ECRHubRequest;
 import com.wiseasy.ecr.hub.sdk.model.response.ECRHubResponse;
+import com.wiseasy.ecr.hub.sdk.model.response.ECRHubResponseView;
 
 public interface ECRHubClient {
 
     boolean connect() throws ECRHubException;
 
+    /**
+     * Start the link setup that can be done ahead of the connect in the background, so the connect is faster.
+     * For wss:// links, a TLS handshake whose session the connect resumes. Nothing to do by default
+     */
+    default void prewarm() {
+    }
+
     ECRHubResponse connect2() throws ECRHubException;
 
     boolean isConnected() throws ECRHubException;
@@ -16,6 +24,30 @@ public interface ECRHubClient {
 
     <T extends ECRHubResponse> T execute(ECRHubRequest<T> request) throws ECRHubException;
 
+    /**
+     * Execute a request and return a lazy view of the response, fields are decoded only when accessed.
+     * Clients built on {@link ECRHubAbstractClient} support it, other implementations throw by default
+     *
+     * @throws UnsupportedOperationException if the client does not keep the encoded response
+     */
+    default ECRHubResponseView executeView(ECRHubRequest<?> request) throws ECRHubException {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support executeView");
+    }
+
     <T extends ECRHubResponse> void asyncExecute(ECRHubRequest<T> request, ECRHubResponseCallBack<T> callback) throws ECRHubException;
 
+    /**
+     * Snapshot of the connection state, queue depth and requests in flight. Cheap enough to poll every second.
+     * By default only the connection state, from {@link #isConnected()}
+     */
+    default ECRHubHealth getHealth() {
+        ECRHubHealth health = new ECRHubHealth();
+        try {
+            health.setPaired(isConnected());
+        } catch (ECRHubException e) {
+            health.setPaired(false);
+        }
+        return health;
+    }
+
 }
\ No newline at end of file
@@ -27,7 +27,8 @@ public class ECRHubClientFactory {
             return new ECRHubWebSocketClient(url, config);
         }
         else {
-            throw new ECRHubException("Invalid url:" + url);
+            // Other schemes are served by the transport registered for them, see TransportProvider
+            return new ECRHubTransportClient(url, config);
         }
     }
 }
\ No newline at end of file
@@ -1,6 +1,14 @@
 package com.wiseasy.ecr.hub.sdk;
 
 import com.fazecast.jSerialComm.SerialPort;
+import com.wiseasy.ecr.hub.sdk.enums.ERejectPolicy;
+import com.wiseasy.ecr.hub.sdk.spi.DefaultMsgIdGenerator;
+import com.wiseasy.ecr.hub.sdk.spi.MsgIdGenerator;
+import com.wiseasy.ecr.hub.sdk.spi.metrics.MetricsRecorder;
+
+import javax.net.ssl.SSLContext;
+import java.util.HashSet;
+import java.util.Set;
 
 public class ECRHubConfig {
     /**
@@ -23,6 +31,34 @@ public class ECRHubConfig {
      * Socket Configuration
      */
     private SocketConfig socketConfig = new SocketConfig();
+    /**
+     * TLS Configuration, for wss:// links
+     */
+    private TlsConfig tlsConfig = new TlsConfig();
+    /**
+     * Circuit Breaker Configuration
+     */
+    private CircuitBreakerConfig circuitBreakerConfig = new CircuitBreakerConfig();
+    /**
+     * Outbound Scheduler Configuration
+     */
+    private SchedulerConfig schedulerConfig = new SchedulerConfig();
+    /**
+     * Wire Trace Configuration
+     */
+    private TraceConfig traceConfig = new TraceConfig();
+    /**
+     * Flight Recorder Configuration
+     */
+    private RecorderConfig recorderConfig = new RecorderConfig();
+    /**
+     * Message ID generator, for requests without a caller supplied msg_id
+     */
+    private MsgIdGenerator msgIdGenerator = DefaultMsgIdGenerator.getInstance();
+    /**
+     * Metrics recorder, e.g. com.wiseasy.ecr.hub.sdk.spi.metrics.HistogramMetricsRecorder. Records nothing by default
+     */
+    private MetricsRecorder metricsRecorder = MetricsRecorder.NOOP;
 
     public ECRHubConfig() {
     }
@@ -77,6 +113,62 @@ public class ECRHubConfig {
         this.socketConfig = socketConfig;
     }
 
+    public TlsConfig getTlsConfig() {
+        return tlsConfig;
+    }
+
+    public void setTlsConfig(TlsConfig tlsConfig) {
+        this.tlsConfig = tlsConfig;
+    }
+
+    public CircuitBreakerConfig getCircuitBreakerConfig() {
+        return circuitBreakerConfig;
+    }
+
+    public void setCircuitBreakerConfig(CircuitBreakerConfig circuitBreakerConfig) {
+        this.circuitBreakerConfig = circuitBreakerConfig;
+    }
+
+    public SchedulerConfig getSchedulerConfig() {
+        return schedulerConfig;
+    }
+
+    public void setSchedulerConfig(SchedulerConfig schedulerConfig) {
+        this.schedulerConfig = schedulerConfig;
+    }
+
+    public TraceConfig getTraceConfig() {
+        return traceConfig;
+    }
+
+    public void setTraceConfig(TraceConfig traceConfig) {
+        this.traceConfig = traceConfig;
+    }
+
+    public RecorderConfig getRecorderConfig() {
+        return recorderConfig;
+    }
+
+    public void setRecorderConfig(RecorderConfig recorderConfig) {
+        this.recorderConfig = recorderConfig;
+    }
+
+    public MsgIdGenerator getMsgIdGenerator() {
+        return msgIdGenerator;
+    }
+
+    public void setMsgIdGenerator(MsgIdGenerator msgIdGenerator) {
+        this.msgIdGenerator = msgIdGenerator;
+    }
+
+    public MetricsRecorder getMetricsRecorder() {
+        return metricsRecorder;
+    }
+
+    public void setMetricsRecorder(MetricsRecorder metricsRecorder) {
+        this.metricsRecorder = metricsRecorder;
+    }
+
     /**
      * Serial Port Configuration
      */
@@ -196,6 +288,15 @@ public class ECRHubConfig {
          * Read/write timeout (milliseconds)
          */
         private int socketTimeout = 10 * 1000;
+        /**
+         * Send messages as text frames instead of binary frames, for old terminal firmware
+         */
+        private boolean textFrame = false;
+        /**
+         * Serve ws:// connections from the shared NIO event loop instead of a read and a write thread per connection,
+         * for gateways holding many terminals
+         */
+        private boolean eventLoop = false;
 
         public int getConnTimeout() {
             return connTimeout;
@@ -212,5 +313,285 @@ public class ECRHubConfig {
         public void setSocketTimeout(int socketTimeout) {
             this.socketTimeout = socketTimeout;
         }
+
+        public boolean isTextFrame() {
+            return textFrame;
+        }
+
+        public void setTextFrame(boolean textFrame) {
+            this.textFrame = textFrame;
+        }
+
+        public boolean isEventLoop() {
+            return eventLoop;
+        }
+
+        public void setEventLoop(boolean eventLoop) {
+            this.eventLoop = eventLoop;
+        }
+    }
+
+    /**
+     * TLS Configuration
+     */
+    public static class TlsConfig {
+        /**
+         * SSL context of the wss:// links, the JVM default context if not set.
+         * Its client session cache is shared by all clients using it, so reconnects resume the TLS session
+         * instead of doing a full handshake
+         */
+        private SSLContext sslContext;
+
+        public SSLContext getSslContext() {
+            return sslContext;
+        }
+
+        public void setSslContext(SSLContext sslContext) {
+            this.sslContext = sslContext;
+        }
+    }
+
+    /**
+     * Circuit Breaker Configuration
+     */
+    public static class CircuitBreakerConfig {
+        /**
+         * Whether the circuit breaker is enabled. When enabled, requests to a terminal that stopped responding
+         * fail fast with ECRHubCircuitOpenException instead of waiting out their read timeout
+         */
+        private boolean enabled = false;
+        /**
+         * Number of consecutive timeouts or transport errors that opens the circuit
+         */
+        private int failureThreshold = 3;
+        /**
+         * How long the circuit stays open before a heartbeat probe is attempted (milliseconds)
+         */
+        private int openTimeout = 15 * 1000;
+        /**
+         * Heartbeat probe timeout (milliseconds)
+         */
+        private int probeTimeout = 2 * 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getFailureThreshold() {
+            return failureThreshold;
+        }
+
+        public void setFailureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+        }
+
+        public int getOpenTimeout() {
+            return openTimeout;
+        }
+
+        public void setOpenTimeout(int openTimeout) {
+            this.openTimeout = openTimeout;
+        }
+
+        public int getProbeTimeout() {
+            return probeTimeout;
+        }
+
+        public void setProbeTimeout(int probeTimeout) {
+            this.probeTimeout = probeTimeout;
+        }
+    }
+
+    /**
+     * Outbound Scheduler Configuration
+     */
+    public static class SchedulerConfig {
+        /**
+         * Maximum number of queued frames per priority class
+         */
+        private int queueCapacity = 64;
+        /**
+         * What to do when the queue of a priority class is full
+         *
+         * @see com.wiseasy.ecr.hub.sdk.enums.ERejectPolicy
+         */
+        private ERejectPolicy rejectPolicy = ERejectPolicy.ABORT;
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public ERejectPolicy getRejectPolicy() {
+            return rejectPolicy;
+        }
+
+        public void setRejectPolicy(ERejectPolicy rejectPolicy) {
+            this.rejectPolicy = rejectPolicy;
+        }
+    }
+
+    /**
+     * Wire Trace Configuration
+     */
+    public static class TraceConfig {
+        /**
+         * Whether wire frames are traced, see com.wiseasy.ecr.hub.sdk.spi.WireTrace
+         */
+        private boolean enabled = false;
+        /**
+         * Trace frames received from the terminal
+         */
+        private boolean inbound = true;
+        /**
+         * Trace frames sent to the terminal
+         */
+        private boolean outbound = true;
+        /**
+         * Only trace these topics, all topics if empty
+         */
+        private Set<String> topics = new HashSet<>();
+        /**
+         * Trace one of every sampleRate frames
+         */
+        private int sampleRate = 1;
+        /**
+         * Maximum payload bytes rendered per frame, 0 for no limit
+         */
+        private int maxPayloadBytes = 256;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public boolean isInbound() {
+            return inbound;
+        }
+
+        public void setInbound(boolean inbound) {
+            this.inbound = inbound;
+        }
+
+        public boolean isOutbound() {
+            return outbound;
+        }
+
+        public void setOutbound(boolean outbound) {
+            this.outbound = outbound;
+        }
+
+        public Set<String> getTopics() {
+            return topics;
+        }
+
+        public void setTopics(Set<String> topics) {
+            this.topics = topics;
+        }
+
+        public int getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(int sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+
+        public int getMaxPayloadBytes() {
+            return maxPayloadBytes;
+        }
+
+        public void setMaxPayloadBytes(int maxPayloadBytes) {
+            this.maxPayloadBytes = maxPayloadBytes;
+        }
+    }
+
+    /**
+     * Flight Recorder Configuration
+     */
+    public static class RecorderConfig {
+        /**
+         * Whether the last wire frames are kept in memory, see com.wiseasy.ecr.hub.sdk.spi.FlightRecorder
+         */
+        private boolean enabled = false;
+        /**
+         * Number of frames kept
+         */
+        private int capacity = 128;
+        /**
+         * Keep the payload bytes of the frames. Payloads carry order and card data,
+         * so by default only the frame headers and lengths are kept
+         */
+        private boolean capturePayload = false;
+        /**
+         * Maximum payload bytes kept per frame when capturePayload is set
+         */
+        private int maxPayloadBytes = 512;
+        /**
+         * Dump the recorded frames to a file when a response times out
+         */
+        private boolean dumpOnTimeout = false;
+        /**
+         * Directory of the dump files, the system temporary directory if not set. Dump files are only readable by their owner
+         */
+        private String dumpDir;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public boolean isCapturePayload() {
+            return capturePayload;
+        }
+
+        public void setCapturePayload(boolean capturePayload) {
+            this.capturePayload = capturePayload;
+        }
+
+        public int getMaxPayloadBytes() {
+            return maxPayloadBytes;
+        }
+
+        public void setMaxPayloadBytes(int maxPayloadBytes) {
+            this.maxPayloadBytes = maxPayloadBytes;
+        }
+
+        public boolean isDumpOnTimeout() {
+            return dumpOnTimeout;
+        }
+
+        public void setDumpOnTimeout(boolean dumpOnTimeout) {
+            this.dumpOnTimeout = dumpOnTimeout;
+        }
+
+        public String getDumpDir() {
+            return dumpDir;
+        }
+
+        public void setDumpDir(String dumpDir) {
+            this.dumpDir = dumpDir;
+        }
     }
 }
\ No newline at end of file
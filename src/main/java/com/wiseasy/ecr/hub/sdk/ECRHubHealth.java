@@ -0,0 +1,140 @@
+package com.wiseasy.ecr.hub.sdk;
+
+import com.alibaba.fastjson2.JSON;
+
+import java.util.Map;
+
+/**
+ * Point-in-time health of a client connection, see {@link ECRHubClient#getHealth()}
+ */
+public class ECRHubHealth {
+    /**
+     * Serial port name or WebSocket URL
+     */
+    private String terminal;
+    /**
+     * Serial handshake completed, or WebSocket open
+     */
+    private boolean handshake;
+    /**
+     * Serial pairing completed, same as handshake for WebSocket
+     */
+    private boolean paired;
+    private ECRHubCircuitBreaker.State circuitState;
+    /**
+     * Time (milliseconds) the last frame was received, 0 if none
+     */
+    private long lastFrameTime;
+    /**
+     * Time (milliseconds) of the last answered heartbeat, 0 if none
+     */
+    private long lastHeartbeatTime;
+    /**
+     * Number of successful connects after the first one
+     */
+    private int reconnectCount;
+    /**
+     * Frames waiting in the outbound queue
+     */
+    private int queueSize;
+    /**
+     * Received responses nobody has read yet
+     */
+    private int pendingResponses;
+    /**
+     * Requests sent and waiting for their response: msg_id to age (milliseconds), oldest first
+     */
+    private Map<String, Long> inFlight;
+
+    public String getTerminal() {
+        return terminal;
+    }
+
+    public void setTerminal(String terminal) {
+        this.terminal = terminal;
+    }
+
+    public boolean isHandshake() {
+        return handshake;
+    }
+
+    public void setHandshake(boolean handshake) {
+        this.handshake = handshake;
+    }
+
+    public boolean isPaired() {
+        return paired;
+    }
+
+    public void setPaired(boolean paired) {
+        this.paired = paired;
+    }
+
+    public ECRHubCircuitBreaker.State getCircuitState() {
+        return circuitState;
+    }
+
+    public void setCircuitState(ECRHubCircuitBreaker.State circuitState) {
+        this.circuitState = circuitState;
+    }
+
+    public long getLastFrameTime() {
+        return lastFrameTime;
+    }
+
+    public void setLastFrameTime(long lastFrameTime) {
+        this.lastFrameTime = lastFrameTime;
+    }
+
+    public long getLastHeartbeatTime() {
+        return lastHeartbeatTime;
+    }
+
+    public void setLastHeartbeatTime(long lastHeartbeatTime) {
+        this.lastHeartbeatTime = lastHeartbeatTime;
+    }
+
+    public int getReconnectCount() {
+        return reconnectCount;
+    }
+
+    public void setReconnectCount(int reconnectCount) {
+        this.reconnectCount = reconnectCount;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public int getPendingResponses() {
+        return pendingResponses;
+    }
+
+    public void setPendingResponses(int pendingResponses) {
+        this.pendingResponses = pendingResponses;
+    }
+
+    public Map<String, Long> getInFlight() {
+        return inFlight;
+    }
+
+    public void setInFlight(Map<String, Long> inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    /**
+     * Age (milliseconds) of the oldest request waiting for its response, 0 if none
+     */
+    public long getOldestInFlightAge() {
+        return inFlight == null || inFlight.isEmpty() ? 0 : inFlight.values().iterator().next();
+    }
+
+    @Override
+    public String toString() {
+        return JSON.toJSONString(this);
+    }
+}
@@ -1,136 +1,25 @@
 package com.wiseasy.ecr.hub.sdk;
 
-import cn.hutool.core.util.IdUtil;
-import com.wiseasy.ecr.hub.sdk.enums.ETopic;
 import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
-import com.wiseasy.ecr.hub.sdk.model.request.ECRHubRequest;
-import com.wiseasy.ecr.hub.sdk.model.response.ECRHubResponse;
-import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubProtobufHelper;
-import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubRequestProto;
+import com.wiseasy.ecr.hub.sdk.spi.serialport.JSerialCommTransport;
 import com.wiseasy.ecr.hub.sdk.spi.serialport.SerialPortEngine;
-import com.wiseasy.ecr.hub.sdk.spi.serialport.SerialPortPacket;
-import com.wiseasy.ecr.hub.sdk.utils.HexUtil;
-import com.wiseasy.ecr.hub.sdk.utils.NetHelper;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.util.Optional;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import com.wiseasy.ecr.hub.sdk.spi.serialport.SerialTransport;
+import com.wiseasy.ecr.hub.sdk.spi.transport.TransportContext;
 
 public class ECRHubSerialPortClient extends ECRHubAbstractClient {
 
-    private static final Logger log = LoggerFactory.getLogger(ECRHubSerialPortClient.class);
-
-    private final Lock lock = new ReentrantLock();
-    private final SerialPortEngine engine;
-    private volatile boolean isConnected = false;
-    private volatile boolean isPaired = false;
-
     public ECRHubSerialPortClient(String port, ECRHubConfig config) throws ECRHubException {
-        super(config);
-        this.engine = new SerialPortEngine(port, config.getSerialPortConfig());
-    }
-
-    @Override
-    public boolean connect() throws ECRHubException {
-        return connect2().isSuccess();
-    }
-
-    @Override
-    public ECRHubResponse connect2() throws ECRHubException {
-        lock.lock();
-        try {
-            log.info("Connecting...");
-            long startTime = System.currentTimeMillis();
-            int timeout = getConfig().getSerialPortConfig().getConnTimeout();
-            if (!isConnected) {
-                engine.connect(startTime, timeout);
-                isConnected = true;
-            }
-            ECRHubResponse response = doPair(startTime, timeout);
-            isPaired = response.isSuccess();
-            log.info("Connection successful");
-            return response;
-        } finally {
-            lock.unlock();
-        }
-    }
-
-    @Override
-    public boolean isConnected() throws ECRHubException {
-        return isConnected && isPaired;
+        this(JSerialCommTransport.create(port), config);
     }
 
-    @Override
-    public boolean disconnect() throws ECRHubException {
-        lock.lock();
-        try {
-            log.info("Disconnecting...");
-            boolean isClosed = engine.close();
-            if (isClosed) {
-                isConnected = false;
-                isPaired = false;
-                log.info("Disconnect successful");
-            }
-            return isClosed;
-        } finally {
-            lock.unlock();
-        }
+    /**
+     * Client over any serial transport, e.g. a {@link com.wiseasy.ecr.hub.sdk.spi.serialport.loopback.LoopbackSerialLink} end
+     */
+    public ECRHubSerialPortClient(SerialTransport transport, ECRHubConfig config) {
+        this(transport, new TransportContext(config));
     }
 
-    @Override
-    protected void sendReq(ECRHubRequest request) throws ECRHubException {
-        if (!isConnected()) {
-            throw new ECRHubException("The serial port is not connected.");
-        }
-        byte[] msg = ECRHubProtobufHelper.pack(getConfig(), request);
-        byte[] pack = new SerialPortPacket.MsgPacket(msg).encode();
-        log.debug("Send data packet:{}", HexUtil.byte2hex(pack));
-        engine.write(pack);
-    }
-
-    @Override
-    protected <T extends ECRHubResponse> T getResp(ECRHubRequest<T> request) throws ECRHubException {
-        ECRHubConfig config = request.getConfig();
-        long timeout = config != null ? config.getSerialPortConfig().getReadTimeout() : DEF_READ_TIMEOUT;
-        long startTime = System.currentTimeMillis();
-        byte[] respPack = engine.read(request.getMsg_id(), startTime, timeout);
-        return decodeRespPack(respPack, request.getResponseClass());
-    }
-
-    private ECRHubResponse doPair(long startTime, int timeout) throws ECRHubException {
-        log.info("Start pairing");
-        ECRHubRequestProto.ECRHubRequest request = buildPairRequest();
-        byte[] pack = new SerialPortPacket.MsgPacket(request.toByteArray()).encode();
-        log.debug("Send pairing packet:{}", HexUtil.byte2hex(pack));
-        engine.write(pack);
-
-        byte[] respPack = engine.read(request.getMsgId(), startTime, timeout);
-        ECRHubResponse response = decodeRespPack(respPack, ECRHubResponse.class);
-        if (response.isSuccess()) {
-            log.info("Successful pairing");
-            return response;
-        } else {
-            log.error("Failed pairing: {}", response.getError_msg());
-            throw new ECRHubException(response.getError_msg());
-        }
-    }
-
-    private ECRHubRequestProto.ECRHubRequest buildPairRequest() {
-        String deviceName = Optional.ofNullable(getConfig().getDeviceName()).orElse(NetHelper.getLocalHostName());
-        String aliasName = Optional.ofNullable(getConfig().getAliasName()).orElse(deviceName);
-        String macAddress = NetHelper.getLocalMacAddress();
-
-        return ECRHubRequestProto.ECRHubRequest.newBuilder()
-                .setTimestamp(String.valueOf(System.currentTimeMillis()))
-                .setMsgId(IdUtil.fastSimpleUUID())
-                .setTopic(ETopic.PAIR.getValue())
-                .setPairData(ECRHubRequestProto.RequestPairData.newBuilder()
-                            .setDeviceName(deviceName)
-                            .setAliasName(aliasName)
-                            .setMacAddress(macAddress)
-                            .build())
-                .build();
+    private ECRHubSerialPortClient(SerialTransport transport, TransportContext context) {
+        super(context, new SerialPortEngine(transport, context));
     }
-}
\ No newline at end of file
+}
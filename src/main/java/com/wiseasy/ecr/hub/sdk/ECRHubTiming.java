@@ -0,0 +1,145 @@
+package com.wiseasy.ecr.hub.sdk;
+
+import com.alibaba.fastjson2.JSON;
+
+/**
+ * Latency breakdown of one transaction.
+ *
+ * All times are local milliseconds. The terminal time of the response is converted to the local clock
+ * with the offset estimated from heartbeat exchanges, see {@link ECRHubAbstractClient#syncClock()}.
+ * Without an estimate only the queue and total time are known, the other parts are -1.
+ */
+public class ECRHubTiming {
+    /**
+     * Time the request was handed to the client
+     */
+    private long sendTime;
+    /**
+     * Time the request was written to the link, 0 if unknown
+     */
+    private volatile long writeTime;
+    /**
+     * Time the response was received
+     */
+    private long receiveTime;
+    /**
+     * Timestamp of the response on the terminal clock, 0 if unknown
+     */
+    private long terminalTime;
+    /**
+     * Terminal clock minus local clock, valid if clockSynced
+     */
+    private long clockOffset;
+    /**
+     * Round trip of the heartbeat the clock offset was estimated from
+     */
+    private long clockRoundTrip = -1;
+    private boolean clockSynced;
+
+    final long sendNanos = System.nanoTime();
+
+    ECRHubTiming() {
+        this.sendTime = System.currentTimeMillis();
+    }
+
+    void onWritten() {
+        if (writeTime == 0) {
+            writeTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Time the request waited in the client before it was written, -1 if unknown
+     */
+    public long getQueueTime() {
+        return writeTime > 0 ? writeTime - sendTime : -1;
+    }
+
+    /**
+     * Time the terminal took from receiving the request to stamping the response, -1 if unknown
+     */
+    public long getProcessingTime() {
+        if (!clockSynced || terminalTime <= 0 || writeTime <= 0 || receiveTime <= 0) {
+            return -1;
+        }
+        long wire = receiveTime - writeTime;
+        long processing = terminalTime - clockOffset - writeTime - clockRoundTrip / 2;
+        return Math.max(0, Math.min(processing, wire));
+    }
+
+    /**
+     * Time spent on the link in both directions, -1 if unknown
+     */
+    public long getLinkTime() {
+        long processing = getProcessingTime();
+        return processing < 0 ? -1 : receiveTime - writeTime - processing;
+    }
+
+    /**
+     * Time from handing the request to the client to receiving its response
+     */
+    public long getTotalTime() {
+        return receiveTime > 0 ? receiveTime - sendTime : -1;
+    }
+
+    public long getSendTime() {
+        return sendTime;
+    }
+
+    public void setSendTime(long sendTime) {
+        this.sendTime = sendTime;
+    }
+
+    public long getWriteTime() {
+        return writeTime;
+    }
+
+    public void setWriteTime(long writeTime) {
+        this.writeTime = writeTime;
+    }
+
+    public long getReceiveTime() {
+        return receiveTime;
+    }
+
+    public void setReceiveTime(long receiveTime) {
+        this.receiveTime = receiveTime;
+    }
+
+    public long getTerminalTime() {
+        return terminalTime;
+    }
+
+    public void setTerminalTime(long terminalTime) {
+        this.terminalTime = terminalTime;
+    }
+
+    public long getClockOffset() {
+        return clockOffset;
+    }
+
+    public void setClockOffset(long clockOffset) {
+        this.clockOffset = clockOffset;
+    }
+
+    public long getClockRoundTrip() {
+        return clockRoundTrip;
+    }
+
+    public void setClockRoundTrip(long clockRoundTrip) {
+        this.clockRoundTrip = clockRoundTrip;
+    }
+
+    public boolean isClockSynced() {
+        return clockSynced;
+    }
+
+    public void setClockSynced(boolean clockSynced) {
+        this.clockSynced = clockSynced;
+    }
+
+    @Override
+    public String toString() {
+        return JSON.toJSONString(this);
+    }
+}
@@ -0,0 +1,19 @@
+package com.wiseasy.ecr.hub.sdk;
+
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.spi.transport.TransportContext;
+import com.wiseasy.ecr.hub.sdk.spi.transport.Transports;
+
+/**
+ * Client over the transport registered for the scheme of a URL, see {@link com.wiseasy.ecr.hub.sdk.spi.transport.TransportProvider}
+ */
+public class ECRHubTransportClient extends ECRHubAbstractClient {
+
+    public ECRHubTransportClient(String url, ECRHubConfig config) throws ECRHubException {
+        this(url, new TransportContext(config));
+    }
+
+    private ECRHubTransportClient(String url, TransportContext context) throws ECRHubException {
+        super(context, Transports.create(url, context));
+    }
+}
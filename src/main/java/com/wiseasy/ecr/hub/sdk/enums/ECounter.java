@@ -0,0 +1,39 @@
+package com.wiseasy.ecr.hub.sdk.enums;
+
+/**
+ * Counters recorded through the metrics SPI
+ */
+public enum ECounter {
+    /**
+     * Requests whose response timed out
+     */
+    TIMEOUTS,
+    /**
+     * Requests that failed with any other error
+     */
+    ERRORS,
+    FRAMES_IN,
+    FRAMES_OUT,
+    BYTES_IN,
+    BYTES_OUT,
+    /**
+     * Serial packets dropped for a wrong check code
+     */
+    CHECKSUM_FAILURES,
+    /**
+     * Serial packet heads dropped because no tail ended the packet at the length they gave
+     */
+    FRAMING_ERRORS,
+    /**
+     * Responses dropped from the response table before anyone read them
+     */
+    EVICTIONS,
+    /**
+     * TLS handshakes, full or resumed
+     */
+    TLS_HANDSHAKES,
+    /**
+     * TLS handshakes that resumed a cached session
+     */
+    TLS_RESUMPTIONS
+}
@@ -0,0 +1,15 @@
+package com.wiseasy.ecr.hub.sdk.enums;
+
+/**
+ * Direction of a wire frame, seen from the ECR side
+ */
+public enum EDirection {
+    /**
+     * Received from the terminal
+     */
+    INBOUND,
+    /**
+     * Sent to the terminal
+     */
+    OUTBOUND
+}
@@ -0,0 +1,24 @@
+package com.wiseasy.ecr.hub.sdk.enums;
+
+/**
+ * Flight Recorder events emitted by the SDK on Java 11+
+ */
+public enum EEvent {
+    FRAME_WRITE,
+    FRAME_READ,
+    /**
+     * From writing a serial data packet to receiving its ACK packet
+     */
+    ACK,
+    HANDSHAKE,
+    PAIRING,
+    /**
+     * Request encoding, including the transport framing
+     */
+    ENCODE,
+    DECODE,
+    /**
+     * A response wait that timed out
+     */
+    TIMEOUT
+}
@@ -0,0 +1,39 @@
+package com.wiseasy.ecr.hub.sdk.enums;
+
+/**
+ * Latencies recorded through the metrics SPI, in nanoseconds
+ */
+public enum EMetric {
+    /**
+     * Time a frame waited in the outbound scheduler
+     */
+    QUEUE_WAIT,
+    /**
+     * Time spent writing a frame to the link
+     */
+    WRITE,
+    /**
+     * Time from writing a serial data packet to receiving its ACK packet
+     */
+    ACK,
+    /**
+     * Time spent on a TLS handshake, full or resumed
+     */
+    TLS_HANDSHAKE,
+    /**
+     * Time from sending a request to receiving its response
+     */
+    RESPONSE,
+    /**
+     * Time spent decoding a response
+     */
+    DECODE,
+    /**
+     * Time a response spent on the link in both directions, needs a clock offset estimate
+     */
+    LINK,
+    /**
+     * Time the terminal took to answer a request, needs a clock offset estimate
+     */
+    TERMINAL
+}
@@ -0,0 +1,41 @@
+package com.wiseasy.ecr.hub.sdk.enums;
+
+/**
+ * Outbound priority class, a lower ordinal is written first
+ */
+public enum EPriority {
+    /**
+     * Link-level control frames (ACK, heartbeat), written through the fast lane
+     */
+    CONTROL,
+    /**
+     * Time-critical requests: pair, query, close
+     */
+    URGENT,
+    /**
+     * Payment requests
+     */
+    PAYMENT,
+    /**
+     * Requests that only carry voice, print or notify data, requests of other topics,
+     * and requests set to it by the caller
+     */
+    BACKGROUND;
+
+    /**
+     * Priority class of a request topic, see ECRHubRequest#getPriority() for the class of a request
+     */
+    public static EPriority topicOf(String topic) {
+        if (ETopic.PAY_ORDER.getValue().equals(topic)) {
+            return PAYMENT;
+        }
+        if (ETopic.PAIR.getValue().equals(topic)
+                || ETopic.INIT.getValue().equals(topic)
+                || ETopic.HEARTBEAT.getValue().equals(topic)
+                || ETopic.QUERY_ORDER.getValue().equals(topic)
+                || ETopic.CLOSE_ORDER.getValue().equals(topic)) {
+            return URGENT;
+        }
+        return BACKGROUND;
+    }
+}
@@ -0,0 +1,19 @@
+package com.wiseasy.ecr.hub.sdk.enums;
+
+/**
+ * What the outbound scheduler does when the queue of a priority class is full
+ */
+public enum ERejectPolicy {
+    /**
+     * Fail the new request with ECRHubRejectedException
+     */
+    ABORT,
+    /**
+     * Drop the oldest queued frame of the same priority class, its caller fails at once with ECRHubRejectedException
+     */
+    DISCARD_OLDEST,
+    /**
+     * Wait for free space until the request deadline, then fail with ECRHubRejectedException
+     */
+    BLOCK
+}
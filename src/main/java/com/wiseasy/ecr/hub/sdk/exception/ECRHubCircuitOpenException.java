@@ -0,0 +1,12 @@
+package com.wiseasy.ecr.hub.sdk.exception;
+
+public class ECRHubCircuitOpenException extends ECRHubException {
+
+    public ECRHubCircuitOpenException() {
+        super();
+    }
+
+    public ECRHubCircuitOpenException(String message) {
+        super(message);
+    }
+}
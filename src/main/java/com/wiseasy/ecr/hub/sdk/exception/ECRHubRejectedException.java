@@ -0,0 +1,12 @@
+package com.wiseasy.ecr.hub.sdk.exception;
+
+public class ECRHubRejectedException extends ECRHubException {
+
+    public ECRHubRejectedException() {
+        super();
+    }
+
+    public ECRHubRejectedException(String message) {
+        super(message);
+    }
+}
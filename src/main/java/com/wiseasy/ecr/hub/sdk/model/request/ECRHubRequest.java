@@ -1,15 +1,30 @@
 package com.wiseasy.ecr.hub.sdk.model.request;
 
 import cn.hutool.core.util.ClassUtil;
-import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
 import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONWriter;
 import com.alibaba.fastjson2.annotation.JSONField;
+import com.alibaba.fastjson2.annotation.JSONType;
 import com.wiseasy.ecr.hub.sdk.ECRHubConfig;
+import com.wiseasy.ecr.hub.sdk.enums.EPriority;
 import com.wiseasy.ecr.hub.sdk.model.response.ECRHubResponse;
-
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubRequestEncoder;
+import com.wiseasy.ecr.hub.sdk.spi.DefaultMsgIdGenerator;
+import com.wiseasy.ecr.hub.sdk.spi.MsgIdGenerator;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serialized to JSON from its fields, not its getters, so that printing a request neither creates
+ * the lazy voice, printer and notify data nor assigns a message ID
+ */
+@JSONType(serializeFeatures = JSONWriter.Feature.FieldBased)
 public abstract class ECRHubRequest<T extends ECRHubResponse> {
 
+    private static final Map<Class<?>, Class<?>> RESPONSE_CLASSES = new ConcurrentHashMap<>();
+
     /**
      * Message ID, used to receive the corresponding response. The caller needs to remain unique.
      */
@@ -24,22 +39,32 @@ public abstract class ECRHubRequest<T extends ECRHubResponse> {
      * Voice data object
      */
     @JSONField(name = "voiceData")
-    private VoiceData voice_data = new VoiceData();
+    private VoiceData voice_data;
     /**
      * Printer data object
      */
     @JSONField(name = "printerData")
-    private PrinterData printer_data = new PrinterData();
+    private PrinterData printer_data;
     /**
      * Notify data object
      */
     @JSONField(name = "notifyData")
-    private NotifyData notify_data = new NotifyData();
+    private NotifyData notify_data;
 
+    @JSONField(serialize = false)
     private ECRHubConfig config;
+    /**
+     * Outbound priority class, derived from the request if not set, see {@link #getPriority()}
+     */
+    @JSONField(serialize = false)
+    private EPriority priority;
 
     public Class<T> getResponseClass() {
-        return (Class<T>) ClassUtil.getTypeArgument(getClass());
+        Class<?> responseClass = RESPONSE_CLASSES.get(getClass());
+        if (responseClass == null) {
+            responseClass = RESPONSE_CLASSES.computeIfAbsent(getClass(), ClassUtil::getTypeArgument);
+        }
+        return (Class<T>) responseClass;
     }
 
     public abstract String getTopic();
@@ -52,13 +77,39 @@ public abstract class ECRHubRequest<T extends ECRHubResponse> {
         this.config = config;
     }
 
+    /**
+     * Outbound priority class. Unless set, a request that only carries voice, printer or notify data
+     * is {@link EPriority#BACKGROUND}, the others are classed by their topic
+     */
+    public EPriority getPriority() {
+        if (priority != null) {
+            return priority;
+        }
+        if ((hasVoice_data() || hasPrinter_data() || hasNotify_data()) && !ECRHubRequestEncoder.hasBizData(this)) {
+            return EPriority.BACKGROUND;
+        }
+        return EPriority.topicOf(getTopic());
+    }
+
+    /**
+     * Override the priority class, e.g. {@link EPriority#BACKGROUND} for a request that may wait behind payments
+     */
+    public void setPriority(EPriority priority) {
+        this.priority = priority;
+    }
+
     public String getMsg_id() {
         if (StrUtil.isBlank(msg_id)) {
-            msg_id = IdUtil.fastSimpleUUID();
+            MsgIdGenerator generator = config != null ? config.getMsgIdGenerator() : null;
+            msg_id = (generator != null ? generator : DefaultMsgIdGenerator.getInstance()).nextId();
         }
         return msg_id;
     }
 
+    public boolean hasMsg_id() {
+        return StrUtil.isNotBlank(msg_id);
+    }
+
     public void setMsg_id(String msg_id) {
         this.msg_id = msg_id;
     }
@@ -71,26 +122,56 @@ public abstract class ECRHubRequest<T extends ECRHubResponse> {
         this.version = version;
     }
 
+    /**
+     * Created on first access, use {@link #hasVoice_data()} to check whether it was set
+     */
     public VoiceData getVoice_data() {
+        if (voice_data == null) {
+            voice_data = new VoiceData();
+        }
         return voice_data;
     }
 
+    public boolean hasVoice_data() {
+        return voice_data != null;
+    }
+
     public void setVoice_data(VoiceData voice_data) {
         this.voice_data = voice_data;
     }
 
+    /**
+     * Created on first access, use {@link #hasPrinter_data()} to check whether it was set
+     */
     public PrinterData getPrinter_data() {
+        if (printer_data == null) {
+            printer_data = new PrinterData();
+        }
         return printer_data;
     }
 
+    public boolean hasPrinter_data() {
+        return printer_data != null;
+    }
+
     public void setPrinter_data(PrinterData printer_data) {
         this.printer_data = printer_data;
     }
 
+    /**
+     * Created on first access, use {@link #hasNotify_data()} to check whether it was set
+     */
     public NotifyData getNotify_data() {
+        if (notify_data == null) {
+            notify_data = new NotifyData();
+        }
         return notify_data;
     }
 
+    public boolean hasNotify_data() {
+        return notify_data != null;
+    }
+
     public void setNotify_data(NotifyData notify_data) {
         this.notify_data = notify_data;
     }
@@ -228,7 +309,6 @@ public abstract class ECRHubRequest<T extends ECRHubResponse> {
         public void setSound(String sound) {
             this.sound = sound;
         }
-
     }
 
     @Override
@@ -0,0 +1,15 @@
+package com.wiseasy.ecr.hub.sdk.model.request;
+
+import com.wiseasy.ecr.hub.sdk.enums.ETopic;
+import com.wiseasy.ecr.hub.sdk.model.response.ECRHubResponse;
+
+/**
+ * Application level heartbeat, the timestamp of its response is used to estimate the terminal clock offset
+ */
+public class HeartbeatRequest extends ECRHubRequest<ECRHubResponse> {
+
+    @Override
+    public String getTopic() {
+        return ETopic.HEARTBEAT.getValue();
+    }
+}
@@ -2,6 +2,7 @@ package com.wiseasy.ecr.hub.sdk.model.response;
 
 import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.annotation.JSONField;
+import com.wiseasy.ecr.hub.sdk.ECRHubTiming;
 
 public class ECRHubResponse {
     /**
@@ -24,6 +25,11 @@ public class ECRHubResponse {
      */
     @JSONField(name = "deviceData")
     private DeviceData device_data;
+    /**
+     * Latency breakdown of the transaction, not part of the message
+     */
+    @JSONField(serialize = false)
+    private ECRHubTiming timing;
 
     public String getMsg_id() {
         return msg_id;
@@ -57,6 +63,14 @@ public class ECRHubResponse {
         this.device_data = device_data;
     }
 
+    public ECRHubTiming getTiming() {
+        return timing;
+    }
+
+    public void setTiming(ECRHubTiming timing) {
+        this.timing = timing;
+    }
+
     /**
      * Device data object
      */
@@ -0,0 +1,315 @@
+package com.wiseasy.ecr.hub.sdk.model.response;
+
+import cn.hutool.core.util.StrUtil;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import com.wiseasy.ecr.hub.sdk.ECRHubTiming;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.model.response.ECRHubResponse.DeviceData;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseDecoder;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto.ResponseBizData;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto.ResponseDeviceData;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Lightweight response view backed by the received ECRHubResponse bytes.
+ *
+ * Only the field offsets of the top-level message are indexed up front. String fields are decoded,
+ * and biz_data, device_data and extends_params are parsed, when they are first accessed.
+ * Instances are not thread-safe.
+ */
+public class ECRHubResponseView {
+
+    private static final int EXTENDS_PARAMS_KEY = 1;
+    private static final int EXTENDS_PARAMS_VALUE = 2;
+
+    private final byte[] bytes;
+    private final FieldIndex index;
+    private boolean success;
+
+    private String msgId;
+    private String errorMsg;
+    private FieldIndex bizIndex;
+    private String[] bizStrings;
+    private ResponseBizData bizData;
+    private DeviceData deviceData;
+    private Map<String, String> extendsParams;
+    private ECRHubTiming timing;
+
+    public ECRHubResponseView(byte[] bytes) throws ECRHubException {
+        this.bytes = bytes;
+        this.index = new FieldIndex(ECRHubResponseProto.ECRHubResponse.DEVICE_DATA_FIELD_NUMBER);
+        try {
+            CodedInputStream input = CodedInputStream.newInstance(bytes);
+            int tag;
+            while ((tag = input.readTag()) != 0) {
+                if (WireFormat.getTagFieldNumber(tag) == ECRHubResponseProto.ECRHubResponse.SUCCESS_FIELD_NUMBER
+                        && WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_VARINT) {
+                    success = input.readBool();
+                } else {
+                    index.scan(input, tag, 0);
+                }
+            }
+        } catch (IOException e) {
+            throw new ECRHubException("Invalid ProtocolBuffer Message:", e);
+        }
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Latency breakdown of the transaction
+     */
+    public ECRHubTiming getTiming() {
+        return timing;
+    }
+
+    public void setTiming(ECRHubTiming timing) {
+        this.timing = timing;
+    }
+
+    public String getMsg_id() {
+        if (msgId == null) {
+            msgId = StrUtil.nullToEmpty(index.string(bytes, ECRHubResponseProto.ECRHubResponse.MSG_ID_FIELD_NUMBER));
+        }
+        return msgId;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getError_msg() {
+        if (errorMsg == null) {
+            errorMsg = StrUtil.nullToEmpty(index.string(bytes, ECRHubResponseProto.ECRHubResponse.ERRORMSG_FIELD_NUMBER));
+        }
+        return errorMsg;
+    }
+
+    public String getTopic() {
+        return StrUtil.nullToEmpty(index.string(bytes, ECRHubResponseProto.ECRHubResponse.TOPIC_FIELD_NUMBER));
+    }
+
+    public String getTimestamp() {
+        return StrUtil.nullToEmpty(index.string(bytes, ECRHubResponseProto.ECRHubResponse.TIMESTAMP_FIELD_NUMBER));
+    }
+
+    public DeviceData getDevice_data() throws ECRHubException {
+        if (deviceData == null) {
+            try {
+                int field = ECRHubResponseProto.ECRHubResponse.DEVICE_DATA_FIELD_NUMBER;
+                ResponseDeviceData proto = index.has(field)
+                        ? ResponseDeviceData.parseFrom(CodedInputStream.newInstance(bytes, index.offset(field), index.length(field)))
+                        : ResponseDeviceData.getDefaultInstance();
+                deviceData = ECRHubResponseDecoder.decodeDeviceData(proto);
+            } catch (IOException e) {
+                throw new ECRHubException("Invalid ProtocolBuffer Message:", e);
+            }
+        }
+        return deviceData;
+    }
+
+    /**
+     * The full biz_data message, parsed on first access
+     */
+    public ResponseBizData getBiz_data() throws ECRHubException {
+        if (bizData == null) {
+            try {
+                int field = ECRHubResponseProto.ECRHubResponse.BIZ_DATA_FIELD_NUMBER;
+                bizData = index.has(field)
+                        ? ResponseBizData.parseFrom(CodedInputStream.newInstance(bytes, index.offset(field), index.length(field)))
+                        : ResponseBizData.getDefaultInstance();
+            } catch (IOException e) {
+                throw new ECRHubException("Invalid ProtocolBuffer Message:", e);
+            }
+        }
+        return bizData;
+    }
+
+    public String getMerchant_order_no() throws ECRHubException {
+        return bizString(ResponseBizData.MERCHANT_ORDER_NO_FIELD_NUMBER);
+    }
+
+    public String getOrder_amount() throws ECRHubException {
+        return bizString(ResponseBizData.ORDER_AMOUNT_FIELD_NUMBER);
+    }
+
+    public String getTrans_no() throws ECRHubException {
+        return bizString(ResponseBizData.TRANS_NO_FIELD_NUMBER);
+    }
+
+    public String getPrice_currency() throws ECRHubException {
+        return bizString(ResponseBizData.PRICE_CURRENCY_FIELD_NUMBER);
+    }
+
+    public String getTrans_type() throws ECRHubException {
+        return bizString(ResponseBizData.TRANS_TYPE_FIELD_NUMBER);
+    }
+
+    public String getPay_scenario() throws ECRHubException {
+        return bizString(ResponseBizData.PAY_SCENARIO_FIELD_NUMBER);
+    }
+
+    public String getTrans_status() throws ECRHubException {
+        return bizString(ResponseBizData.TRANS_STATUS_FIELD_NUMBER);
+    }
+
+    public String getPay_channel_trans_no() throws ECRHubException {
+        return bizString(ResponseBizData.PAY_CHANNEL_TRANS_NO_FIELD_NUMBER);
+    }
+
+    public String getPay_user_account_id() throws ECRHubException {
+        return bizString(ResponseBizData.PAY_USER_ACCOUNT_ID_FIELD_NUMBER);
+    }
+
+    public String getPaid_amount() throws ECRHubException {
+        return bizString(ResponseBizData.PAID_AMOUNT_FIELD_NUMBER);
+    }
+
+    public String getTrans_end_time() throws ECRHubException {
+        return bizString(ResponseBizData.TRANS_END_TIME_FIELD_NUMBER);
+    }
+
+    public String getPay_method_id() throws ECRHubException {
+        return bizString(ResponseBizData.PAY_METHOD_ID_FIELD_NUMBER);
+    }
+
+    /**
+     * biz_data.extends_params, parsed on first access
+     */
+    public Map<String, String> getExtends_params() throws ECRHubException {
+        if (extendsParams == null) {
+            if (bizData != null) {
+                extendsParams = bizData.getExtendsParamsMap();
+            } else {
+                extendsParams = parseExtendsParams();
+            }
+        }
+        return extendsParams;
+    }
+
+    /**
+     * Materialize a full response object, equivalent to ECRHubClient#execute
+     */
+    public <T extends ECRHubResponse> T toResponse(Class<T> respClass) throws ECRHubException {
+        try {
+            T resp = ECRHubResponseDecoder.decode(ECRHubResponseProto.ECRHubResponse.parseFrom(bytes), respClass);
+            resp.setTiming(timing);
+            return resp;
+        } catch (IOException e) {
+            throw new ECRHubException("Invalid ProtocolBuffer Message:", e);
+        }
+    }
+
+    /**
+     * A string field of biz_data, empty if absent like the protobuf getters
+     */
+    private String bizString(int fieldNumber) throws ECRHubException {
+        if (bizIndex == null) {
+            bizIndex = new FieldIndex(ResponseBizData.EXTENDS_PARAMS_FIELD_NUMBER);
+            bizStrings = new String[ResponseBizData.EXTENDS_PARAMS_FIELD_NUMBER + 1];
+            int field = ECRHubResponseProto.ECRHubResponse.BIZ_DATA_FIELD_NUMBER;
+            if (index.has(field)) {
+                try {
+                    CodedInputStream input = CodedInputStream.newInstance(bytes, index.offset(field), index.length(field));
+                    int tag;
+                    while ((tag = input.readTag()) != 0) {
+                        bizIndex.scan(input, tag, index.offset(field));
+                    }
+                } catch (IOException e) {
+                    throw new ECRHubException("Invalid ProtocolBuffer Message:", e);
+                }
+            }
+        }
+        if (bizStrings[fieldNumber] == null) {
+            bizStrings[fieldNumber] = StrUtil.nullToEmpty(bizIndex.string(bytes, fieldNumber));
+        }
+        return bizStrings[fieldNumber];
+    }
+
+    private Map<String, String> parseExtendsParams() throws ECRHubException {
+        int field = ECRHubResponseProto.ECRHubResponse.BIZ_DATA_FIELD_NUMBER;
+        if (!index.has(field)) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> params = new LinkedHashMap<>();
+        try {
+            CodedInputStream input = CodedInputStream.newInstance(bytes, index.offset(field), index.length(field));
+            int tag;
+            while ((tag = input.readTag()) != 0) {
+                if (WireFormat.getTagFieldNumber(tag) != ResponseBizData.EXTENDS_PARAMS_FIELD_NUMBER) {
+                    input.skipField(tag);
+                    continue;
+                }
+                int limit = input.pushLimit(input.readRawVarint32());
+                String key = "";
+                String value = "";
+                int entryTag;
+                while ((entryTag = input.readTag()) != 0) {
+                    int entryField = WireFormat.getTagFieldNumber(entryTag);
+                    if (entryField == EXTENDS_PARAMS_KEY) {
+                        key = input.readStringRequireUtf8();
+                    } else if (entryField == EXTENDS_PARAMS_VALUE) {
+                        value = input.readStringRequireUtf8();
+                    } else {
+                        input.skipField(entryTag);
+                    }
+                }
+                input.popLimit(limit);
+                params.put(key, value);
+            }
+        } catch (IOException e) {
+            throw new ECRHubException("Invalid ProtocolBuffer Message:", e);
+        }
+        return params;
+    }
+
+    /**
+     * Offsets of the length-delimited fields of one message, indexed by field number
+     */
+    private static class FieldIndex {
+        private final int[] offsets;
+        private final int[] lengths;
+
+        private FieldIndex(int maxFieldNumber) {
+            this.offsets = new int[maxFieldNumber + 1];
+            this.lengths = new int[maxFieldNumber + 1];
+        }
+
+        private void scan(CodedInputStream input, int tag, int base) throws IOException {
+            int field = WireFormat.getTagFieldNumber(tag);
+            if (field < offsets.length && WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                int length = input.readRawVarint32();
+                offsets[field] = base + input.getTotalBytesRead();
+                lengths[field] = length;
+                input.skipRawBytes(length);
+            } else {
+                input.skipField(tag);
+            }
+        }
+
+        private boolean has(int field) {
+            return lengths[field] > 0;
+        }
+
+        private int offset(int field) {
+            return offsets[field];
+        }
+
+        private int length(int field) {
+            return lengths[field];
+        }
+
+        private String string(byte[] bytes, int field) {
+            return has(field) ? new String(bytes, offsets[field], lengths[field], StandardCharsets.UTF_8) : null;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.wiseasy.ecr.hub.sdk.protobuf;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+
+import java.io.IOException;
+
+/**
+ * Per-thread request encoding state.
+ *
+ * Hands out cleared, reused protobuf builders and serializes messages into a growable buffer
+ * that is kept between requests, with room reserved in front and behind for the transport framing.
+ * The builders returned are only valid until the next call on the same thread.
+ */
+public class ECRHubEncodeContext {
+
+    private static final int INITIAL_CAPACITY = 512;
+    /**
+     * Buffers above this size are not kept, so one large message does not pin memory per thread
+     */
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<ECRHubEncodeContext> CONTEXT = ThreadLocal.withInitial(ECRHubEncodeContext::new);
+
+    private final ECRHubRequestProto.ECRHubRequest.Builder request = ECRHubRequestProto.ECRHubRequest.newBuilder();
+    private final ECRHubRequestProto.RequestBizData.Builder bizData = ECRHubRequestProto.RequestBizData.newBuilder();
+    private final ECRHubRequestProto.VoiceData.Builder voiceData = ECRHubRequestProto.VoiceData.newBuilder();
+    private final ECRHubRequestProto.PrinterData.Builder printerData = ECRHubRequestProto.PrinterData.newBuilder();
+    private final ECRHubRequestProto.NotifyData.Builder notifyData = ECRHubRequestProto.NotifyData.newBuilder();
+    private final ECRHubRequestProto.RequestPairData.Builder pairData = ECRHubRequestProto.RequestPairData.newBuilder();
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+
+    private ECRHubEncodeContext() {
+    }
+
+    public static ECRHubEncodeContext get() {
+        return CONTEXT.get();
+    }
+
+    public ECRHubRequestProto.ECRHubRequest.Builder requestBuilder() {
+        return request.clear();
+    }
+
+    public ECRHubRequestProto.RequestBizData.Builder bizDataBuilder() {
+        return bizData.clear();
+    }
+
+    public ECRHubRequestProto.VoiceData.Builder voiceDataBuilder() {
+        return voiceData.clear();
+    }
+
+    public ECRHubRequestProto.PrinterData.Builder printerDataBuilder() {
+        return printerData.clear();
+    }
+
+    public ECRHubRequestProto.NotifyData.Builder notifyDataBuilder() {
+        return notifyData.clear();
+    }
+
+    public ECRHubRequestProto.RequestPairData.Builder pairDataBuilder() {
+        return pairData.clear();
+    }
+
+    /**
+     * Serialize a message into {@link #buffer()} at offset headroom, keeping tailroom free bytes after it
+     *
+     * @return The serialized length of the message
+     */
+    public int write(MessageLite message, int headroom, int tailroom) throws IOException {
+        int length = message.getSerializedSize();
+        int required = headroom + length + tailroom;
+        if (buffer.length < required) {
+            buffer = new byte[Math.max(required, Math.min(buffer.length * 2, MAX_RETAINED_CAPACITY))];
+        }
+        CodedOutputStream output = CodedOutputStream.newInstance(buffer, headroom, length);
+        message.writeTo(output);
+        output.checkNoSpaceLeft();
+        return length;
+    }
+
+    /**
+     * The buffer written by the last {@link #write(MessageLite, int, int)}
+     */
+    public byte[] buffer() {
+        byte[] current = buffer;
+        if (current.length > MAX_RETAINED_CAPACITY) {
+            buffer = new byte[INITIAL_CAPACITY];
+        }
+        return current;
+    }
+}
@@ -1,7 +1,7 @@
 package com.wiseasy.ecr.hub.sdk.protobuf;
 
-import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.JSONObject;
+import com.google.protobuf.MessageLite;
 import com.google.protobuf.MessageOrBuilder;
 import com.google.protobuf.util.JsonFormat;
 import com.wiseasy.ecr.hub.sdk.ECRHubConfig;
@@ -10,22 +10,58 @@ import com.wiseasy.ecr.hub.sdk.model.request.ECRHubRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.util.Arrays;
+
 public class ECRHubProtobufHelper {
 
     private static final Logger log = LoggerFactory.getLogger(ECRHubProtobufHelper.class);
 
-    public static byte[] pack(ECRHubConfig config, ECRHubRequest request) throws ECRHubException {
-        return ECRHubRequestProto.ECRHubRequest.newBuilder()
+    public static byte[] pack(ECRHubConfig config, ECRHubRequest<?> request) throws ECRHubException {
+        ECRHubEncodeContext context = ECRHubEncodeContext.get();
+        int length = write(context, build(context, config, request), 0, 0);
+        return Arrays.copyOf(context.buffer(), length);
+    }
+
+    /**
+     * Build the request message with the reused builders of the encode context
+     */
+    public static ECRHubRequestProto.ECRHubRequest build(ECRHubEncodeContext context, ECRHubConfig config, ECRHubRequest<?> request) throws ECRHubException {
+        ECRHubRequestProto.ECRHubRequest.Builder builder = context.requestBuilder()
                 .setTimestamp(String.valueOf(System.currentTimeMillis()))
                 .setMsgId(request.getMsg_id())
                 .setVersion(request.getVersion())
                 .setAppId(config.getAppId())
-                .setTopic(request.getTopic())
-                .setBizData(buildBizData(request))
-                .setVoiceData(buildVoiceData(request))
-                .setPrinterData(buildPrintData(request))
-                .setNotifyData(buildNotifyData(request))
-                .build().toByteArray();
+                .setTopic(request.getTopic());
+        try {
+            builder.setBizData(ECRHubRequestEncoder.mergeBizData(request, context.bizDataBuilder()));
+            // Unset sub-messages are left out of the wire message, set but empty ones are sent empty
+            if (request.hasVoice_data()) {
+                builder.setVoiceData(ECRHubRequestEncoder.mergeVoiceData(request.getVoice_data(), context.voiceDataBuilder()));
+            }
+            if (request.hasPrinter_data()) {
+                builder.setPrinterData(ECRHubRequestEncoder.mergePrinterData(request.getPrinter_data(), context.printerDataBuilder()));
+            }
+            if (request.hasNotify_data()) {
+                builder.setNotifyData(ECRHubRequestEncoder.mergeNotifyData(request.getNotify_data(), context.notifyDataBuilder()));
+            }
+        } catch (Exception e) {
+            log.error("Build Request Error:", e);
+            throw new ECRHubException("Build Request Error:", e);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Serialize a message into the encode context buffer, see {@link ECRHubEncodeContext#write(MessageLite, int, int)}
+     */
+    public static int write(ECRHubEncodeContext context, MessageLite message, int headroom, int tailroom) throws ECRHubException {
+        try {
+            return context.write(message, headroom, tailroom);
+        } catch (IOException e) {
+            log.error("Encode Request Error:", e);
+            throw new ECRHubException("Encode Request Error:", e);
+        }
     }
 
     public static ECRHubResponseProto.ECRHubResponse unpack(byte[] pack) throws ECRHubException {
@@ -47,44 +83,40 @@ public class ECRHubProtobufHelper {
         }
     }
 
-    public static ECRHubRequestProto.RequestBizData buildBizData(ECRHubRequest request) throws ECRHubException {
+    public static ECRHubRequestProto.RequestBizData buildBizData(ECRHubRequest<?> request) throws ECRHubException {
         try {
             ECRHubRequestProto.RequestBizData.Builder builder = ECRHubRequestProto.RequestBizData.newBuilder();
-            JsonFormat.parser().ignoringUnknownFields().merge(JSON.toJSONString(request), builder);
-            return builder.build();
+            return ECRHubRequestEncoder.mergeBizData(request, builder).build();
         } catch (Exception e) {
             log.error("Build BizData Error:", e);
             throw new ECRHubException("Build BizData Error:", e);
         }
     }
 
-    public static ECRHubRequestProto.VoiceData buildVoiceData(ECRHubRequest request) throws ECRHubException {
+    public static ECRHubRequestProto.VoiceData buildVoiceData(ECRHubRequest<?> request) throws ECRHubException {
         try {
             ECRHubRequestProto.VoiceData.Builder builder = ECRHubRequestProto.VoiceData.newBuilder();
-            JsonFormat.parser().ignoringUnknownFields().merge(JSON.toJSONString(request.getVoice_data()), builder);
-            return builder.build();
+            return ECRHubRequestEncoder.mergeVoiceData(request.hasVoice_data() ? request.getVoice_data() : null, builder).build();
         } catch (Exception e) {
             log.error("Build VoiceData Error:", e);
             throw new ECRHubException("Build VoiceData Error:", e);
         }
     }
 
-    public static ECRHubRequestProto.PrinterData buildPrintData(ECRHubRequest request) throws ECRHubException {
+    public static ECRHubRequestProto.PrinterData buildPrintData(ECRHubRequest<?> request) throws ECRHubException {
         try {
             ECRHubRequestProto.PrinterData.Builder builder = ECRHubRequestProto.PrinterData.newBuilder();
-            JsonFormat.parser().ignoringUnknownFields().merge(JSON.toJSONString(request.getPrinter_data()), builder);
-            return builder.build();
+            return ECRHubRequestEncoder.mergePrinterData(request.hasPrinter_data() ? request.getPrinter_data() : null, builder).build();
         } catch (Exception e) {
             log.error("Build PrinterData Error:", e);
             throw new ECRHubException("Build PrinterData Error:", e);
         }
     }
 
-    public static ECRHubRequestProto.NotifyData buildNotifyData(ECRHubRequest request) throws ECRHubException {
+    public static ECRHubRequestProto.NotifyData buildNotifyData(ECRHubRequest<?> request) throws ECRHubException {
         try {
             ECRHubRequestProto.NotifyData.Builder builder = ECRHubRequestProto.NotifyData.newBuilder();
-            JsonFormat.parser().ignoringUnknownFields().merge(JSON.toJSONString(request.getNotify_data()), builder);
-            return builder.build();
+            return ECRHubRequestEncoder.mergeNotifyData(request.hasNotify_data() ? request.getNotify_data() : null, builder).build();
         } catch (Exception e) {
             log.error("Build NotifyData Error:", e);
             throw new ECRHubException("Build NotifyData Error:", e);
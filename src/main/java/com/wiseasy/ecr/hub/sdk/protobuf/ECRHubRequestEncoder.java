@@ -0,0 +1,171 @@
+package com.wiseasy.ecr.hub.sdk.protobuf;
+
+import com.alibaba.fastjson2.annotation.JSONField;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubRequestProto.NotifyData;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubRequestProto.PrinterData;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubRequestProto.RequestBizData;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubRequestProto.VoiceData;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Copies request POJO fields straight into the protobuf builders.
+ *
+ * A POJO field is matched to a protobuf field by its {@link JSONField} name (or its own name),
+ * against either the json name or the original name of the protobuf field, the same way the
+ * former JSON bridge did. The accessor table of each POJO class is built once and cached.
+ */
+public class ECRHubRequestEncoder {
+
+    private static final MessageMapper<RequestBizData.Builder> BIZ_DATA = new MessageMapper<>(RequestBizData.getDescriptor());
+    private static final MessageMapper<VoiceData.Builder> VOICE_DATA = new MessageMapper<>(VoiceData.getDescriptor());
+    private static final MessageMapper<PrinterData.Builder> PRINTER_DATA = new MessageMapper<>(PrinterData.getDescriptor());
+    private static final MessageMapper<NotifyData.Builder> NOTIFY_DATA = new MessageMapper<>(NotifyData.getDescriptor());
+
+    static {
+        BIZ_DATA.string(RequestBizData.MERCHANT_ORDER_NO_FIELD_NUMBER, RequestBizData.Builder::setMerchantOrderNo);
+        BIZ_DATA.string(RequestBizData.ORIG_MERCHANT_ORDER_NO_FIELD_NUMBER, RequestBizData.Builder::setOrigMerchantOrderNo);
+        BIZ_DATA.string(RequestBizData.PRICE_CURRENCY_FIELD_NUMBER, RequestBizData.Builder::setPriceCurrency);
+        BIZ_DATA.string(RequestBizData.ORDER_AMOUNT_FIELD_NUMBER, RequestBizData.Builder::setOrderAmount);
+        BIZ_DATA.string(RequestBizData.TIP_AMOUNT_FIELD_NUMBER, RequestBizData.Builder::setTipAmount);
+        BIZ_DATA.string(RequestBizData.TRANS_TYPE_FIELD_NUMBER, RequestBizData.Builder::setTransType);
+        BIZ_DATA.string(RequestBizData.PAY_METHOD_CATEGORY_FIELD_NUMBER, RequestBizData.Builder::setPayMethodCategory);
+        BIZ_DATA.string(RequestBizData.ATTACH_FIELD_NUMBER, RequestBizData.Builder::setAttach);
+        BIZ_DATA.string(RequestBizData.DESCRIPTION_FIELD_NUMBER, RequestBizData.Builder::setDescription);
+        BIZ_DATA.string(RequestBizData.NOTIFY_URL_FIELD_NUMBER, RequestBizData.Builder::setNotifyUrl);
+        BIZ_DATA.string(RequestBizData.TOKEN_FIELD_NUMBER, RequestBizData.Builder::setToken);
+        BIZ_DATA.map(RequestBizData.EXTENDS_PARAMS_FIELD_NUMBER, RequestBizData.Builder::putAllExtendsParams);
+
+        VOICE_DATA.string(VoiceData.CONTENT_FIELD_NUMBER, VoiceData.Builder::setContent);
+        VOICE_DATA.string(VoiceData.CONTENT_LOCALE_FIELD_NUMBER, VoiceData.Builder::setContentLocale);
+        VOICE_DATA.string(VoiceData.CONTENT_URL_FIELD_NUMBER, VoiceData.Builder::setContentUrl);
+
+        PRINTER_DATA.string(PrinterData.CONTENT_FIELD_NUMBER, PrinterData.Builder::setContent);
+        PRINTER_DATA.string(PrinterData.CONTENT_URL_FIELD_NUMBER, PrinterData.Builder::setContentUrl);
+
+        NOTIFY_DATA.string(NotifyData.TITLE_FIELD_NUMBER, NotifyData.Builder::setTitle);
+        NOTIFY_DATA.string(NotifyData.BODY_FIELD_NUMBER, NotifyData.Builder::setBody);
+        NOTIFY_DATA.string(NotifyData.IMAGE_URL_FIELD_NUMBER, NotifyData.Builder::setImageUrl);
+        NOTIFY_DATA.string(NotifyData.SOUND_FIELD_NUMBER, NotifyData.Builder::setSound);
+    }
+
+    public static RequestBizData.Builder mergeBizData(Object source, RequestBizData.Builder builder) throws IllegalAccessException {
+        return BIZ_DATA.merge(source, builder);
+    }
+
+    /**
+     * Whether any business data field of a request is set
+     */
+    public static boolean hasBizData(Object source) {
+        try {
+            return BIZ_DATA.hasAny(source);
+        } catch (IllegalAccessException e) {
+            return true;
+        }
+    }
+
+    public static VoiceData.Builder mergeVoiceData(Object source, VoiceData.Builder builder) throws IllegalAccessException {
+        return VOICE_DATA.merge(source, builder);
+    }
+
+    public static PrinterData.Builder mergePrinterData(Object source, PrinterData.Builder builder) throws IllegalAccessException {
+        return PRINTER_DATA.merge(source, builder);
+    }
+
+    public static NotifyData.Builder mergeNotifyData(Object source, NotifyData.Builder builder) throws IllegalAccessException {
+        return NOTIFY_DATA.merge(source, builder);
+    }
+
+    private static class MessageMapper<B> {
+        private final Descriptor descriptor;
+        private final Map<String, BiConsumer<B, Object>> setters = new HashMap<>();
+        private final Map<Class<?>, List<Accessor<B>>> accessors = new ConcurrentHashMap<>();
+
+        private MessageMapper(Descriptor descriptor) {
+            this.descriptor = descriptor;
+        }
+
+        private void string(int fieldNumber, BiConsumer<B, String> setter) {
+            register(fieldNumber, (builder, value) -> setter.accept(builder, value.toString()));
+        }
+
+        @SuppressWarnings("unchecked")
+        private void map(int fieldNumber, BiConsumer<B, Map<String, String>> setter) {
+            register(fieldNumber, (builder, value) -> setter.accept(builder, (Map<String, String>) value));
+        }
+
+        private void register(int fieldNumber, BiConsumer<B, Object> setter) {
+            FieldDescriptor field = descriptor.findFieldByNumber(fieldNumber);
+            setters.put(field.getJsonName(), setter);
+            setters.put(field.getName(), setter);
+        }
+
+        private B merge(Object source, B builder) throws IllegalAccessException {
+            if (source == null) {
+                return builder;
+            }
+            List<Accessor<B>> list = accessors.computeIfAbsent(source.getClass(), this::accessorsOf);
+            // Indexed loop, no iterator per message
+            for (int i = 0; i < list.size(); i++) {
+                Accessor<B> accessor = list.get(i);
+                Object value = accessor.field.get(source);
+                if (value != null) {
+                    accessor.setter.accept(builder, value);
+                }
+            }
+            return builder;
+        }
+
+        private boolean hasAny(Object source) throws IllegalAccessException {
+            if (source == null) {
+                return false;
+            }
+            List<Accessor<B>> list = accessors.computeIfAbsent(source.getClass(), this::accessorsOf);
+            for (int i = 0; i < list.size(); i++) {
+                if (list.get(i).field.get(source) != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private List<Accessor<B>> accessorsOf(Class<?> clazz) {
+            ArrayList<Accessor<B>> list = new ArrayList<>();
+            for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())) {
+                        continue;
+                    }
+                    JSONField annotation = field.getAnnotation(JSONField.class);
+                    String name = annotation != null && !annotation.name().isEmpty() ? annotation.name() : field.getName();
+                    BiConsumer<B, Object> setter = setters.get(name);
+                    if (setter != null) {
+                        field.setAccessible(true);
+                        list.add(new Accessor<>(field, setter));
+                    }
+                }
+            }
+            list.trimToSize();
+            return list;
+        }
+    }
+
+    private static class Accessor<B> {
+        private final Field field;
+        private final BiConsumer<B, Object> setter;
+
+        private Accessor(Field field, BiConsumer<B, Object> setter) {
+            this.field = field;
+            this.setter = setter;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.wiseasy.ecr.hub.sdk.protobuf;
+
+import com.alibaba.fastjson2.annotation.JSONField;
+import com.alibaba.fastjson2.util.TypeUtils;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.model.response.ECRHubResponse;
+import com.wiseasy.ecr.hub.sdk.model.response.ECRHubResponse.DeviceData;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto.ResponseBizData;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto.ResponseDeviceData;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Copies protobuf response fields straight into the response POJOs.
+ *
+ * The decoder of each POJO class is built once and cached. Like the former JsonFormat/fastjson bridge,
+ * empty protobuf values are left unset and fields are matched by their {@link JSONField} name.
+ */
+public class ECRHubResponseDecoder {
+
+    private static final MessageMapper<ResponseBizData> BIZ_DATA = new MessageMapper<>(ResponseBizData.getDescriptor());
+    private static final MessageMapper<ResponseDeviceData> DEVICE_DATA = new MessageMapper<>(ResponseDeviceData.getDescriptor());
+
+    static {
+        BIZ_DATA.register(ResponseBizData.MERCHANT_ORDER_NO_FIELD_NUMBER, ResponseBizData::getMerchantOrderNo);
+        BIZ_DATA.register(ResponseBizData.ORDER_AMOUNT_FIELD_NUMBER, ResponseBizData::getOrderAmount);
+        BIZ_DATA.register(ResponseBizData.TRANS_NO_FIELD_NUMBER, ResponseBizData::getTransNo);
+        BIZ_DATA.register(ResponseBizData.PRICE_CURRENCY_FIELD_NUMBER, ResponseBizData::getPriceCurrency);
+        BIZ_DATA.register(ResponseBizData.TRANS_TYPE_FIELD_NUMBER, ResponseBizData::getTransType);
+        BIZ_DATA.register(ResponseBizData.STORE_NO_FIELD_NUMBER, ResponseBizData::getStoreNo);
+        BIZ_DATA.register(ResponseBizData.TERMINAL_SN_FIELD_NUMBER, ResponseBizData::getTerminalSn);
+        BIZ_DATA.register(ResponseBizData.PAY_SCENARIO_FIELD_NUMBER, ResponseBizData::getPayScenario);
+        BIZ_DATA.register(ResponseBizData.TRANS_STATUS_FIELD_NUMBER, ResponseBizData::getTransStatus);
+        BIZ_DATA.register(ResponseBizData.PAY_CHANNEL_TRANS_NO_FIELD_NUMBER, ResponseBizData::getPayChannelTransNo);
+        BIZ_DATA.register(ResponseBizData.PAY_USER_ACCOUNT_ID_FIELD_NUMBER, ResponseBizData::getPayUserAccountId);
+        BIZ_DATA.register(ResponseBizData.PAID_AMOUNT_FIELD_NUMBER, ResponseBizData::getPaidAmount);
+        BIZ_DATA.register(ResponseBizData.TRANS_END_TIME_FIELD_NUMBER, ResponseBizData::getTransEndTime);
+        BIZ_DATA.register(ResponseBizData.PAY_METHOD_ID_FIELD_NUMBER, ResponseBizData::getPayMethodId);
+        BIZ_DATA.register(ResponseBizData.TOKEN_FIELD_NUMBER, ResponseBizData::getToken);
+        BIZ_DATA.register(ResponseBizData.EXTENDS_PARAMS_FIELD_NUMBER, ResponseBizData::getExtendsParamsMap);
+
+        DEVICE_DATA.register(ResponseDeviceData.APP_NAME_FIELD_NUMBER, ResponseDeviceData::getAppName);
+        DEVICE_DATA.register(ResponseDeviceData.DEVICE_SN_FIELD_NUMBER, ResponseDeviceData::getDeviceSn);
+        DEVICE_DATA.register(ResponseDeviceData.APP_VERSION_FIELD_NUMBER, ResponseDeviceData::getAppVersion);
+    }
+
+    public static <T extends ECRHubResponse> T decode(ECRHubResponseProto.ECRHubResponse respProto, Class<T> respClass) throws ECRHubException {
+        try {
+            T resp = BIZ_DATA.copy(respProto.getBizData(), respClass);
+            resp.setMsg_id(respProto.getMsgId());
+            resp.setSuccess(respProto.getSuccess());
+            resp.setError_msg(respProto.getErrorMsg());
+            resp.setDevice_data(decodeDeviceData(respProto.getDeviceData()));
+            return resp;
+        } catch (ReflectiveOperationException e) {
+            throw new ECRHubException("Decode response error:", e);
+        }
+    }
+
+    public static DeviceData decodeDeviceData(ResponseDeviceData deviceData) throws ECRHubException {
+        try {
+            return DEVICE_DATA.copy(deviceData, DeviceData.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ECRHubException("Decode device data error:", e);
+        }
+    }
+
+    private static class MessageMapper<M> {
+        private final Descriptor descriptor;
+        private final Map<String, Function<M, Object>> getters = new HashMap<>();
+        private final Map<Class<?>, ClassDecoder<M>> decoders = new ConcurrentHashMap<>();
+
+        private MessageMapper(Descriptor descriptor) {
+            this.descriptor = descriptor;
+        }
+
+        private void register(int fieldNumber, Function<M, Object> getter) {
+            FieldDescriptor field = descriptor.findFieldByNumber(fieldNumber);
+            getters.put(field.getJsonName(), getter);
+            getters.put(field.getName(), getter);
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> T copy(M message, Class<T> clazz) throws ReflectiveOperationException {
+            ClassDecoder<M> decoder = decoders.get(clazz);
+            if (decoder == null) {
+                decoder = decoders.computeIfAbsent(clazz, this::decoderOf);
+            }
+            T target = (T) decoder.constructor.newInstance();
+            List<Accessor<M>> accessors = decoder.accessors;
+            // Indexed loop, no iterator per message
+            for (int i = 0; i < accessors.size(); i++) {
+                Accessor<M> accessor = accessors.get(i);
+                Object value = accessor.getter.apply(message);
+                if (value instanceof String) {
+                    if (((String) value).isEmpty()) {
+                        continue;
+                    }
+                } else if (value instanceof Map) {
+                    if (((Map<?, ?>) value).isEmpty()) {
+                        continue;
+                    }
+                    value = new LinkedHashMap<>((Map<?, ?>) value);
+                }
+                if (!accessor.field.getType().isInstance(value)) {
+                    value = TypeUtils.cast(value, accessor.field.getGenericType());
+                }
+                accessor.field.set(target, value);
+            }
+            return target;
+        }
+
+        private ClassDecoder<M> decoderOf(Class<?> clazz) {
+            ArrayList<Accessor<M>> list = new ArrayList<>();
+            for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())) {
+                        continue;
+                    }
+                    JSONField annotation = field.getAnnotation(JSONField.class);
+                    String name = annotation != null && !annotation.name().isEmpty() ? annotation.name() : field.getName();
+                    Function<M, Object> getter = getters.get(name);
+                    if (getter != null) {
+                        field.setAccessible(true);
+                        list.add(new Accessor<>(field, getter));
+                    }
+                }
+            }
+            try {
+                Constructor<?> constructor = clazz.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                list.trimToSize();
+                return new ClassDecoder<>(constructor, list);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException(clazz.getName() + " has no default constructor", e);
+            }
+        }
+    }
+
+    private static class ClassDecoder<M> {
+        private final Constructor<?> constructor;
+        private final List<Accessor<M>> accessors;
+
+        private ClassDecoder(Constructor<?> constructor, List<Accessor<M>> accessors) {
+            this.constructor = constructor;
+            this.accessors = accessors;
+        }
+    }
+
+    private static class Accessor<M> {
+        private final Field field;
+        private final Function<M, Object> getter;
+
+        private Accessor(Field field, Function<M, Object> getter) {
+            this.field = field;
+            this.getter = getter;
+        }
+    }
+}
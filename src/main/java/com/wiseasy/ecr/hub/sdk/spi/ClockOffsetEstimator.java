@@ -0,0 +1,70 @@
+package com.wiseasy.ecr.hub.sdk.spi;
+
+/**
+ * Estimates the offset of the terminal clock from heartbeat exchanges.
+ *
+ * Each exchange gives the local send and receive time and the timestamp the terminal put in its response.
+ * Assuming the terminal stamps the response halfway through the round trip, the offset is
+ * remote - (send + receive) / 2, with an error of at most half the round trip. Of the last few samples
+ * the one with the shortest round trip is used, as it is the least disturbed by queueing on either side.
+ */
+public class ClockOffsetEstimator {
+
+    private static final int WINDOW = 8;
+
+    private final long[] offsets = new long[WINDOW];
+    private final long[] roundTrips = new long[WINDOW];
+    private int count = 0;
+    private int next = 0;
+
+    /**
+     * @param sendTime    Local time (milliseconds) the request was written
+     * @param receiveTime Local time (milliseconds) the response was received
+     * @param remoteTime  Terminal time (milliseconds) of the response
+     */
+    public synchronized void addSample(long sendTime, long receiveTime, long remoteTime) {
+        long roundTrip = receiveTime - sendTime;
+        if (roundTrip < 0 || remoteTime <= 0) {
+            return;
+        }
+        offsets[next] = remoteTime - (sendTime + receiveTime) / 2;
+        roundTrips[next] = roundTrip;
+        next = (next + 1) % WINDOW;
+        count = Math.min(count + 1, WINDOW);
+    }
+
+    public synchronized boolean hasEstimate() {
+        return count > 0;
+    }
+
+    /**
+     * Terminal clock minus local clock (milliseconds), 0 without estimate
+     */
+    public synchronized long getOffset() {
+        int best = best();
+        return best < 0 ? 0 : offsets[best];
+    }
+
+    /**
+     * Round trip (milliseconds) of the sample the offset comes from, -1 without estimate
+     */
+    public synchronized long getRoundTrip() {
+        int best = best();
+        return best < 0 ? -1 : roundTrips[best];
+    }
+
+    public synchronized void reset() {
+        count = 0;
+        next = 0;
+    }
+
+    private int best() {
+        int best = -1;
+        for (int i = 0; i < count; i++) {
+            if (best < 0 || roundTrips[i] < roundTrips[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,110 @@
+package com.wiseasy.ecr.hub.sdk.spi;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time + node + sequence message ID generator.
+ *
+ * An ID is a positive 64-bit number (41 bits milliseconds since 2023-01-01, 10 bits node, 12 bits sequence)
+ * written in lowercase base 36, at most 13 characters instead of the 32 of a simple UUID.
+ * IDs in this canonical form map back to their number with {@link #toKey(CharSequence)},
+ * which lets the response table compare primitive longs instead of hashing strings.
+ */
+public class DefaultMsgIdGenerator implements MsgIdGenerator {
+
+    /**
+     * Returned by {@link #toKey(CharSequence)} for IDs that are not in canonical form
+     */
+    public static final long NO_KEY = -1;
+
+    private static final long EPOCH = 1672531200000L;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int MAX_LENGTH = 13;
+    private static final char[] DIGITS = "0123456789abcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    private static final DefaultMsgIdGenerator INSTANCE = new DefaultMsgIdGenerator();
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[MAX_LENGTH]);
+
+    private final long node;
+    /**
+     * Last (timestamp << SEQUENCE_BITS | sequence) handed out
+     */
+    private final AtomicLong last = new AtomicLong();
+
+    public DefaultMsgIdGenerator() {
+        this(ThreadLocalRandom.current().nextInt(1 << NODE_BITS));
+    }
+
+    public DefaultMsgIdGenerator(int node) {
+        this.node = node & ((1 << NODE_BITS) - 1);
+    }
+
+    public static DefaultMsgIdGenerator getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String nextId() {
+        return format(nextKey());
+    }
+
+    public long nextKey() {
+        long now = (currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        long prev;
+        long next;
+        do {
+            prev = last.get();
+            // Sequence overflow borrows from the next millisecond
+            next = Math.max(now, prev + 1);
+        } while (!last.compareAndSet(prev, next));
+        long timestamp = next >>> SEQUENCE_BITS;
+        long sequence = next & ((1 << SEQUENCE_BITS) - 1);
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | sequence;
+    }
+
+    /**
+     * Clock of the IDs. If it goes back, IDs keep increasing from the last one handed out
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    public static String format(long key) {
+        char[] buf = BUFFER.get();
+        int pos = MAX_LENGTH;
+        do {
+            buf[--pos] = DIGITS[(int) (key % 36)];
+            key /= 36;
+        } while (key > 0);
+        return new String(buf, pos, MAX_LENGTH - pos);
+    }
+
+    /**
+     * @return the number of a canonical base 36 ID, or {@link #NO_KEY}
+     */
+    public static long toKey(CharSequence msgId) {
+        int length = msgId != null ? msgId.length() : 0;
+        if (length == 0 || length > MAX_LENGTH || (length > 1 && msgId.charAt(0) == '0')) {
+            return NO_KEY;
+        }
+        long key = 0;
+        for (int i = 0; i < length; i++) {
+            char c = msgId.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'a' && c <= 'z') {
+                digit = c - 'a' + 10;
+            } else {
+                return NO_KEY;
+            }
+            if (key > (Long.MAX_VALUE - digit) / 36) {
+                return NO_KEY;
+            }
+            key = key * 36 + digit;
+        }
+        return key;
+    }
+}
@@ -0,0 +1,36 @@
+package com.wiseasy.ecr.hub.sdk.spi;
+
+import com.wiseasy.ecr.hub.sdk.enums.EEvent;
+
+/**
+ * Java Flight Recorder events of the transport and codec paths.
+ *
+ * This is the Java 8 implementation and records nothing. On Java 11+ the multi-release jar
+ * replaces it with one that emits JFR events (category "ECR Hub"), which cost nothing unless
+ * a recording has them enabled.
+ */
+public class ECRHubEvents {
+
+    private ECRHubEvents() {
+    }
+
+    /**
+     * Start timing an event
+     *
+     * @return the started event, or null if it is not being recorded
+     */
+    public static Object begin(EEvent event) {
+        return null;
+    }
+
+    /**
+     * End and commit an event returned by {@link #begin(EEvent)}, null is ignored
+     *
+     * @param terminal Serial port name or WebSocket URL
+     * @param topic    Request topic, null for link-level frames
+     * @param msgId    Message ID, null if not known
+     * @param size     Bytes on the wire or encoded/decoded, 0 if not applicable
+     */
+    public static void commit(Object event, String terminal, String topic, String msgId, int size) {
+    }
+}
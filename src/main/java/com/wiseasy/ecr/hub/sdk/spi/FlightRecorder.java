@@ -0,0 +1,134 @@
+package com.wiseasy.ecr.hub.sdk.spi;
+
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig.RecorderConfig;
+import com.wiseasy.ecr.hub.sdk.enums.EDirection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ring buffer of the most recent wire frames, kept in memory for post-mortem analysis.
+ *
+ * Off by default. All storage is allocated up front when enabled; recording a frame claims a slot and copies
+ * at most maxPayloadBytes of its payload, or nothing unless payload capture is enabled.
+ * Dumps are best effort: a frame recorded while dumping may appear torn.
+ * Dump files are read back with {@link com.wiseasy.ecr.hub.sdk.utils.FlightRecordReader}.
+ *
+ * Dump format (big endian): magic "ECRF", version byte, frame count int, then per frame
+ * timestamp long, direction byte, packet type byte, ack byte, id byte, payload length int,
+ * captured length int and the captured payload bytes.
+ */
+public class FlightRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightRecorder.class);
+
+    public static final int MAGIC = 0x45435246;
+    public static final byte VERSION = 1;
+
+    private final RecorderConfig config;
+    private final int capacity;
+    private final int maxPayloadBytes;
+
+    private final long[] timestamps;
+    private final byte[] headers;
+    private final int[] lengths;
+    private final byte[] payloads;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public FlightRecorder(RecorderConfig config) {
+        this.config = config;
+        this.capacity = config.isEnabled() ? Math.max(config.getCapacity(), 1) : 0;
+        this.maxPayloadBytes = config.isCapturePayload() ? Math.max(config.getMaxPayloadBytes(), 0) : 0;
+        this.timestamps = new long[capacity];
+        this.headers = new byte[capacity * 4];
+        this.lengths = new int[capacity];
+        this.payloads = new byte[capacity * maxPayloadBytes];
+    }
+
+    public boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    public void record(EDirection direction, byte packType, byte ack, byte id, byte[] bytes) {
+        record(direction, packType, ack, id, bytes, 0, bytes != null ? bytes.length : 0);
+    }
+
+    public void record(EDirection direction, byte packType, byte ack, byte id, byte[] bytes, int offset, int length) {
+        if (capacity == 0) {
+            return;
+        }
+        int slot = (int) (sequence.getAndIncrement() % capacity);
+        timestamps[slot] = System.currentTimeMillis();
+        headers[slot * 4] = (byte) direction.ordinal();
+        headers[slot * 4 + 1] = packType;
+        headers[slot * 4 + 2] = ack;
+        headers[slot * 4 + 3] = id;
+        lengths[slot] = length;
+        if (length > 0 && maxPayloadBytes > 0) {
+            System.arraycopy(bytes, offset, payloads, slot * maxPayloadBytes, Math.min(length, maxPayloadBytes));
+        }
+    }
+
+    /**
+     * Write the recorded frames, oldest first
+     */
+    public void dump(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        long end = sequence.get();
+        long start = Math.max(0, end - capacity);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeInt((int) (end - start));
+        for (long i = start; i < end; i++) {
+            int slot = (int) (i % capacity);
+            int captured = Math.min(lengths[slot], maxPayloadBytes);
+            data.writeLong(timestamps[slot]);
+            data.write(headers, slot * 4, 4);
+            data.writeInt(lengths[slot]);
+            data.writeInt(captured);
+            data.write(payloads, slot * maxPayloadBytes, captured);
+        }
+        data.flush();
+    }
+
+    /**
+     * Dump the recorded frames to a new file in the configured dump directory, readable only by its owner
+     */
+    public File dump() throws IOException {
+        String dir = config.getDumpDir() != null ? config.getDumpDir() : System.getProperty("java.io.tmpdir");
+        File file = new File(dir, "ecrhub-flight-" + System.currentTimeMillis() + ".bin");
+        if (!file.createNewFile()) {
+            throw new IOException("Dump file already exists: " + file);
+        }
+        // Restrict before writing, the directory may be shared
+        file.setReadable(false, false);
+        file.setReadable(true, true);
+        file.setWritable(false, false);
+        file.setWritable(true, true);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            dump(out);
+        }
+        return file;
+    }
+
+    /**
+     * Called when a response timed out, dumps the recorded frames if configured
+     */
+    public void onTimeout(String msgId) {
+        if (capacity == 0 || !config.isDumpOnTimeout()) {
+            return;
+        }
+        try {
+            log.warn("Response of message[{}] timed out, frames dumped to {}", msgId, dump());
+        } catch (IOException e) {
+            log.warn("Dump flight recorder error:", e);
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package com.wiseasy.ecr.hub.sdk.spi;
+
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig.SchedulerConfig;
+import com.wiseasy.ecr.hub.sdk.enums.EMetric;
+import com.wiseasy.ecr.hub.sdk.enums.EPriority;
+import com.wiseasy.ecr.hub.sdk.enums.ERejectPolicy;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubRejectedException;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubTimeoutException;
+import com.wiseasy.ecr.hub.sdk.spi.metrics.MetricsRecorder;
+import com.wiseasy.ecr.hub.sdk.spi.transport.Transport.WriteListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-terminal outbound scheduler.
+ *
+ * Frames are written by a single thread ordered by priority class, then by deadline, then by submission order.
+ * Each priority class has a bounded queue. Control frames (ACK, heartbeat) bypass it through an unbounded
+ * fast lane that is drained before every data frame, so they never wait behind more than the frame being written.
+ * Data frames that expire in the queue or are discarded are reported to their {@link WriteListener}, so the caller
+ * waiting for the response fails instead of waiting for a request that was never sent.
+ * A scheduler built with an {@link Executor} has no thread of its own: frames are written by drain tasks run on it,
+ * e.g. on the event loop of a non-blocking transport.
+ */
+public class FrameScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(FrameScheduler.class);
+
+    /**
+     * Writes one frame to the underlying link
+     */
+    public interface FrameWriter {
+        void write(byte[] frame) throws Exception;
+    }
+
+    private final String name;
+    private final SchedulerConfig config;
+    private final FrameWriter writer;
+    private final String terminal;
+    private final MetricsRecorder metrics;
+    private final Executor executor;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private volatile boolean running = false;
+
+    private final Queue<Frame> controlQueue = new ConcurrentLinkedQueue<>();
+    private final PriorityQueue<Frame> queue = new PriorityQueue<>();
+    private final int[] counts = new int[EPriority.values().length];
+    private final Lock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private long sequence = 0;
+
+    private Thread writeThread;
+
+    public FrameScheduler(String name, SchedulerConfig config, FrameWriter writer) {
+        this(name, config, writer, name, MetricsRecorder.NOOP);
+    }
+
+    /**
+     * @param terminal Terminal name the queue wait and write time of data frames are recorded under
+     */
+    public FrameScheduler(String name, SchedulerConfig config, FrameWriter writer, String terminal, MetricsRecorder metrics) {
+        this(name, config, writer, terminal, metrics, null);
+    }
+
+    /**
+     * @param executor Runs the drain tasks instead of a write thread, null for a write thread. The writer must not block
+     */
+    public FrameScheduler(String name, SchedulerConfig config, FrameWriter writer, String terminal, MetricsRecorder metrics, Executor executor) {
+        this.name = name;
+        this.config = config;
+        this.writer = writer;
+        this.terminal = terminal;
+        this.metrics = metrics;
+        this.executor = executor;
+    }
+
+    public synchronized void start() {
+        if (executor != null) {
+            running = true;
+            scheduleDrain();
+        } else if (writeThread == null) {
+            writeThread = new Thread(new WriteThread());
+            writeThread.start();
+        }
+    }
+
+    /**
+     * Stop the write thread, frames still queued are written before it exits
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            if (running) {
+                running = false;
+                scheduleDrain();
+            }
+        } else if (writeThread != null) {
+            writeThread.interrupt();
+            writeThread = null;
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return queue.size() + controlQueue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queue a link-level control frame on the fast lane, it is written before any queued data frame
+     */
+    public void submitControl(byte[] frame) {
+        submitControl(frame, null);
+    }
+
+    private void submitControl(byte[] frame, WriteListener listener) {
+        controlQueue.add(new Frame(frame, null, EPriority.CONTROL, 0, 0, listener));
+        if (executor != null) {
+            if (running) {
+                scheduleDrain();
+            }
+            return;
+        }
+        lock.lock();
+        try {
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queue a frame.
+     *
+     * @param topic    Topic of the request, for metrics
+     * @param deadline Absolute time (milliseconds) after which the frame is no longer worth writing, 0 for none
+     * @throws ECRHubRejectedException if the queue of the priority class is full
+     */
+    public void submit(byte[] frame, String topic, EPriority priority, long deadline) throws ECRHubRejectedException {
+        submit(frame, topic, priority, deadline, null);
+    }
+
+    /**
+     * Queue a frame.
+     *
+     * @param listener Told on the write thread once the frame has been written or dropped, may be null
+     * @see #submit(byte[], String, EPriority, long)
+     */
+    public void submit(byte[] frame, String topic, EPriority priority, long deadline, WriteListener listener) throws ECRHubRejectedException {
+        if (priority == EPriority.CONTROL) {
+            submitControl(frame, listener);
+            return;
+        }
+        lock.lock();
+        try {
+            reserve(priority, deadline);
+            queue.add(new Frame(frame, topic, priority, deadline, sequence++, listener));
+            counts[priority.ordinal()]++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (executor != null && running) {
+            scheduleDrain();
+        }
+    }
+
+    private void reserve(EPriority priority, long deadline) throws ECRHubRejectedException {
+        int capacity = config.getQueueCapacity();
+        if (counts[priority.ordinal()] < capacity) {
+            return;
+        }
+        ERejectPolicy policy = config.getRejectPolicy();
+        if (policy == ERejectPolicy.DISCARD_OLDEST) {
+            discardOldest(priority);
+        } else if (policy == ERejectPolicy.BLOCK) {
+            try {
+                while (counts[priority.ordinal()] >= capacity) {
+                    long wait = deadline > 0 ? deadline - System.currentTimeMillis() : Long.MAX_VALUE;
+                    if (wait <= 0) {
+                        throw new ECRHubRejectedException("The " + priority + " queue of " + name + " is full.");
+                    }
+                    notFull.await(wait, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ECRHubRejectedException("Interrupted while waiting for the " + priority + " queue of " + name);
+            }
+        } else {
+            throw new ECRHubRejectedException("The " + priority + " queue of " + name + " is full.");
+        }
+    }
+
+    private void discardOldest(EPriority priority) {
+        Frame oldest = null;
+        for (Frame frame : queue) {
+            if (frame.priority == priority && (oldest == null || frame.seq < oldest.seq)) {
+                oldest = frame;
+            }
+        }
+        if (oldest != null && queue.remove(oldest)) {
+            counts[priority.ordinal()]--;
+            log.warn("The {} queue of {} is full, discard the oldest frame", priority, name);
+            // Called under the lock, the listener only wakes the waiting caller
+            drop(oldest, new ECRHubRejectedException("Discarded from the full " + priority + " queue of " + name));
+        }
+    }
+
+    /**
+     * Wait for the next data frame, or return null as soon as a control frame is pending
+     */
+    private Frame take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (queue.isEmpty()) {
+                if (!controlQueue.isEmpty()) {
+                    return null;
+                }
+                notEmpty.await();
+            }
+            return poll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Frame poll() {
+        Frame frame = queue.poll();
+        if (frame != null) {
+            counts[frame.priority.ordinal()]--;
+            notFull.signalAll();
+        }
+        return frame;
+    }
+
+    private Frame pollLocked() {
+        lock.lock();
+        try {
+            return poll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeControl() {
+        Frame frame;
+        while ((frame = controlQueue.poll()) != null) {
+            write(frame);
+        }
+    }
+
+    private void write(Frame frame) {
+        try {
+            writer.write(frame.data);
+        } catch (Exception e) {
+            log.warn("Write frame error:", e);
+            drop(frame, new ECRHubException("Write frame error", e));
+            return;
+        }
+        if (frame.listener != null) {
+            frame.listener.onWritten();
+        }
+    }
+
+    private static void drop(Frame frame, ECRHubException reason) {
+        if (frame.listener != null) {
+            frame.listener.onDropped(reason);
+        }
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Write everything queued, on the executor
+     */
+    private void drain() {
+        drainScheduled.set(false);
+        while (true) {
+            writeControl();
+            Frame frame = pollLocked();
+            if (frame == null) {
+                return;
+            }
+            writeData(frame);
+        }
+    }
+
+    private void writeData(Frame frame) {
+        if (frame.deadline > 0 && frame.deadline < System.currentTimeMillis()) {
+            log.warn("Discard expired {} frame", frame.priority);
+            drop(frame, new ECRHubTimeoutException("The request expired in the " + frame.priority + " queue of " + name));
+            return;
+        }
+        long startTime = System.nanoTime();
+        metrics.recordLatency(EMetric.QUEUE_WAIT, terminal, frame.topic, startTime - frame.submitTime);
+        write(frame);
+        metrics.recordLatency(EMetric.WRITE, terminal, frame.topic, System.nanoTime() - startTime);
+    }
+
+    private class WriteThread implements Runnable {
+        @Override
+        public void run() {
+            Thread.currentThread().setName(name + "WriteThread-" + Thread.currentThread().getId());
+            try {
+                while (!Thread.interrupted()) {
+                    Frame frame = take();
+                    writeControl();
+                    if (frame != null) {
+                        writeData(frame);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Stopped while waiting
+            }
+            // Stopped, the interrupt is cleared: write what is still queued.
+            // Poll under the lock and write outside it, as drain() does
+            writeControl();
+            Frame frame;
+            while ((frame = pollLocked()) != null) {
+                writeData(frame);
+                writeControl();
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Frame implements Comparable<Frame> {
+        private final byte[] data;
+        private final String topic;
+        private final EPriority priority;
+        private final long deadline;
+        private final long seq;
+        private final WriteListener listener;
+        private final long submitTime = System.nanoTime();
+
+        private Frame(byte[] data, String topic, EPriority priority, long deadline, long seq, WriteListener listener) {
+            this.data = data;
+            this.topic = topic;
+            this.priority = priority;
+            this.deadline = deadline;
+            this.seq = seq;
+            this.listener = listener;
+        }
+
+        @Override
+        public int compareTo(Frame o) {
+            if (priority != o.priority) {
+                return priority.compareTo(o.priority);
+            }
+            if (deadline != o.deadline) {
+                // Frames without deadline go after frames with one
+                if (deadline == 0) {
+                    return 1;
+                }
+                if (o.deadline == 0) {
+                    return -1;
+                }
+                return Long.compare(deadline, o.deadline);
+            }
+            return Long.compare(seq, o.seq);
+        }
+    }
+}
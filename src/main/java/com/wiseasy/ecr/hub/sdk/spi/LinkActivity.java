@@ -0,0 +1,76 @@
+package com.wiseasy.ecr.hub.sdk.spi;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Read activity of a transport link, for the health snapshot and the heartbeat.
+ *
+ * The read path calls {@link #onRead()}, which completes the future of a waiting heartbeat instead of
+ * having it poll the last read time. Concurrent heartbeats share one future.
+ */
+public class LinkActivity {
+
+    private final AtomicReference<CompletableFuture<Long>> waiter = new AtomicReference<>();
+    private volatile long lastReadTime = 0;
+    private volatile long lastHeartbeatTime = 0;
+
+    /**
+     * Called on the read path for every frame or packet received
+     */
+    public void onRead() {
+        long now = System.currentTimeMillis();
+        lastReadTime = now;
+        CompletableFuture<Long> current = waiter.get();
+        if (current != null && waiter.compareAndSet(current, null)) {
+            current.complete(now);
+        }
+    }
+
+    /**
+     * Register interest in the next read, call before sending the heartbeat
+     */
+    public CompletableFuture<Long> expectRead() {
+        CompletableFuture<Long> created = null;
+        while (true) {
+            CompletableFuture<Long> current = waiter.get();
+            if (current != null) {
+                return current;
+            }
+            if (created == null) {
+                created = new CompletableFuture<>();
+            }
+            if (waiter.compareAndSet(null, created)) {
+                return created;
+            }
+        }
+    }
+
+    /**
+     * Wait for the read registered by {@link #expectRead()}
+     *
+     * @return false if nothing was read within the timeout (milliseconds)
+     */
+    public boolean await(CompletableFuture<Long> read, long timeout) {
+        try {
+            lastHeartbeatTime = read.get(timeout, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    public long getLastReadTime() {
+        return lastReadTime;
+    }
+
+    public long getLastHeartbeatTime() {
+        return lastHeartbeatTime;
+    }
+}
@@ -0,0 +1,15 @@
+package com.wiseasy.ecr.hub.sdk.spi;
+
+/**
+ * Generates the message ID of requests that do not carry one
+ *
+ * @see DefaultMsgIdGenerator
+ */
+public interface MsgIdGenerator {
+
+    /**
+     * @return a new message ID, unique at least among the requests in flight to one terminal
+     */
+    String nextId();
+
+}
@@ -0,0 +1,152 @@
+package com.wiseasy.ecr.hub.sdk.spi;
+
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubTimeoutException;
+
+/**
+ * Correlates received response messages with the requests waiting for them.
+ *
+ * A small FIFO ring of the most recent responses. IDs in the canonical form of {@link DefaultMsgIdGenerator}
+ * are matched by their primitive key, other IDs by string comparison. Waiting callers are woken as soon
+ * as a response arrives instead of polling, or when the request fails before it reached the terminal.
+ */
+public class ResponseTable {
+
+    /**
+     * Value of a slot holding a failure instead of a response
+     */
+    private static final byte[] FAILED = new byte[0];
+
+    private final int capacity;
+    private final long expireMillis;
+    private final Runnable evictionListener;
+
+    private final long[] keys;
+    private final String[] ids;
+    private final byte[][] values;
+    private final ECRHubException[] errors;
+    private final long[] times;
+    private int next = 0;
+
+    public ResponseTable(int capacity, long expireMillis) {
+        this(capacity, expireMillis, () -> {
+        });
+    }
+
+    /**
+     * @param evictionListener Called when a response is dropped before it was taken, because the table was full or it expired
+     */
+    public ResponseTable(int capacity, long expireMillis, Runnable evictionListener) {
+        this.capacity = capacity;
+        this.expireMillis = expireMillis;
+        this.evictionListener = evictionListener;
+        this.keys = new long[capacity];
+        this.ids = new String[capacity];
+        this.values = new byte[capacity][];
+        this.errors = new ECRHubException[capacity];
+        this.times = new long[capacity];
+    }
+
+    public synchronized void put(String msgId, byte[] msg) {
+        store(msgId, msg, null);
+    }
+
+    /**
+     * Fail the request of a message, e.g. it was dropped from the outbound queue. The waiting caller gets the error
+     */
+    public synchronized void fail(String msgId, ECRHubException error) {
+        store(msgId, FAILED, error);
+    }
+
+    private void store(String msgId, byte[] msg, ECRHubException error) {
+        long key = DefaultMsgIdGenerator.toKey(msgId);
+        int slot = indexOf(key, msgId);
+        if (slot < 0) {
+            // Evict the oldest entry
+            slot = next;
+            next = (next + 1) % capacity;
+            if (values[slot] != null) {
+                evictionListener.run();
+            }
+        }
+        keys[slot] = key;
+        ids[slot] = key == DefaultMsgIdGenerator.NO_KEY ? msgId : null;
+        values[slot] = msg;
+        errors[slot] = error;
+        times[slot] = System.currentTimeMillis();
+        notifyAll();
+    }
+
+    /**
+     * Remove and return the response of a message, or null if it has not arrived
+     *
+     * @throws ECRHubException if the request failed, see {@link #fail}
+     */
+    public synchronized byte[] take(String msgId) throws ECRHubException {
+        int slot = indexOf(DefaultMsgIdGenerator.toKey(msgId), msgId);
+        if (slot < 0) {
+            return null;
+        }
+        byte[] msg = values[slot];
+        ECRHubException error = errors[slot];
+        values[slot] = null;
+        ids[slot] = null;
+        errors[slot] = null;
+        if (error != null) {
+            throw error;
+        }
+        if (System.currentTimeMillis() - times[slot] > expireMillis) {
+            evictionListener.run();
+            return null;
+        }
+        return msg;
+    }
+
+    /**
+     * Wait for the response of a message
+     *
+     * @param deadline Absolute time (milliseconds)
+     * @throws ECRHubTimeoutException if no response arrived before the deadline
+     * @throws ECRHubException        if the request failed, see {@link #fail}
+     */
+    public synchronized byte[] await(String msgId, long deadline) throws ECRHubException {
+        while (true) {
+            byte[] msg = take(msgId);
+            if (msg != null) {
+                return msg;
+            }
+            long wait = deadline - System.currentTimeMillis();
+            if (wait <= 0) {
+                throw new ECRHubTimeoutException();
+            }
+            try {
+                wait(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ECRHubTimeoutException("Interrupted while waiting for the response");
+            }
+        }
+    }
+
+    public synchronized int size() {
+        int size = 0;
+        for (byte[] value : values) {
+            if (value != null && value != FAILED) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    private int indexOf(long key, String msgId) {
+        for (int i = 0; i < capacity; i++) {
+            if (values[i] == null) {
+                continue;
+            }
+            if (key != DefaultMsgIdGenerator.NO_KEY ? keys[i] == key : msgId.equals(ids[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
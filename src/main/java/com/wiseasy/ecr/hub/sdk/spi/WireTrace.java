@@ -0,0 +1,92 @@
+package com.wiseasy.ecr.hub.sdk.spi;
+
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig.TraceConfig;
+import com.wiseasy.ecr.hub.sdk.enums.EDirection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wire frame tracing.
+ *
+ * Frames are logged at INFO on this class's logger when tracing is enabled in {@link TraceConfig}
+ * and the frame passes the direction, topic and sampling filters. The payload is only rendered
+ * as hex when the log line is actually written, and is truncated to the configured length.
+ * Link-level frames (ACK, heartbeat) carry no topic and are skipped when a topic filter is set.
+ */
+public class WireTrace {
+
+    private static final Logger log = LoggerFactory.getLogger(WireTrace.class);
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final TraceConfig config;
+    private final AtomicLong counter = new AtomicLong();
+
+    public WireTrace(TraceConfig config) {
+        this.config = config;
+    }
+
+    public boolean isEnabled(EDirection direction, String topic) {
+        if (!config.isEnabled() || !log.isInfoEnabled()) {
+            return false;
+        }
+        if (direction == EDirection.INBOUND ? !config.isInbound() : !config.isOutbound()) {
+            return false;
+        }
+        Set<String> topics = config.getTopics();
+        if (topics != null && !topics.isEmpty() && (topic == null || !topics.contains(topic))) {
+            return false;
+        }
+        int sampleRate = config.getSampleRate();
+        return sampleRate <= 1 || counter.getAndIncrement() % sampleRate == 0;
+    }
+
+    public void trace(EDirection direction, String topic, String label, byte[] bytes) {
+        if (isEnabled(direction, topic)) {
+            log.info("{} {}[{}]:{}", direction, label, topic, new Hex(bytes, config.getMaxPayloadBytes()));
+        }
+    }
+
+    /**
+     * Trace a frame that is already hex encoded
+     */
+    public void trace(EDirection direction, String topic, String label, String hex) {
+        if (isEnabled(direction, topic)) {
+            int maxChars = config.getMaxPayloadBytes() * 2;
+            log.info("{} {}[{}]:{}", direction, label, topic,
+                    maxChars > 0 && hex.length() > maxChars ? truncated(hex.substring(0, maxChars), hex.length() / 2) : hex);
+        }
+    }
+
+    private static String truncated(String hex, int length) {
+        return hex + "...(" + length + " bytes)";
+    }
+
+    /**
+     * Renders the payload on toString, i.e. only when the logger formats the message
+     */
+    private static class Hex {
+        private final byte[] bytes;
+        private final int maxBytes;
+
+        private Hex(byte[] bytes, int maxBytes) {
+            this.bytes = bytes;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public String toString() {
+            int length = maxBytes > 0 ? Math.min(bytes.length, maxBytes) : bytes.length;
+            char[] cs = new char[length * 2];
+            for (int i = 0; i < length; i++) {
+                cs[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+                cs[i * 2 + 1] = HEX[bytes[i] & 0xF];
+            }
+            String hex = new String(cs);
+            return length < bytes.length ? truncated(hex, bytes.length) : hex;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.wiseasy.ecr.hub.sdk.spi.discovery;
+
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.StrUtil;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig;
+import com.wiseasy.ecr.hub.sdk.ECRHubHealth;
+import com.wiseasy.ecr.hub.sdk.enums.EPriority;
+import com.wiseasy.ecr.hub.sdk.enums.ETopic;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubTimeoutException;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubRequestProto;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto;
+import com.wiseasy.ecr.hub.sdk.spi.transport.Transport;
+import com.wiseasy.ecr.hub.sdk.spi.transport.TransportContext;
+import com.wiseasy.ecr.hub.sdk.spi.transport.Transports;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transport to a terminal by device SN: sn://PP35272137000236.
+ *
+ * The endpoint is looked up in a {@link TerminalRegistry} on connect. When the terminal announces a new address
+ * the link to it is opened in the background and swapped in, so requests never wait for the re-addressing.
+ * The old link is closed once the requests sent on it have been answered, or after the read timeout.
+ * Before a link is used, the device answering on it must report the expected SN, so a host announcing
+ * the SN of another terminal cannot take its traffic.
+ */
+public class DiscoveryTransport implements Transport, TerminalRegistry.Listener {
+
+    private static final Logger log = LoggerFactory.getLogger(DiscoveryTransport.class);
+
+    /**
+     * Room kept for the framing of any built-in transport, messages are moved when the current one needs less
+     */
+    private static final int HEADROOM = 16;
+    private static final int TAILROOM = 4;
+
+    private final String deviceSn;
+    private final String terminal;
+    private final TerminalRegistry registry;
+    private final TransportContext context;
+
+    private volatile Link current;
+    private volatile Listener listener;
+    private volatile boolean active = false;
+
+    public DiscoveryTransport(String deviceSn, TerminalRegistry registry, TransportContext context) {
+        this.deviceSn = deviceSn;
+        this.terminal = "sn://" + deviceSn;
+        this.registry = registry;
+        this.context = context;
+    }
+
+    /**
+     * URL of the terminal currently connected to, null if none
+     */
+    public String getCurrentUrl() {
+        Link link = current;
+        return link != null ? link.url : null;
+    }
+
+    @Override
+    public String getTerminal() {
+        return terminal;
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public synchronized void connect(long deadline) throws ECRHubException {
+        Link link = current;
+        if (active && link != null && link.transport.isOpen()) {
+            return;
+        }
+        // Listening before the lookup, so an address announced meanwhile is not missed
+        active = true;
+        registry.addListener(this);
+        try {
+            TerminalEndpoint endpoint = registry.await(deviceSn, deadline);
+            current = open(endpoint.getUrl(), deadline);
+        } catch (ECRHubException | RuntimeException e) {
+            // A failed connect must not keep opening links in the background
+            active = false;
+            registry.removeListener(this);
+            throw e;
+        }
+        if (link != null) {
+            link.transport.disconnect();
+        }
+    }
+
+    /**
+     * Connect to an address of the terminal and check that the device answering there is the terminal
+     */
+    private Link open(String url, long deadline) throws ECRHubException {
+        if (url.startsWith("sn://")) {
+            throw new ECRHubException("Invalid endpoint of terminal " + deviceSn + ":" + url);
+        }
+        Link link = new Link(url, Transports.create(url, context));
+        link.transport.setListener(link);
+        link.transport.connect(deadline);
+        try {
+            verify(link, deadline);
+        } catch (ECRHubException e) {
+            disconnectQuietly(link);
+            throw e;
+        }
+        return link;
+    }
+
+    /**
+     * Announcements are not authenticated, so the device SN is taken from the answer to a heartbeat request
+     */
+    private void verify(Link link, long deadline) throws ECRHubException {
+        ECRHubConfig config = context.getConfig();
+        String msgId = config.getMsgIdGenerator().nextId();
+        byte[] request = ECRHubRequestProto.ECRHubRequest.newBuilder()
+                .setTimestamp(String.valueOf(System.currentTimeMillis()))
+                .setMsgId(msgId)
+                .setAppId(StrUtil.nullToEmpty(config.getAppId()))
+                .setTopic(ETopic.HEARTBEAT.getValue())
+                .build()
+                .toByteArray();
+        Transport transport = link.transport;
+        byte[] buffer = new byte[transport.getHeadroom() + request.length + transport.getTailroom()];
+        System.arraycopy(request, 0, buffer, transport.getHeadroom(), request.length);
+        CompletableFuture<ECRHubResponseProto.ECRHubResponse> answer = link.probe(msgId);
+        transport.send(buffer, request.length, ETopic.HEARTBEAT.getValue(), EPriority.URGENT, deadline, null);
+
+        ECRHubResponseProto.ECRHubResponse response;
+        try {
+            response = answer.get(Math.max(deadline - System.currentTimeMillis(), 1), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ECRHubTimeoutException("No answer from terminal " + deviceSn + " at " + link.url);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ECRHubException("Verify terminal interrupted", e);
+        } catch (ExecutionException e) {
+            throw new ECRHubException("Verify terminal error", e.getCause());
+        }
+        String answeredSn = response.getDeviceData().getDeviceSn();
+        if (!deviceSn.equals(answeredSn)) {
+            throw new ECRHubException("The device at " + link.url + " is not terminal " + deviceSn + ":" + answeredSn);
+        }
+    }
+
+    @Override
+    public synchronized boolean disconnect() throws ECRHubException {
+        active = false;
+        registry.removeListener(this);
+        Link link = current;
+        current = null;
+        return link == null || link.transport.disconnect();
+    }
+
+    @Override
+    public void onChanged(TerminalEndpoint previous, TerminalEndpoint endpoint) {
+        if (active && deviceSn.equals(endpoint.getDeviceSn()) && !Objects.equals(getCurrentUrl(), endpoint.getUrl())) {
+            // Not on the discovery thread, connecting may take a while
+            ThreadUtil.execute(() -> retarget(endpoint.getUrl()));
+        }
+    }
+
+    private void retarget(String url) {
+        Link previous;
+        synchronized (this) {
+            if (!active || Objects.equals(getCurrentUrl(), url)) {
+                return;
+            }
+            log.info("Terminal {} moved from {} to {}", deviceSn, getCurrentUrl(), url);
+            Link next;
+            try {
+                next = open(url, System.currentTimeMillis() + getConnTimeout(context.getConfig()));
+            } catch (ECRHubException e) {
+                log.warn("Failed to connect to terminal {} at {}:", deviceSn, url, e);
+                return;
+            }
+            previous = current;
+            current = next;
+        }
+        Listener client = listener;
+        if (client != null) {
+            client.onRetarget();
+        }
+        if (previous != null) {
+            // New requests go to the new link, those already sent are answered on the old one
+            if (!previous.drain(System.currentTimeMillis() + getReadTimeout(context.getConfig()))) {
+                log.warn("Close the link to {} with {} requests in flight", previous.url, previous.inFlight.get());
+            }
+            disconnectQuietly(previous);
+        }
+    }
+
+    private static void disconnectQuietly(Link link) {
+        try {
+            link.transport.disconnect();
+        } catch (ECRHubException e) {
+            log.warn("Close link to {} error:", link.url, e);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        Link link = current;
+        return link != null && link.transport.isOpen();
+    }
+
+    @Override
+    public boolean isPairingRequired() {
+        return false;
+    }
+
+    @Override
+    public long getConnTimeout(ECRHubConfig config) {
+        return config.getSocketConfig().getConnTimeout();
+    }
+
+    @Override
+    public long getReadTimeout(ECRHubConfig config) {
+        return config.getSocketConfig().getSocketTimeout();
+    }
+
+    @Override
+    public int getHeadroom() {
+        return HEADROOM;
+    }
+
+    @Override
+    public int getTailroom() {
+        return TAILROOM;
+    }
+
+    @Override
+    public void send(byte[] buffer, int length, String topic, EPriority priority, long deadline, WriteListener listener) throws ECRHubException {
+        Link link = current;
+        if (link == null) {
+            throw new ECRHubException("Not connected to terminal " + deviceSn);
+        }
+        Transport transport = link.transport;
+        int headroom = transport.getHeadroom();
+        int tailroom = transport.getTailroom();
+        if (headroom <= HEADROOM && tailroom <= TAILROOM + HEADROOM - headroom) {
+            System.arraycopy(buffer, HEADROOM, buffer, headroom, length);
+        } else {
+            byte[] moved = new byte[headroom + length + tailroom];
+            System.arraycopy(buffer, HEADROOM, moved, headroom, length);
+            buffer = moved;
+        }
+        link.inFlight.incrementAndGet();
+        try {
+            transport.send(buffer, length, topic, priority, deadline, new WriteListener() {
+                @Override
+                public void onWritten() {
+                    if (listener != null) {
+                        listener.onWritten();
+                    }
+                }
+
+                @Override
+                public void onDropped(ECRHubException reason) {
+                    link.done();
+                    if (listener != null) {
+                        listener.onDropped(reason);
+                    }
+                }
+            });
+        } catch (ECRHubException | RuntimeException e) {
+            link.done();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean heartbeat(long timeout) {
+        Link link = current;
+        return link != null && link.transport.heartbeat(timeout);
+    }
+
+    @Override
+    public void fillHealth(ECRHubHealth health) {
+        Link link = current;
+        if (link != null) {
+            link.transport.fillHealth(health);
+        }
+    }
+
+    /**
+     * Link to one address of the terminal, with the count of the requests sent on it and not answered yet
+     */
+    private class Link implements Listener {
+        private final String url;
+        private final Transport transport;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile String probeId;
+        private volatile CompletableFuture<ECRHubResponseProto.ECRHubResponse> probe;
+
+        private Link(String url, Transport transport) {
+            this.url = url;
+            this.transport = transport;
+        }
+
+        private CompletableFuture<ECRHubResponseProto.ECRHubResponse> probe(String msgId) {
+            probe = new CompletableFuture<>();
+            probeId = msgId;
+            return probe;
+        }
+
+        @Override
+        public ECRHubResponseProto.ECRHubResponse onMessage(byte[] message) {
+            String msgId = probeId;
+            if (msgId != null) {
+                try {
+                    ECRHubResponseProto.ECRHubResponse response = ECRHubResponseProto.ECRHubResponse.parseFrom(message);
+                    if (msgId.equals(response.getMsgId())) {
+                        probeId = null;
+                        probe.complete(response);
+                        return response;
+                    }
+                } catch (InvalidProtocolBufferException e) {
+                    // Left to the client listener
+                }
+            }
+            Listener current = listener;
+            ECRHubResponseProto.ECRHubResponse response = current != null ? current.onMessage(message) : null;
+            if (response != null) {
+                done();
+            }
+            return response;
+        }
+
+        /**
+         * A request sent on the link was answered or dropped
+         */
+        private void done() {
+            if (inFlight.updateAndGet(n -> n > 0 ? n - 1 : 0) == 0) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Wait until every request sent on the link was answered
+         *
+         * @return false if some are still in flight at the deadline
+         */
+        private synchronized boolean drain(long deadline) {
+            long wait;
+            while (inFlight.get() > 0 && (wait = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    wait(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            return inFlight.get() == 0;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.wiseasy.ecr.hub.sdk.spi.discovery;
+
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.spi.transport.Transport;
+import com.wiseasy.ecr.hub.sdk.spi.transport.TransportContext;
+import com.wiseasy.ecr.hub.sdk.spi.transport.TransportProvider;
+import com.wiseasy.ecr.hub.sdk.spi.transport.Transports;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Terminal by device SN, resolved through the default {@link TerminalRegistry}: sn://PP35272137000236
+ */
+public class DiscoveryTransportProvider implements TransportProvider {
+
+    @Override
+    public List<String> getSchemes() {
+        return Collections.singletonList("sn");
+    }
+
+    @Override
+    public Transport create(String url, TransportContext context) throws ECRHubException {
+        String deviceSn = Transports.getAddress(url);
+        if (deviceSn.isEmpty()) {
+            throw new ECRHubException("Invalid url, device SN is required:" + url);
+        }
+        return new DiscoveryTransport(deviceSn, TerminalRegistry.getDefault(), context);
+    }
+}
@@ -0,0 +1,204 @@
+package com.wiseasy.ecr.hub.sdk.spi.discovery;
+
+import com.alibaba.fastjson2.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UDP discovery of the terminals on the LAN.
+ *
+ * Clients broadcast a probe to {@link #PROBE_PORT} from their {@link #ANNOUNCE_PORT} socket, terminals answer
+ * with an announcement to the source of the probe, and broadcast one unsolicited to {@link #ANNOUNCE_PORT}
+ * after an address change. Both are small JSON datagrams:
+ * <pre>
+ * {"topic":"ecrhub.discovery.probe"}
+ * {"topic":"ecrhub.discovery.announce","device_sn":"PP35272137000236","scheme":"ws","ip_address":"192.168.1.20","port":35779}
+ * </pre>
+ * Announcements update a {@link TerminalRegistry}, the default one unless another is given, so sn:// clients
+ * follow their terminal to its new address.
+ */
+public class LanDiscovery implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(LanDiscovery.class);
+
+    public static final int PROBE_PORT = 35790;
+    public static final int ANNOUNCE_PORT = 35791;
+    public static final String TOPIC_PROBE = "ecrhub.discovery.probe";
+    public static final String TOPIC_ANNOUNCE = "ecrhub.discovery.announce";
+    private static final int MAX_DATAGRAM = 2048;
+
+    private final TerminalRegistry registry;
+    private int announcePort = ANNOUNCE_PORT;
+    private InetSocketAddress probeAddress = new InetSocketAddress("255.255.255.255", PROBE_PORT);
+    private long probeInterval = 60 * 1000;
+
+    private DatagramSocket socket;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running = false;
+
+    public LanDiscovery() {
+        this(TerminalRegistry.getDefault());
+    }
+
+    public LanDiscovery(TerminalRegistry registry) {
+        this.registry = registry;
+    }
+
+    public TerminalRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * UDP port the announcements are received on, 0 for any free port. Set before {@link #start()}
+     */
+    public void setAnnouncePort(int announcePort) {
+        this.announcePort = announcePort;
+    }
+
+    /**
+     * Where probes are sent, the limited broadcast address by default. Set before {@link #start()}
+     */
+    public void setProbeAddress(InetSocketAddress probeAddress) {
+        this.probeAddress = probeAddress;
+    }
+
+    /**
+     * Interval (milliseconds) between probes, 0 to probe only on start and for unknown terminals. Set before {@link #start()}
+     */
+    public void setProbeInterval(long probeInterval) {
+        this.probeInterval = probeInterval;
+    }
+
+    /**
+     * Local port announcements are received on, once started
+     */
+    public int getLocalPort() {
+        return socket != null ? socket.getLocalPort() : -1;
+    }
+
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        socket = new DatagramSocket(null);
+        socket.setReuseAddress(true);
+        socket.setBroadcast(true);
+        socket.bind(new InetSocketAddress(announcePort));
+        running = true;
+
+        Thread thread = new Thread(this::receive, "ECRHubDiscovery");
+        thread.setDaemon(true);
+        thread.start();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ECRHubDiscoveryProbe");
+            t.setDaemon(true);
+            return t;
+        });
+        if (probeInterval > 0) {
+            scheduler.scheduleWithFixedDelay(this::probe, 0, probeInterval, TimeUnit.MILLISECONDS);
+        } else {
+            scheduler.execute(this::probe);
+        }
+        registry.setProber(() -> scheduler.execute(this::probe));
+        log.info("LAN discovery listening on port {}", socket.getLocalPort());
+    }
+
+    /**
+     * Send a probe, the answers arrive asynchronously
+     */
+    public void probe() {
+        DatagramSocket current = socket;
+        if (!running || current == null) {
+            return;
+        }
+        JSONObject probe = new JSONObject();
+        probe.put("topic", TOPIC_PROBE);
+        byte[] bytes = probe.toJSONString().getBytes(StandardCharsets.UTF_8);
+        try {
+            current.send(new DatagramPacket(bytes, bytes.length, probeAddress));
+        } catch (IOException e) {
+            log.warn("Send discovery probe error:", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        registry.setProber(null);
+        scheduler.shutdownNow();
+        socket.close();
+    }
+
+    private void receive() {
+        byte[] buffer = new byte[MAX_DATAGRAM];
+        while (running) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+            } catch (SocketException e) {
+                // Closed
+                continue;
+            } catch (IOException e) {
+                log.warn("Receive discovery datagram error:", e);
+                continue;
+            }
+            TerminalEndpoint endpoint = decodeAnnounce(packet);
+            if (endpoint != null) {
+                registry.update(endpoint);
+            }
+        }
+    }
+
+    /**
+     * @return The endpoint announced, null if the datagram is not a valid announcement
+     */
+    static TerminalEndpoint decodeAnnounce(DatagramPacket packet) {
+        JSONObject json;
+        try {
+            json = JSONObject.parseObject(new String(packet.getData(), packet.getOffset(), packet.getLength(), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            return null;
+        }
+        if (json == null || !TOPIC_ANNOUNCE.equals(json.getString("topic")) || json.getString("device_sn") == null || json.getIntValue("port") <= 0) {
+            return null;
+        }
+        String ip = json.getString("ip_address");
+        if (ip == null || ip.isEmpty()) {
+            ip = packet.getAddress().getHostAddress();
+        }
+        String scheme = json.getString("scheme") != null ? json.getString("scheme") : "ws";
+        TerminalEndpoint endpoint = new TerminalEndpoint(json.getString("device_sn"), scheme + "://" + ip + ":" + json.getIntValue("port"));
+        endpoint.setAppName(json.getString("app_name"));
+        endpoint.setAppVersion(json.getString("app_version"));
+        return endpoint;
+    }
+
+    /**
+     * Announcement datagram of a terminal, see the class description
+     */
+    public static byte[] encodeAnnounce(String deviceSn, String scheme, InetAddress address, int port) {
+        JSONObject json = new JSONObject();
+        json.put("topic", TOPIC_ANNOUNCE);
+        json.put("device_sn", deviceSn);
+        json.put("scheme", scheme);
+        json.put("ip_address", address.getHostAddress());
+        json.put("port", port);
+        return json.toJSONString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,76 @@
+package com.wiseasy.ecr.hub.sdk.spi.discovery;
+
+import com.alibaba.fastjson2.JSON;
+
+/**
+ * Network address of a terminal, as announced on the LAN
+ */
+public class TerminalEndpoint {
+    /**
+     * Terminal serial number, see ResponseDeviceData
+     */
+    private String deviceSn;
+    /**
+     * URL the clients connect to, e.g. ws://192.168.1.20:35779
+     */
+    private String url;
+    private String appName;
+    private String appVersion;
+    /**
+     * Time (milliseconds) of the last announcement
+     */
+    private long lastSeen;
+
+    public TerminalEndpoint() {
+    }
+
+    public TerminalEndpoint(String deviceSn, String url) {
+        this.deviceSn = deviceSn;
+        this.url = url;
+    }
+
+    public String getDeviceSn() {
+        return deviceSn;
+    }
+
+    public void setDeviceSn(String deviceSn) {
+        this.deviceSn = deviceSn;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getAppName() {
+        return appName;
+    }
+
+    public void setAppName(String appName) {
+        this.appName = appName;
+    }
+
+    public String getAppVersion() {
+        return appVersion;
+    }
+
+    public void setAppVersion(String appVersion) {
+        this.appVersion = appVersion;
+    }
+
+    public long getLastSeen() {
+        return lastSeen;
+    }
+
+    public void setLastSeen(long lastSeen) {
+        this.lastSeen = lastSeen;
+    }
+
+    @Override
+    public String toString() {
+        return JSON.toJSONString(this);
+    }
+}
@@ -0,0 +1,126 @@
+package com.wiseasy.ecr.hub.sdk.spi.discovery;
+
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Cached terminal endpoints by device SN.
+ *
+ * Fed by {@link LanDiscovery}, read by the sn:// transport. Lookups never block on the network:
+ * the last known endpoint is kept until a newer announcement replaces it.
+ */
+public class TerminalRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(TerminalRegistry.class);
+
+    private static final TerminalRegistry DEFAULT = new TerminalRegistry();
+
+    /**
+     * Notified on the discovery thread, must not block
+     */
+    public interface Listener {
+        /**
+         * @param previous The endpoint replaced, null for a new terminal
+         */
+        void onChanged(TerminalEndpoint previous, TerminalEndpoint current);
+    }
+
+    private final Map<String, TerminalEndpoint> endpoints = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Runnable prober;
+
+    /**
+     * Registry used by the sn:// transport
+     */
+    public static TerminalRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public TerminalEndpoint get(String deviceSn) {
+        return endpoints.get(deviceSn);
+    }
+
+    public List<TerminalEndpoint> getAll() {
+        return new ArrayList<>(endpoints.values());
+    }
+
+    /**
+     * Record an announcement, listeners are notified when the URL of the terminal changed
+     */
+    public void update(TerminalEndpoint endpoint) {
+        if (endpoint.getLastSeen() == 0) {
+            endpoint.setLastSeen(System.currentTimeMillis());
+        }
+        TerminalEndpoint previous = endpoints.put(endpoint.getDeviceSn(), endpoint);
+        if (previous != null && Objects.equals(previous.getUrl(), endpoint.getUrl())) {
+            return;
+        }
+        log.info("Terminal {} at {}", endpoint.getDeviceSn(), endpoint.getUrl());
+        synchronized (this) {
+            notifyAll();
+        }
+        for (Listener listener : listeners) {
+            try {
+                listener.onChanged(previous, endpoint);
+            } catch (RuntimeException e) {
+                log.warn("Registry listener error:", e);
+            }
+        }
+    }
+
+    public TerminalEndpoint remove(String deviceSn) {
+        return endpoints.remove(deviceSn);
+    }
+
+    /**
+     * Wait for the endpoint of a terminal, asking the prober to look for it if it is unknown
+     *
+     * @param deadline Absolute time (milliseconds)
+     */
+    public synchronized TerminalEndpoint await(String deviceSn, long deadline) throws ECRHubTimeoutException {
+        TerminalEndpoint endpoint = endpoints.get(deviceSn);
+        if (endpoint == null && prober != null) {
+            prober.run();
+        }
+        while (endpoint == null) {
+            long wait = deadline - System.currentTimeMillis();
+            if (wait <= 0) {
+                throw new ECRHubTimeoutException("Terminal not found:" + deviceSn);
+            }
+            try {
+                wait(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ECRHubTimeoutException("Interrupted while looking for terminal " + deviceSn);
+            }
+            endpoint = endpoints.get(deviceSn);
+        }
+        return endpoint;
+    }
+
+    /**
+     * Add a listener, once however often it is added
+     */
+    public void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @param prober Sends a discovery probe without waiting for the answers, null for none
+     */
+    public void setProber(Runnable prober) {
+        this.prober = prober;
+    }
+}
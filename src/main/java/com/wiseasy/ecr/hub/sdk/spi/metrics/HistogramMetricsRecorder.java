@@ -0,0 +1,99 @@
+package com.wiseasy.ecr.hub.sdk.spi.metrics;
+
+import com.wiseasy.ecr.hub.sdk.enums.ECounter;
+import com.wiseasy.ecr.hub.sdk.enums.EMetric;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory metrics, one {@link LatencyHistogram} per terminal, topic and metric
+ * and one set of counters per terminal and topic.
+ *
+ * Link-level frames without a topic are recorded under {@link #NO_TOPIC}.
+ */
+public class HistogramMetricsRecorder implements MetricsRecorder {
+
+    public static final String NO_TOPIC = "-";
+
+    private final Map<String, Map<String, TopicMetrics>> terminals = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordLatency(EMetric metric, String terminal, String topic, long nanos) {
+        metricsOf(terminal, topic).histograms[metric.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void increment(ECounter counter, String terminal, String topic, long delta) {
+        metricsOf(terminal, topic).counters.addAndGet(counter.ordinal(), delta);
+    }
+
+    public Set<String> getTerminals() {
+        return Collections.unmodifiableSet(terminals.keySet());
+    }
+
+    public Set<String> getTopics(String terminal) {
+        Map<String, TopicMetrics> topics = terminals.get(terminal);
+        return topics != null ? Collections.unmodifiableSet(topics.keySet()) : Collections.emptySet();
+    }
+
+    public LatencyHistogram getHistogram(String terminal, String topic, EMetric metric) {
+        return metricsOf(terminal, topic).histograms[metric.ordinal()];
+    }
+
+    public long getCount(String terminal, String topic, ECounter counter) {
+        return metricsOf(terminal, topic).counters.get(counter.ordinal());
+    }
+
+    public void reset() {
+        terminals.clear();
+    }
+
+    private TopicMetrics metricsOf(String terminal, String topic) {
+        Map<String, TopicMetrics> topics = terminals.get(terminal);
+        if (topics == null) {
+            topics = terminals.computeIfAbsent(terminal, k -> new ConcurrentHashMap<>());
+        }
+        String key = topic != null ? topic : NO_TOPIC;
+        TopicMetrics metrics = topics.get(key);
+        if (metrics == null) {
+            metrics = topics.computeIfAbsent(key, k -> new TopicMetrics());
+        }
+        return metrics;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        terminals.forEach((terminal, topics) -> topics.forEach((topic, metrics) -> {
+            sb.append(terminal).append(' ').append(topic).append('\n');
+            for (EMetric metric : EMetric.values()) {
+                LatencyHistogram histogram = metrics.histograms[metric.ordinal()];
+                if (histogram.getCount() > 0) {
+                    sb.append("  ").append(metric).append("(ns): ").append(histogram).append('\n');
+                }
+            }
+            for (ECounter counter : ECounter.values()) {
+                long count = metrics.counters.get(counter.ordinal());
+                if (count > 0) {
+                    sb.append("  ").append(counter).append(": ").append(count).append('\n');
+                }
+            }
+        }));
+        return sb.toString();
+    }
+
+    private static class TopicMetrics {
+        private final LatencyHistogram[] histograms = new LatencyHistogram[EMetric.values().length];
+        private final AtomicLongArray counters = new AtomicLongArray(ECounter.values().length);
+
+        private TopicMetrics() {
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.wiseasy.ecr.hub.sdk.spi.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear histogram of non-negative values.
+ *
+ * Values below 64 are counted exactly. Above that each power of two is split into 32 linear
+ * sub-buckets, which bounds the relative error of a reported percentile to about 3%,
+ * over the whole long range in 1920 buckets.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // retry
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * @param percentile 0 to 100, e.g. 99.9
+     * @return the upper bound of the bucket holding the value at the percentile, 0 if empty
+     */
+    public long getValueAtPercentile(double percentile) {
+        return getValuesAtPercentiles(percentile)[0];
+    }
+
+    /**
+     * Several percentiles from one snapshot of the buckets, consistent with each other
+     *
+     * @param percentiles 0 to 100 each, in any order
+     * @return the value at each percentile, see {@link #getValueAtPercentile(double)}
+     */
+    public long[] getValuesAtPercentiles(double... percentiles) {
+        long[] values = new long[percentiles.length];
+        long total = 0;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return values;
+        }
+        long maxValue = max.get();
+        for (int p = 0; p < percentiles.length; p++) {
+            long rank = Math.max(1, (long) Math.ceil(total * Math.min(percentiles[p], 100) / 100));
+            long seen = 0;
+            values[p] = maxValue;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    values[p] = Math.min(upperBoundOf(i), maxValue);
+                    break;
+                }
+            }
+        }
+        return values;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    static int indexOf(long value) {
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        if (shift <= 0) {
+            return (int) value;
+        }
+        return shift * SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    static long upperBoundOf(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long mantissa = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        long[] values = getValuesAtPercentiles(50, 99, 99.9);
+        return "count=" + getCount()
+                + ", mean=" + (long) getMean()
+                + ", p50=" + values[0]
+                + ", p99=" + values[1]
+                + ", p999=" + values[2]
+                + ", max=" + getMax();
+    }
+}
@@ -0,0 +1,24 @@
+package com.wiseasy.ecr.hub.sdk.spi.metrics;
+
+import com.wiseasy.ecr.hub.sdk.enums.ECounter;
+import com.wiseasy.ecr.hub.sdk.enums.EMetric;
+
+/**
+ * Metrics SPI, called on the transport paths so implementations must be cheap and thread-safe.
+ *
+ * The terminal is the serial port name or WebSocket URL. The topic is null for link-level frames.
+ */
+public interface MetricsRecorder {
+
+    /**
+     * Records nothing, the default
+     */
+    MetricsRecorder NOOP = new MetricsRecorder() {
+    };
+
+    default void recordLatency(EMetric metric, String terminal, String topic, long nanos) {
+    }
+
+    default void increment(ECounter counter, String terminal, String topic, long delta) {
+    }
+}
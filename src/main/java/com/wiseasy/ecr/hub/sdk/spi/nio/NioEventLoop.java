@@ -0,0 +1,166 @@
+package com.wiseasy.ecr.hub.sdk.spi.nio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Selector thread shared by many non-blocking channels.
+ *
+ * Registrations, interest changes and other tasks are queued with {@link #execute(Runnable)} and run on the loop thread,
+ * ready keys are dispatched to the {@link Handler} attached to them. All the network transports of a JVM share
+ * a small static pool of loops, see {@link #next()}, so the thread count does not grow with the connection count.
+ */
+public class NioEventLoop {
+
+    private static final Logger log = LoggerFactory.getLogger(NioEventLoop.class);
+
+    private static final int DEFAULT_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    private static final AtomicInteger NEXT = new AtomicInteger();
+    private static volatile NioEventLoop[] shared;
+
+    /**
+     * Handles the readiness of a channel, on the loop thread. Must not block
+     */
+    public interface Handler {
+        void onReady(SelectionKey key);
+    }
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public NioEventLoop(String name) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * A loop of the shared pool, round robin
+     */
+    public static NioEventLoop next() {
+        NioEventLoop[] loops = shared;
+        if (loops == null) {
+            synchronized (NioEventLoop.class) {
+                loops = shared;
+                if (loops == null) {
+                    loops = new NioEventLoop[DEFAULT_THREADS];
+                    try {
+                        for (int i = 0; i < loops.length; i++) {
+                            loops[i] = new NioEventLoop("ECRHubNioEventLoop-" + i);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to open a selector", e);
+                    }
+                    shared = loops;
+                }
+            }
+        }
+        return loops[Math.floorMod(NEXT.getAndIncrement(), loops.length)];
+    }
+
+    public boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Run a task on the loop thread
+     */
+    public void execute(Runnable task) {
+        tasks.add(task);
+        if (!inEventLoop()) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Register a channel, the handler is attached to its key
+     */
+    public CompletableFuture<SelectionKey> register(SelectableChannel channel, int ops, Handler handler) {
+        CompletableFuture<SelectionKey> future = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                future.complete(channel.register(selector, ops, handler));
+            } catch (ClosedChannelException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Change the interest set of a key from any thread
+     */
+    public void setInterest(SelectionKey key, int ops) {
+        if (inEventLoop()) {
+            if (key.isValid()) {
+                key.interestOps(ops);
+            }
+        } else {
+            execute(() -> setInterest(key, ops));
+        }
+    }
+
+    /**
+     * Stop the loop and close its selector, the channels still registered are not closed
+     */
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void run() {
+        while (running) {
+            runTasks();
+            try {
+                selector.select();
+            } catch (IOException e) {
+                log.warn("Select error:", e);
+                continue;
+            }
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (!key.isValid()) {
+                    continue;
+                }
+                try {
+                    ((Handler) key.attachment()).onReady(key);
+                } catch (RuntimeException e) {
+                    log.warn("Channel handler error:", e);
+                }
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            log.warn("Close selector error:", e);
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.warn("Event loop task error:", e);
+            }
+        }
+    }
+}
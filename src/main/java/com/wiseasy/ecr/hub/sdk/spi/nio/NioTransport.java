@@ -0,0 +1,432 @@
+package com.wiseasy.ecr.hub.sdk.spi.nio;
+
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig;
+import com.wiseasy.ecr.hub.sdk.ECRHubHealth;
+import com.wiseasy.ecr.hub.sdk.enums.ECounter;
+import com.wiseasy.ecr.hub.sdk.enums.EDirection;
+import com.wiseasy.ecr.hub.sdk.enums.EEvent;
+import com.wiseasy.ecr.hub.sdk.enums.EPriority;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubTimeoutException;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto;
+import com.wiseasy.ecr.hub.sdk.spi.ECRHubEvents;
+import com.wiseasy.ecr.hub.sdk.spi.FlightRecorder;
+import com.wiseasy.ecr.hub.sdk.spi.FrameScheduler;
+import com.wiseasy.ecr.hub.sdk.spi.LinkActivity;
+import com.wiseasy.ecr.hub.sdk.spi.WireTrace;
+import com.wiseasy.ecr.hub.sdk.spi.metrics.MetricsRecorder;
+import com.wiseasy.ecr.hub.sdk.spi.transport.Transport;
+import com.wiseasy.ecr.hub.sdk.spi.transport.TransportContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Base of the transports over a non-blocking {@link SocketChannel} served by a shared {@link NioEventLoop}.
+ *
+ * Connecting, reading, writing and closing are done here, the subclasses only frame and unframe messages.
+ * The outbound frames are written by the event loop too, so a connection costs no thread of its own.
+ * Reads and writes go through direct buffers, TCP_NODELAY and SO_KEEPALIVE are on.
+ */
+public abstract class NioTransport implements Transport, NioEventLoop.Handler {
+
+    private static final Logger log = LoggerFactory.getLogger(NioTransport.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InetSocketAddress address;
+    private final String terminal;
+    protected final WireTrace trace;
+    protected final FlightRecorder recorder;
+    protected final MetricsRecorder metrics;
+    protected final NioEventLoop loop;
+    protected final FrameScheduler outQueue;
+
+    private volatile SocketChannel channel;
+    private volatile SelectionKey key;
+    private volatile CompletableFuture<Void> connectFuture;
+    private volatile boolean open = false;
+    private volatile Listener listener;
+    private final LinkActivity activity = new LinkActivity();
+
+    /**
+     * Used by the loop thread only
+     */
+    private ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    /**
+     * Bytes the socket did not accept yet, flushed when it becomes writable
+     */
+    private final Queue<ByteBuffer> pending = new ArrayDeque<>();
+
+    /**
+     * @param address May be unresolved, it is resolved on every connect
+     */
+    protected NioTransport(String name, InetSocketAddress address, String terminal, TransportContext context, NioEventLoop loop) {
+        this.address = address;
+        this.terminal = terminal;
+        this.trace = context.getWireTrace();
+        this.recorder = context.getFlightRecorder();
+        this.metrics = context.getMetrics();
+        this.loop = loop;
+        this.outQueue = new FrameScheduler(name, context.getConfig().getSchedulerConfig(), this::write, terminal, metrics, loop::execute);
+    }
+
+    /**
+     * Called on the loop thread once the TCP connection is established.
+     * Call {@link #connected()} when the link is ready, at once by default.
+     */
+    protected void onConnect() throws IOException {
+        connected();
+    }
+
+    /**
+     * Consume the complete frames at the start of the buffer, on the loop thread
+     *
+     * @return Size of the incomplete frame left at the start of the buffer when it is known, so the buffer can grow
+     */
+    protected abstract int decode(ByteBuffer buffer) throws IOException;
+
+    /**
+     * Frame a message in place, see {@link Transport#send}
+     *
+     * @return The frame to write
+     */
+    protected abstract byte[] encode(byte[] buffer, int length);
+
+    /**
+     * Frame the terminal answers with any frame
+     */
+    protected abstract byte[] encodeHeartbeat();
+
+    /**
+     * Called on the loop thread just before a local close, e.g. to write a close frame with {@link #write(byte[])}
+     */
+    protected void onClose() {
+    }
+
+    protected InetSocketAddress getAddress() {
+        return address;
+    }
+
+    @Override
+    public String getTerminal() {
+        return terminal;
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void connect(long deadline) throws ECRHubException {
+        if (open) {
+            return;
+        }
+        Object event = ECRHubEvents.begin(EEvent.HANDSHAKE);
+        try {
+            SocketChannel ch = SocketChannel.open();
+            ch.configureBlocking(false);
+            ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            ch.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            connectFuture = future;
+            channel = ch;
+            // Resolved on every connect, to follow DNS changes
+            InetSocketAddress resolved = new InetSocketAddress(address.getHostString(), address.getPort());
+            if (resolved.isUnresolved()) {
+                throw new IOException("Unknown host:" + address.getHostString());
+            }
+            if (ch.connect(resolved)) {
+                // Connected at once, e.g. on loopback: OP_CONNECT would never become ready
+                key = loop.register(ch, 0, this).get(remaining(deadline), TimeUnit.MILLISECONDS);
+                loop.execute(this::establishedNow);
+            } else {
+                key = loop.register(ch, SelectionKey.OP_CONNECT, this).get(remaining(deadline), TimeUnit.MILLISECONDS);
+            }
+            future.get(remaining(deadline), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            loop.execute(this::closeChannel);
+            throw new ECRHubTimeoutException("Connection timeout");
+        } catch (InterruptedException e) {
+            loop.execute(this::closeChannel);
+            Thread.currentThread().interrupt();
+            throw new ECRHubException("Connection interrupted", e);
+        } catch (IOException | ExecutionException e) {
+            loop.execute(this::closeChannel);
+            throw new ECRHubException("Failed to connect to " + terminal, e instanceof ExecutionException ? e.getCause() : e);
+        } finally {
+            ECRHubEvents.commit(event, terminal, null, null, 0);
+        }
+        open = true;
+        outQueue.start();
+        log.info("Connected to {}", terminal);
+    }
+
+    private static long remaining(long deadline) {
+        return Math.max(deadline - System.currentTimeMillis(), 1);
+    }
+
+    /**
+     * Complete the connect, on the loop thread
+     */
+    protected void connected() {
+        connectFuture.complete(null);
+    }
+
+    @Override
+    public boolean disconnect() throws ECRHubException {
+        if (channel == null) {
+            return true;
+        }
+        // Queued frames are drained on the loop before the close
+        outQueue.stop();
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        loop.execute(() -> {
+            if (open) {
+                onClose();
+            }
+            closeChannel();
+            closed.complete(null);
+        });
+        try {
+            closed.get(5, TimeUnit.SECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ECRHubException("disconnect error", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new ECRHubException("disconnect error", e);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public boolean isPairingRequired() {
+        return false;
+    }
+
+    @Override
+    public long getConnTimeout(ECRHubConfig config) {
+        return config.getSocketConfig().getConnTimeout();
+    }
+
+    @Override
+    public long getReadTimeout(ECRHubConfig config) {
+        return config.getSocketConfig().getSocketTimeout();
+    }
+
+    @Override
+    public void send(byte[] buffer, int length, String topic, EPriority priority, long deadline, WriteListener listener) throws ECRHubException {
+        if (!open) {
+            throw new ECRHubException("The connection to " + terminal + " is not open.");
+        }
+        recorder.record(EDirection.OUTBOUND, (byte) 0, (byte) 0, (byte) 0, buffer, getHeadroom(), length);
+        byte[] frame = encode(buffer, length);
+        trace.trace(EDirection.OUTBOUND, topic, "message", frame);
+        outQueue.submit(frame, topic, priority, deadline, listener);
+    }
+
+    @Override
+    public boolean heartbeat(long timeout) {
+        if (!open) {
+            return false;
+        }
+        CompletableFuture<Long> read = activity.expectRead();
+        byte[] frame = encodeHeartbeat();
+        trace.trace(EDirection.OUTBOUND, null, "heartbeat frame", frame);
+        outQueue.submitControl(frame);
+        return activity.await(read, timeout);
+    }
+
+    @Override
+    public void fillHealth(ECRHubHealth health) {
+        health.setHandshake(open);
+        health.setLastFrameTime(activity.getLastReadTime());
+        health.setLastHeartbeatTime(activity.getLastHeartbeatTime());
+        health.setQueueSize(outQueue.size());
+    }
+
+    /**
+     * Write bytes to the socket, what it does not accept is flushed when it becomes writable.
+     * Called on the loop thread by the frame scheduler, or by the subclasses for link-level frames.
+     */
+    protected void write(byte[] frame) throws IOException {
+        SocketChannel ch = channel;
+        if (ch == null || !ch.isOpen()) {
+            throw new IOException("The connection to " + terminal + " is closed.");
+        }
+        metrics.increment(ECounter.FRAMES_OUT, terminal, null, 1);
+        metrics.increment(ECounter.BYTES_OUT, terminal, null, frame.length);
+        Object event = ECRHubEvents.begin(EEvent.FRAME_WRITE);
+        try {
+            if (!pending.isEmpty()) {
+                pending.add(ByteBuffer.wrap(frame));
+                return;
+            }
+            ByteBuffer buffer;
+            if (frame.length <= writeBuffer.capacity()) {
+                buffer = writeBuffer;
+                buffer.clear();
+                buffer.put(frame).flip();
+            } else {
+                buffer = ByteBuffer.wrap(frame);
+            }
+            ch.write(buffer);
+            if (buffer.hasRemaining()) {
+                ByteBuffer rest = ByteBuffer.allocate(buffer.remaining());
+                rest.put(buffer).flip();
+                pending.add(rest);
+                loop.setInterest(key, SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        } finally {
+            ECRHubEvents.commit(event, terminal, null, null, frame.length);
+        }
+    }
+
+    @Override
+    public void onReady(SelectionKey key) {
+        try {
+            if (key.isConnectable()) {
+                channel.finishConnect();
+                established(key);
+                return;
+            }
+            if (key.isReadable() && !read()) {
+                return;
+            }
+            if (key.isValid() && key.isWritable()) {
+                flush(key);
+            }
+        } catch (IOException | RuntimeException e) {
+            if (connectFuture.completeExceptionally(e)) {
+                closeChannel();
+                return;
+            }
+            log.warn("Connection to {} lost:", terminal, e);
+            closed();
+        }
+    }
+
+    /**
+     * Start reading once the TCP connection is established, on the loop thread
+     */
+    private void established(SelectionKey key) throws IOException {
+        key.interestOps(SelectionKey.OP_READ);
+        readBuffer.clear();
+        onConnect();
+    }
+
+    /**
+     * Complete a connect that finished at once, on the loop thread
+     */
+    private void establishedNow() {
+        try {
+            established(key);
+        } catch (IOException | RuntimeException e) {
+            connectFuture.completeExceptionally(e);
+            closeChannel();
+        }
+    }
+
+    /**
+     * @return false when the connection was closed
+     */
+    private boolean read() throws IOException {
+        int numRead = channel.read(readBuffer);
+        if (numRead < 0) {
+            log.info("Connection closed by {}", terminal);
+            closed();
+            return false;
+        }
+        if (numRead == 0) {
+            return true;
+        }
+        activity.onRead();
+        metrics.increment(ECounter.BYTES_IN, terminal, null, numRead);
+
+        readBuffer.flip();
+        int required = decode(readBuffer);
+        if (channel == null) {
+            return false;
+        }
+        if (required > readBuffer.capacity()) {
+            // Grow for a frame larger than the buffer
+            ByteBuffer buffer = ByteBuffer.allocateDirect(required);
+            buffer.put(readBuffer);
+            readBuffer = buffer;
+        } else {
+            readBuffer.compact();
+        }
+        return true;
+    }
+
+    /**
+     * Deliver a received message to the client core, on the loop thread
+     */
+    protected void onMessage(byte[] message) {
+        Object event = ECRHubEvents.begin(EEvent.FRAME_READ);
+        recorder.record(EDirection.INBOUND, (byte) 0, (byte) 0, (byte) 0, message);
+        metrics.increment(ECounter.FRAMES_IN, terminal, null, 1);
+        Listener current = listener;
+        ECRHubResponseProto.ECRHubResponse respProto = current != null ? current.onMessage(message) : null;
+        String topic = respProto != null ? respProto.getTopic() : null;
+        trace.trace(EDirection.INBOUND, topic, "message", message);
+        ECRHubEvents.commit(event, terminal, topic, respProto != null ? respProto.getMsgId() : null, message.length);
+    }
+
+    private void flush(SelectionKey key) throws IOException {
+        ByteBuffer buffer;
+        while ((buffer = pending.peek()) != null) {
+            channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                return;
+            }
+            pending.poll();
+        }
+        key.interestOps(SelectionKey.OP_READ);
+    }
+
+    /**
+     * Close after the terminal closed the link or an error, on the loop thread
+     */
+    protected void closed() {
+        outQueue.stop();
+        closeChannel();
+    }
+
+    private void closeChannel() {
+        open = false;
+        SelectionKey currentKey = key;
+        if (currentKey != null) {
+            currentKey.cancel();
+        }
+        SocketChannel ch = channel;
+        channel = null;
+        if (ch != null) {
+            try {
+                ch.close();
+            } catch (IOException e) {
+                log.warn("Close channel error:", e);
+            }
+        }
+        pending.clear();
+    }
+}
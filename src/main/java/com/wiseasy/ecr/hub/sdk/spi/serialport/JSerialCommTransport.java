@@ -0,0 +1,117 @@
+package com.wiseasy.ecr.hub.sdk.spi.serialport;
+
+import cn.hutool.core.util.StrUtil;
+import com.fazecast.jSerialComm.SerialPort;
+import com.fazecast.jSerialComm.SerialPortDataListener;
+import com.fazecast.jSerialComm.SerialPortEvent;
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig.SerialPortConfig;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Physical serial port through jSerialComm
+ */
+public class JSerialCommTransport implements SerialTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(JSerialCommTransport.class);
+
+    private static final String PORT_NAME_TAG = "GPS";
+
+    private final SerialPort serialPort;
+
+    public JSerialCommTransport(SerialPort serialPort) {
+        this.serialPort = serialPort;
+    }
+
+    /**
+     * @param portName Port name, the first port described as GPS if blank
+     */
+    public static JSerialCommTransport create(String portName) throws ECRHubException {
+        SerialPort serialPort = null;
+        if (StrUtil.isBlank(portName)) {
+            serialPort = findSerialPort(PORT_NAME_TAG);
+            if (serialPort == null) {
+                throw new ECRHubException("The serial port cannot be empty.");
+            }
+        } else {
+            try {
+                serialPort = SerialPort.getCommPort(portName);
+            } catch (Exception e) {
+                log.error("The serial port[{}] is invalid.", portName);
+                throw new ECRHubException(e);
+            }
+        }
+        if (serialPort.isOpen()) {
+            throw new ECRHubException("The serial port[" + portName + "] is already used.");
+        }
+        return new JSerialCommTransport(serialPort);
+    }
+
+    private static SerialPort findSerialPort(String portNameTag) {
+        for (SerialPort port : SerialPort.getCommPorts()) {
+            String portName = port.getDescriptivePortName();
+            if (StrUtil.contains(portName, portNameTag)) {
+                return port;
+            }
+        }
+        return null;
+    }
+
+    public SerialPort getSerialPort() {
+        return serialPort;
+    }
+
+    @Override
+    public String getName() {
+        return serialPort.getSystemPortName();
+    }
+
+    @Override
+    public boolean open(SerialPortConfig config) {
+        serialPort.setComPortParameters(config.getBaudRate(), config.getDataBits(), config.getStopBits(), config.getParity());
+        serialPort.setComPortTimeouts(config.getTimeoutMode(), config.getReadTimeout(), config.getWriteTimeout());
+        return serialPort.openPort();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return serialPort.isOpen();
+    }
+
+    @Override
+    public boolean close() {
+        return serialPort.closePort();
+    }
+
+    @Override
+    public int write(byte[] bytes, int length) {
+        return serialPort.writeBytes(bytes, length);
+    }
+
+    @Override
+    public int bytesAvailable() {
+        return serialPort.bytesAvailable();
+    }
+
+    @Override
+    public int read(byte[] buffer, int length) {
+        return serialPort.readBytes(buffer, length);
+    }
+
+    @Override
+    public void setDataListener(DataListener listener) {
+        serialPort.removeDataListener();
+        serialPort.addDataListener(new SerialPortDataListener() {
+            @Override
+            public int getListeningEvents() {
+                return SerialPort.LISTENING_EVENT_DATA_RECEIVED;
+            }
+
+            @Override
+            public void serialEvent(SerialPortEvent event) {
+                listener.onData(event.getReceivedData());
+            }
+        });
+    }
+}
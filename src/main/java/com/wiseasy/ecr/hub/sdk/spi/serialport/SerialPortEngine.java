@@ -1,23 +1,31 @@
 package com.wiseasy.ecr.hub.sdk.spi.serialport;
 
-import cn.hutool.cache.impl.FIFOCache;
 import cn.hutool.core.thread.ThreadUtil;
-import cn.hutool.core.util.StrUtil;
-import com.fazecast.jSerialComm.SerialPort;
-import com.fazecast.jSerialComm.SerialPortDataListener;
-import com.fazecast.jSerialComm.SerialPortEvent;
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig;
 import com.wiseasy.ecr.hub.sdk.ECRHubConfig.SerialPortConfig;
+import com.wiseasy.ecr.hub.sdk.ECRHubHealth;
+import com.wiseasy.ecr.hub.sdk.enums.ECounter;
+import com.wiseasy.ecr.hub.sdk.enums.EDirection;
+import com.wiseasy.ecr.hub.sdk.enums.EEvent;
+import com.wiseasy.ecr.hub.sdk.enums.EMetric;
+import com.wiseasy.ecr.hub.sdk.enums.EPriority;
 import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
 import com.wiseasy.ecr.hub.sdk.exception.ECRHubTimeoutException;
-import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubProtobufHelper;
 import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto;
-import com.wiseasy.ecr.hub.sdk.utils.HexUtil;
+import com.wiseasy.ecr.hub.sdk.spi.ECRHubEvents;
+import com.wiseasy.ecr.hub.sdk.spi.FlightRecorder;
+import com.wiseasy.ecr.hub.sdk.spi.FrameScheduler;
+import com.wiseasy.ecr.hub.sdk.spi.LinkActivity;
+import com.wiseasy.ecr.hub.sdk.spi.WireTrace;
+import com.wiseasy.ecr.hub.sdk.spi.metrics.MetricsRecorder;
+import com.wiseasy.ecr.hub.sdk.spi.transport.Transport;
+import com.wiseasy.ecr.hub.sdk.spi.transport.TransportContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * @program: ECR-Hub
@@ -25,104 +33,108 @@ import java.util.concurrent.LinkedBlockingQueue;
  * @author: jzj
  * @create: 2023-09-08 11:44
  **/
-public class SerialPortEngine {
+public class SerialPortEngine implements Transport {
 
     private static final Logger log = LoggerFactory.getLogger(SerialPortEngine.class);
 
-    private static final String PORT_NAME_TAG = "GPS";
     private final SerialPortConfig config;
-    private final SerialPort serialPort;
+    private final SerialTransport transport;
     private final SerialPortPacketDecoder packDecoder;
+    private final WireTrace trace;
+    private final FlightRecorder recorder;
+    private final MetricsRecorder metrics;
+    private final String terminal;
+
+    private final FrameScheduler outQueue;
+    private volatile Listener listener;
+    private volatile boolean handshake = false;
+    private final LinkActivity activity = new LinkActivity();
+
+    /**
+     * Write time (nanoseconds) and topic of the data packets waiting for their ACK, indexed by packet id
+     */
+    private final AtomicLongArray ackPending = new AtomicLongArray(128);
+    private final String[] ackTopics = new String[128];
+    private final Object[] ackEvents = new Object[128];
+
+    public SerialPortEngine(String portName, TransportContext context) throws ECRHubException {
+        this(JSerialCommTransport.create(portName), context);
+    }
 
-    private final BlockingQueue<byte[]> outQueue;
-    private Thread writeThread;
-
-    private final FIFOCache<String, String> MSG_CACHE = new FIFOCache<>(20, 10 * 60 * 1000);
-
-    public SerialPortEngine(String portName, SerialPortConfig config) throws ECRHubException {
-        this.config = config;
-        this.serialPort = getCommPort(portName);
-        this.packDecoder = new SerialPortPacketDecoder();
-        this.outQueue = new LinkedBlockingQueue<>();
+    public SerialPortEngine(SerialTransport transport, TransportContext context) {
+        this.config = context.getConfig().getSerialPortConfig();
+        this.trace = context.getWireTrace();
+        this.recorder = context.getFlightRecorder();
+        this.metrics = context.getMetrics();
+        this.transport = transport;
+        this.terminal = transport.getName();
+        this.packDecoder = new SerialPortPacketDecoder(() -> metrics.increment(ECounter.FRAMING_ERRORS, terminal, null, 1));
+        this.outQueue = new FrameScheduler("SerialPort", context.getConfig().getSchedulerConfig(), this::writeFrame, terminal, metrics);
     }
 
-    public SerialPort getCommPort(String portName) throws ECRHubException {
-        SerialPort serialPort = null;
-        if (StrUtil.isBlank(portName)) {
-            serialPort = findSerialPort(PORT_NAME_TAG);
-            if (serialPort == null) {
-                throw new ECRHubException("The serial port cannot be empty.");
-            }
-        } else {
-            try {
-                serialPort = SerialPort.getCommPort(portName);
-            } catch (Exception e) {
-                log.error("The serial port[{}] is invalid.", portName);
-                throw new ECRHubException(e);
-            }
-        }
-        if (serialPort.isOpen()) {
-            throw new ECRHubException("The serial port[" + portName + "] is already used.");
-        }
-        return serialPort;
+    @Override
+    public String getTerminal() {
+        return terminal;
     }
 
-    private SerialPort findSerialPort(String portNameTag) {
-        for (SerialPort port : SerialPort.getCommPorts()) {
-            String portName = port.getDescriptivePortName();
-            if (StrUtil.contains(portName, portNameTag)) {
-                return port;
-            }
-        }
-        return null;
+    @Override
+    public void setListener(Listener listener) {
+        this.listener = listener;
     }
 
-    public void connect(long startTime, int timeout) throws ECRHubException {
+    @Override
+    public void connect(long deadline) throws ECRHubException {
+        if (handshake && isOpen()) {
+            return;
+        }
         // Open serial port
         doOpen();
 
         // Handshake
-        doHandshake(startTime, timeout);
+        doHandshake(deadline);
 
         // Add data listener
-        serialPort.addDataListener(new ReadListener());
+        transport.setDataListener(new ReadListener());
 
         // Start Write Thread
-        writeThread = new Thread(new WriteThread());
-        writeThread.start();
+        outQueue.start();
+        handshake = true;
     }
 
     private void doOpen() throws ECRHubException {
-        if (!serialPort.isOpen()) {
-            serialPort.setComPortParameters(config.getBaudRate(), config.getDataBits(), config.getStopBits(), config.getParity());
-            serialPort.setComPortTimeouts(config.getTimeoutMode(), config.getReadTimeout(), config.getWriteTimeout());
-            if (serialPort.openPort()) {
-                log.info("Successful open the serial port:{}", serialPort.getSystemPortName());
+        if (!transport.isOpen()) {
+            if (transport.open(config)) {
+                log.info("Successful open the serial port:{}", terminal);
             } else {
-                throw new ECRHubException("Failed to open the serial port:" + serialPort.getSystemPortName());
+                throw new ECRHubException("Failed to open the serial port:" + terminal);
             }
         }
     }
 
-    private void doHandshake(long startTime, int timeout) throws ECRHubException {
-        while (true) {
-            if (doHandshake()) {
-                log.info("Handshake successful");
-                break;
-            } else {
-                log.info("Handshake failed");
-                ThreadUtil.safeSleep(10);
-                if (System.currentTimeMillis() - startTime > timeout) {
-                    throw new ECRHubTimeoutException("Handshake connection timeout");
+    private void doHandshake(long deadline) throws ECRHubException {
+        Object event = ECRHubEvents.begin(EEvent.HANDSHAKE);
+        try {
+            while (true) {
+                if (doHandshake()) {
+                    log.info("Handshake successful");
+                    break;
+                } else {
+                    log.info("Handshake failed");
+                    ThreadUtil.safeSleep(10);
+                    if (System.currentTimeMillis() > deadline) {
+                        throw new ECRHubTimeoutException("Handshake connection timeout");
+                    }
                 }
             }
+        } finally {
+            ECRHubEvents.commit(event, terminal, null, null, 0);
         }
     }
 
     private boolean doHandshake() {
         // send handshake packet
         byte[] msg = new SerialPortPacket.HandshakePacket().encode();
-        int numWritten = serialPort.writeBytes(msg, msg.length);
+        int numWritten = writeBytes(msg);
         if (numWritten <= 0) {
             log.error("Send handshake packet failed");
             return false;
@@ -131,12 +143,12 @@ public class SerialPortEngine {
         // read handshake confirm packet
         byte[] buffer = new byte[0];
         for (int i = 0; i < 50; i++) {
-            int bytesAvailable = serialPort.bytesAvailable();
+            int bytesAvailable = transport.bytesAvailable();
             if (bytesAvailable <= 0) {
                 ThreadUtil.safeSleep(20);
             } else {
                 buffer = new byte[bytesAvailable];
-                serialPort.readBytes(buffer, buffer.length);
+                transport.read(buffer, buffer.length);
                 break;
             }
         }
@@ -145,6 +157,9 @@ public class SerialPortEngine {
         if (buffer.length > 0) {
             for (String hexPack : packDecoder.decode(buffer)) {
                 SerialPortPacket pack = new SerialPortPacket().decode(hexPack);
+                if (pack != null) {
+                    record(pack);
+                }
                 if (pack != null && pack.getPackType() == SerialPortPacket.PACK_TYPE_HANDSHAKE_CONFIRM) {
                     return true;
                 }
@@ -154,137 +169,208 @@ public class SerialPortEngine {
         return false;
     }
 
-    public boolean close() {
-        // Stop Write Thread
-        if (writeThread != null) {
-            writeThread.interrupt();
-            writeThread = null;
+    /**
+     * Scheduler writer: a frame the port did not take completely is dropped to its listener
+     */
+    private void writeFrame(byte[] frame) throws ECRHubException {
+        int numWritten = writeBytes(frame);
+        if (numWritten < frame.length) {
+            throw new ECRHubException("Wrote " + numWritten + " of " + frame.length + " bytes to " + terminal);
         }
+    }
+
+    private int writeBytes(byte[] frame) {
+        if (frame.length >= SerialPortPacket.HEADER_LENGTH + SerialPortPacket.TRAILER_LENGTH) {
+            recorder.record(EDirection.OUTBOUND, frame[2], frame[3], frame[4], frame, SerialPortPacket.HEADER_LENGTH,
+                    frame.length - SerialPortPacket.HEADER_LENGTH - SerialPortPacket.TRAILER_LENGTH);
+            if (frame[2] == SerialPortPacket.PACK_TYPE_COMMON && frame[4] != 0x00) {
+                ackPending.set(frame[4] & 0x7F, System.nanoTime());
+                ackEvents[frame[4] & 0x7F] = ECRHubEvents.begin(EEvent.ACK);
+            }
+        }
+        metrics.increment(ECounter.FRAMES_OUT, terminal, null, 1);
+        metrics.increment(ECounter.BYTES_OUT, terminal, null, frame.length);
+        Object event = ECRHubEvents.begin(EEvent.FRAME_WRITE);
+        int numWritten = transport.write(frame, frame.length);
+        ECRHubEvents.commit(event, terminal, null, null, frame.length);
+        return numWritten;
+    }
+
+    private void record(SerialPortPacket pack) {
+        recorder.record(EDirection.INBOUND, pack.getPackType(), pack.getAck(), pack.getId(), pack.getData());
+    }
+
+    @Override
+    public boolean disconnect() {
+        // Stop Write Thread
+        handshake = false;
+        outQueue.stop();
         // Close Port
-        if (serialPort.isOpen()) {
-            return serialPort.closePort();
+        if (transport.isOpen()) {
+            return transport.close();
         } else {
             return true;
         }
     }
 
+    @Override
     public boolean isOpen() {
-        return serialPort.isOpen();
+        return transport.isOpen();
+    }
+
+    @Override
+    public boolean isPairingRequired() {
+        return true;
+    }
+
+    @Override
+    public long getConnTimeout(ECRHubConfig config) {
+        return config.getSerialPortConfig().getConnTimeout();
+    }
+
+    @Override
+    public long getReadTimeout(ECRHubConfig config) {
+        return config.getSerialPortConfig().getReadTimeout();
+    }
+
+    @Override
+    public int getHeadroom() {
+        return SerialPortPacket.HEADER_LENGTH;
+    }
+
+    @Override
+    public int getTailroom() {
+        return SerialPortPacket.TRAILER_LENGTH;
     }
 
+    /**
+     * Write a link-level control packet (ACK, heartbeat) through the fast lane
+     */
     public void safeWrite(byte[] bytes) {
         if (isOpen()) {
-            outQueue.add(bytes);
+            outQueue.submitControl(bytes);
         }
     }
 
-    public void write(byte[] bytes) throws ECRHubException {
-        if (isOpen()) {
-            outQueue.add(bytes);
-        } else {
+    @Override
+    public void send(byte[] buffer, int length, String topic, EPriority priority, long deadline, WriteListener listener) throws ECRHubException {
+        if (!isOpen()) {
             throw new ECRHubException("The serial port is not opened.");
         }
-    }
-
-    public byte[] read(String msgId, long startTime, long timeout) throws ECRHubTimeoutException {
-        while (true) {
-            String msg = MSG_CACHE.get(msgId);
-            if (StrUtil.isNotBlank(msg)) {
-                MSG_CACHE.remove(msgId);
-                return HexUtil.hex2byte(msg);
-            } else {
-                ThreadUtil.safeSleep(20);
-                if (System.currentTimeMillis() - startTime > timeout) {
-                    throw new ECRHubTimeoutException();
-                }
-            }
+        if (length > SerialPortPacket.MAX_DATA_LENGTH) {
+            throw new ECRHubException("The message of " + length + " bytes exceeds the serial packet maximum " + SerialPortPacket.MAX_DATA_LENGTH);
         }
+        byte[] pack = SerialPortPacket.encodeMsgPacket(buffer, length);
+        trace.trace(EDirection.OUTBOUND, topic, "data packet", pack);
+        ackTopics[pack[4] & 0x7F] = topic;
+        outQueue.submit(pack, topic, priority, deadline, listener);
     }
 
-    private class WriteThread implements Runnable {
-        @Override
-        public void run() {
-            Thread.currentThread().setName("SerialPortWriteThread-" + Thread.currentThread().getId());
-            try {
-                while (!Thread.interrupted()) {
-                    byte[] bytes = outQueue.take();
-                    serialPort.writeBytes(bytes, bytes.length);
-                }
-            } catch (InterruptedException e) {
-                for (byte[] bytes : outQueue) {
-                    serialPort.writeBytes(bytes, bytes.length);
-                }
-                Thread.currentThread().interrupt();
-            }
+    /**
+     * Send a heartbeat packet and wait for any packet from the terminal
+     */
+    @Override
+    public boolean heartbeat(long timeout) {
+        if (!isOpen()) {
+            return false;
         }
+        CompletableFuture<Long> read = activity.expectRead();
+        byte[] pack = new SerialPortPacket.HeartBeatPacket().encode();
+        trace.trace(EDirection.OUTBOUND, null, "heartbeat packet", pack);
+        safeWrite(pack);
+        return activity.await(read, timeout);
     }
 
-    private class ReadListener implements SerialPortDataListener {
+    @Override
+    public void fillHealth(ECRHubHealth health) {
+        health.setHandshake(handshake);
+        health.setLastFrameTime(activity.getLastReadTime());
+        health.setLastHeartbeatTime(activity.getLastHeartbeatTime());
+        health.setQueueSize(outQueue.size());
+    }
 
-        @Override
-        public int getListeningEvents() {
-            return SerialPort.LISTENING_EVENT_DATA_RECEIVED;
-        }
+    private class ReadListener implements SerialTransport.DataListener {
 
         @Override
-        public void serialEvent(SerialPortEvent event) {
-            byte[] bytes = event.getReceivedData();
+        public void onData(byte[] bytes) {
             if (bytes.length == 0) {
                 return;
             }
+            activity.onRead();
+            metrics.increment(ECounter.BYTES_IN, terminal, null, bytes.length);
             Set<String> packList = packDecoder.decode(bytes);
             packList.forEach(pack -> {
+                Object readEvent = ECRHubEvents.begin(EEvent.FRAME_READ);
+                ECRHubResponseProto.ECRHubResponse respProto = null;
                 try {
-                    decodePack(pack);
+                    respProto = decodePack(pack);
                 } catch (Exception e) {
                     log.warn("Decode packet[{}] error:", pack, e);
+                } finally {
+                    ECRHubEvents.commit(readEvent, terminal, respProto != null ? respProto.getTopic() : null,
+                            respProto != null ? respProto.getMsgId() : null, pack.length() / 2);
                 }
             });
         }
 
-        private void decodePack(String hexPack) {
+        /**
+         * @return the response carried by a data packet, otherwise null
+         */
+        private ECRHubResponseProto.ECRHubResponse decodePack(String hexPack) {
             SerialPortPacket pack = new SerialPortPacket().decode(hexPack);
-            if (pack == null || pack.getPackType() != SerialPortPacket.PACK_TYPE_COMMON) {
-                return;
+            if (pack == null) {
+                return null;
+            }
+            record(pack);
+            metrics.increment(ECounter.FRAMES_IN, terminal, null, 1);
+            if (!pack.isValid()) {
+                metrics.increment(ECounter.CHECKSUM_FAILURES, terminal, null, 1);
+                return null;
+            }
+            if (pack.getPackType() != SerialPortPacket.PACK_TYPE_COMMON) {
+                return null;
             }
             // ACK packet
             byte ack = pack.getAck();
             if (ack != 0x00) {
-                log.debug("Received ACK packet:{}", hexPack);
+                trace.trace(EDirection.INBOUND, null, "ACK packet", hexPack);
+                long writeTime = ackPending.getAndSet(ack & 0x7F, 0);
+                if (writeTime != 0) {
+                    metrics.recordLatency(EMetric.ACK, terminal, ackTopics[ack & 0x7F], System.nanoTime() - writeTime);
+                    ECRHubEvents.commit(ackEvents[ack & 0x7F], terminal, ackTopics[ack & 0x7F], null, 0);
+                }
             }
             // Common packet
             byte id = pack.getId();
             if (id == 0x00) {
                 // HeartBeat packet
+                if (ack == 0x00) {
+                    trace.trace(EDirection.INBOUND, null, "heartbeat packet", hexPack);
+                }
+                return null;
             } else {
-                // Data packet
-                log.debug("Received data packet:{}", hexPack);
                 // Send data ACK packet
                 sendAck(id);
                 // Cache data
-                putcache(pack.getData());
+                return putcache(hexPack, pack.getData());
             }
         }
 
         private void sendAck(byte ack) {
             byte[] pack = new SerialPortPacket.AckPacket(ack).encode();
-            log.debug("Send ACK packet:{}", HexUtil.byte2hex(pack));
+            trace.trace(EDirection.OUTBOUND, null, "ACK packet", pack);
             safeWrite(pack);
         }
 
-        private void putcache(byte[] bytes) {
+        private ECRHubResponseProto.ECRHubResponse putcache(String hexPack, byte[] bytes) {
             if (bytes.length == 0) {
-                return;
-            }
-            ECRHubResponseProto.ECRHubResponse respProto = null;
-            try {
-                respProto = ECRHubProtobufHelper.unpack(bytes);
-            } catch (Exception e) {
-                log.warn(e.getMessage(), e);
-            }
-            if (respProto != null) {
-                MSG_CACHE.put(respProto.getMsgId(), HexUtil.byte2hex(bytes));
+                trace.trace(EDirection.INBOUND, null, "data packet", hexPack);
+                return null;
             }
+            Listener current = listener;
+            ECRHubResponseProto.ECRHubResponse respProto = current != null ? current.onMessage(bytes) : null;
+            trace.trace(EDirection.INBOUND, respProto != null ? respProto.getTopic() : null, "data packet", hexPack);
+            return respProto;
         }
     }
 }
\ No newline at end of file
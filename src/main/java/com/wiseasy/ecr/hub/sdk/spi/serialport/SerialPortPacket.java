@@ -5,6 +5,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -24,9 +25,18 @@ public class SerialPortPacket {
     public static final String PACK_HEAD = "55AA";
     public static final String PACK_TAIL = "CC33";
 
+    /**
+     * Bytes before the data (start symbol, type, ack, id, length) and after it (check code, end symbol)
+     */
+    public static final int HEADER_LENGTH = 7;
+    public static final int TRAILER_LENGTH = 3;
+    /**
+     * Maximum data length of a packet, the largest value of the 2-byte length field
+     */
+    public static final int MAX_DATA_LENGTH = 0xFFFF;
+
     private static final AtomicInteger counter = new AtomicInteger(0);
 
-    private int maxLength = 1024;//Defines the maximum length of a packet, the maximum length expressed in 2 bytes
     private int starCodeLength = 2;//start symbol
     private int packetTypeLength = 1;//Package type
     private int ackLength = 1;//ack
@@ -44,6 +54,7 @@ public class SerialPortPacket {
     protected byte[] data;
     protected byte checkCode;
     protected byte[] end = HexUtil.hex2byte(PACK_TAIL);
+    protected boolean valid = true;
 
     public SerialPortPacket() {
     }
@@ -72,6 +83,13 @@ public class SerialPortPacket {
         return data;
     }
 
+    /**
+     * False if the decoded packet had a wrong check code
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
     /**
      * messageId in 1..127
      */
@@ -88,12 +106,19 @@ public class SerialPortPacket {
      * Int type to 2-byte length
      */
     private static byte[] getLen(int length) {
+         checkLength(length);
          byte[] len = new byte[2];
          len[0] = (byte) ((length >> 8) & 0xFF);
          len[1] = (byte) ((length >> 0) & 0xFF);
          return len;
      }
 
+    private static void checkLength(int length) {
+        if (length > MAX_DATA_LENGTH) {
+            throw new IllegalArgumentException("Data length " + length + " exceeds the serial packet maximum " + MAX_DATA_LENGTH);
+        }
+    }
+
     /**
      * Get check code
      */
@@ -148,6 +173,32 @@ public class SerialPortPacket {
         return buffer.array();
     }
 
+    /**
+     * Encode a message packet in place around data already written at buffer[HEADER_LENGTH, HEADER_LENGTH + length)
+     *
+     * @return an exact-size copy of the packet
+     * @throws IllegalArgumentException if length is above {@link #MAX_DATA_LENGTH}
+     */
+    public static byte[] encodeMsgPacket(byte[] buffer, int length) {
+        checkLength(length);
+        int end = HEADER_LENGTH + length;
+        buffer[0] = (byte) 0x55;
+        buffer[1] = (byte) 0xAA;
+        buffer[2] = PACK_TYPE_COMMON;
+        buffer[3] = 0x00;
+        buffer[4] = getMsgId();
+        buffer[5] = (byte) ((length >> 8) & 0xFF);
+        buffer[6] = (byte) (length & 0xFF);
+        byte checkCode = buffer[2];
+        for (int i = 3; i < end; i++) {
+            checkCode ^= buffer[i];
+        }
+        buffer[end] = checkCode;
+        buffer[end + 1] = (byte) 0xCC;
+        buffer[end + 2] = (byte) 0x33;
+        return Arrays.copyOf(buffer, end + TRAILER_LENGTH);
+    }
+
     /**
      * Decoding
      *
@@ -161,6 +212,7 @@ public class SerialPortPacket {
         this.checkCode = pack[pack.length - 1 - endCodeLength];
         if (getCheckCode(checkDataBuffer) != checkCode) {
             // Faulty calibration packets are not handled
+            this.valid = false;
         } else {
             this.packType = pack[starCodeLength];
             this.ack = pack[starCodeLength + packetTypeLength];
@@ -1,7 +1,8 @@
 package com.wiseasy.ecr.hub.sdk.spi.serialport;
 
-import cn.hutool.core.util.StrUtil;
 import com.wiseasy.ecr.hub.sdk.utils.HexUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.LinkedHashSet;
 import java.util.Set;
@@ -10,8 +11,25 @@ import java.util.concurrent.locks.ReentrantLock;
 
 public class SerialPortPacketDecoder {
 
+    private static final Logger log = LoggerFactory.getLogger(SerialPortPacketDecoder.class);
+
+    private static final String PARTIAL_HEAD = SerialPortPacket.PACK_HEAD.substring(0, 2);
+
     private final StringBuilder lastRemainingBuffer = new StringBuilder();
     private final Lock lock = new ReentrantLock();
+    private final Runnable dropListener;
+
+    public SerialPortPacketDecoder() {
+        this(() -> {
+        });
+    }
+
+    /**
+     * @param dropListener Told each time a head is dropped because no tail ends the packet its length gives
+     */
+    public SerialPortPacketDecoder(Runnable dropListener) {
+        this.dropListener = dropListener;
+    }
 
     public Set<String> decode(byte[] bytes) {
         lock.lock();
@@ -24,30 +42,53 @@ public class SerialPortPacketDecoder {
         }
     }
 
+    /**
+     * Split hex data into packets. The end of a packet is found from its length field rather than by
+     * searching the tail, which may also occur inside the data or across byte boundaries.
+     * A wrong length shows once the packet would be complete and no tail ends it: the head is dropped,
+     * logged and reported to the drop listener, and decoding resyncs on the next head.
+     */
     private Set<String> decode(String pack, StringBuilder lastRemainingBuffer) {
         Set<String> packList = new LinkedHashSet<>();
-        while (StrUtil.isNotBlank(pack)) {
-            if (pack.startsWith(SerialPortPacket.PACK_HEAD)) {
-                // Start with HEAD
-                int tailIndex = pack.indexOf(SerialPortPacket.PACK_TAIL);
-                if (tailIndex == -1) {
-                    lastRemainingBuffer.append(pack);
-                    break;
-                }
-                String validPack = StrUtil.subPre(pack, tailIndex + SerialPortPacket.PACK_TAIL.length());
-                packList.add(validPack);
-                pack = StrUtil.removePrefix(pack, validPack);
+        int start = headIndex(pack, 0);
+        while (start >= 0) {
+            int remaining = pack.length() - start;
+            if (remaining < (SerialPortPacket.HEADER_LENGTH + SerialPortPacket.TRAILER_LENGTH) * 2) {
+                lastRemainingBuffer.append(pack, start, pack.length());
+                break;
+            }
+            int dataLen = Integer.parseInt(pack.substring(start + 10, start + 14), 16);
+            int packLen = (SerialPortPacket.HEADER_LENGTH + dataLen + SerialPortPacket.TRAILER_LENGTH) * 2;
+            if (remaining < packLen) {
+                lastRemainingBuffer.append(pack, start, pack.length());
+                break;
+            }
+            int end = start + packLen;
+            if (pack.startsWith(SerialPortPacket.PACK_TAIL, end - SerialPortPacket.PACK_TAIL.length())) {
+                packList.add(pack.substring(start, end));
+                start = headIndex(pack, end);
             } else {
-                // Not start with HEAD
-                int headIndex = pack.indexOf(SerialPortPacket.PACK_HEAD);
-                if (headIndex == -1) {
-                    break;
-                }
-                // Remove invalid packet
-                String invalidPack = StrUtil.subPre(pack, headIndex);
-                pack = StrUtil.removePrefix(pack, invalidPack);
+                // Not a packet head, or a corrupted length: resync on the next head
+                log.warn("Dropped a serial packet head: no tail after {} data bytes", dataLen);
+                dropListener.run();
+                start = headIndex(pack, start + 2);
             }
         }
+        if (start < 0 && pack.endsWith(PARTIAL_HEAD)) {
+            // The first byte of a head at the end of a read
+            lastRemainingBuffer.append(PARTIAL_HEAD);
+        }
         return packList;
     }
-}
\ No newline at end of file
+
+    /**
+     * Index of the next packet head at a byte boundary, or -1
+     */
+    private static int headIndex(String pack, int from) {
+        int index = pack.indexOf(SerialPortPacket.PACK_HEAD, from);
+        while (index >= 0 && index % 2 != 0) {
+            index = pack.indexOf(SerialPortPacket.PACK_HEAD, index + 1);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,26 @@
+package com.wiseasy.ecr.hub.sdk.spi.serialport;
+
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.spi.transport.Transport;
+import com.wiseasy.ecr.hub.sdk.spi.transport.TransportContext;
+import com.wiseasy.ecr.hub.sdk.spi.transport.TransportProvider;
+import com.wiseasy.ecr.hub.sdk.spi.transport.Transports;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Serial port transport: sp://COM6, sp:///dev/ttyUSB0
+ */
+public class SerialPortTransportProvider implements TransportProvider {
+
+    @Override
+    public List<String> getSchemes() {
+        return Collections.singletonList("sp");
+    }
+
+    @Override
+    public Transport create(String url, TransportContext context) throws ECRHubException {
+        return new SerialPortEngine(Transports.getAddress(url), context);
+    }
+}
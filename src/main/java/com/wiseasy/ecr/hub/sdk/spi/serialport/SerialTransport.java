@@ -0,0 +1,50 @@
+package com.wiseasy.ecr.hub.sdk.spi.serialport;
+
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig.SerialPortConfig;
+
+/**
+ * Byte link under the serial packet protocol.
+ *
+ * {@link JSerialCommTransport} drives a physical port, {@link com.wiseasy.ecr.hub.sdk.spi.serialport.loopback.LoopbackSerialLink}
+ * connects the client to an in-JVM terminal emulator.
+ */
+public interface SerialTransport {
+
+    /**
+     * Receives the bytes arriving on the link, on a transport thread
+     */
+    interface DataListener {
+        void onData(byte[] bytes);
+    }
+
+    /**
+     * System port name, used as terminal name in metrics
+     */
+    String getName();
+
+    boolean open(SerialPortConfig config);
+
+    boolean isOpen();
+
+    boolean close();
+
+    /**
+     * @return The number of bytes written, -1 on error
+     */
+    int write(byte[] bytes, int length);
+
+    /**
+     * Number of received bytes that can be read without blocking, while no data listener is set
+     */
+    int bytesAvailable();
+
+    /**
+     * @return The number of bytes read, -1 on error
+     */
+    int read(byte[] buffer, int length);
+
+    /**
+     * Deliver received bytes to the listener instead of buffering them for {@link #read(byte[], int)}
+     */
+    void setDataListener(DataListener listener);
+}
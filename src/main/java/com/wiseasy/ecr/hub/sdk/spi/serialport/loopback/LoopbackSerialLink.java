@@ -0,0 +1,317 @@
+package com.wiseasy.ecr.hub.sdk.spi.serialport.loopback;
+
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig.SerialPortConfig;
+import com.wiseasy.ecr.hub.sdk.spi.serialport.SerialTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-JVM duplex serial cable with a {@link #host()} end for the client and a {@link #terminal()} end
+ * for a terminal emulator, e.g. in tests.
+ *
+ * Each direction behaves like a UART line: writes block until their bytes have been transmitted
+ * at the configured baud rate (10 bits per byte, 8N1), the receiver gets them in chunks of at most
+ * maxChunkSize bytes as they arrive, and each byte may be corrupted with a given probability.
+ */
+public class LoopbackSerialLink {
+
+    private static final Logger log = LoggerFactory.getLogger(LoopbackSerialLink.class);
+
+    private static final int BITS_PER_BYTE = 10;
+
+    private final String name;
+    private final End host;
+    private final End terminal;
+    private final Pipe hostToTerminal;
+    private final Pipe terminalToHost;
+    private final Random random;
+
+    /**
+     * Line speed (bits per second), 0 for unlimited
+     */
+    private volatile int baudRate = 115200;
+    /**
+     * Largest chunk delivered to the receiver at once, 0 to deliver each write whole
+     */
+    private volatile int maxChunkSize = 0;
+    /**
+     * Probability that a transmitted byte gets one bit flipped
+     */
+    private volatile double corruptionRate = 0;
+
+    public LoopbackSerialLink(String name) {
+        this(name, new Random());
+    }
+
+    /**
+     * @param random Source of chunk sizes and corruption, seed it for reproducible runs
+     */
+    public LoopbackSerialLink(String name, Random random) {
+        this.name = name;
+        this.random = random;
+        this.host = new End(name);
+        this.terminal = new End(name + "-terminal");
+        this.hostToTerminal = new Pipe(terminal, name + "-tx");
+        this.terminalToHost = new Pipe(host, name + "-rx");
+        host.out = hostToTerminal;
+        terminal.out = terminalToHost;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The end the client connects to
+     */
+    public SerialTransport host() {
+        return host;
+    }
+
+    /**
+     * The end the terminal emulator connects to
+     */
+    public SerialTransport terminal() {
+        return terminal;
+    }
+
+    /**
+     * Stop the line threads, both ends are closed
+     */
+    public void shutdown() {
+        host.close();
+        terminal.close();
+        hostToTerminal.thread.interrupt();
+        terminalToHost.thread.interrupt();
+    }
+
+    public int getBaudRate() {
+        return baudRate;
+    }
+
+    public void setBaudRate(int baudRate) {
+        this.baudRate = baudRate;
+    }
+
+    public int getMaxChunkSize() {
+        return maxChunkSize;
+    }
+
+    public void setMaxChunkSize(int maxChunkSize) {
+        this.maxChunkSize = maxChunkSize;
+    }
+
+    public double getCorruptionRate() {
+        return corruptionRate;
+    }
+
+    public void setCorruptionRate(double corruptionRate) {
+        this.corruptionRate = corruptionRate;
+    }
+
+    private long nanosPerByte() {
+        int baud = baudRate;
+        return baud > 0 ? BITS_PER_BYTE * 1000000000L / baud : 0;
+    }
+
+    /**
+     * A write in transit: its bytes and the time (nanoseconds) transmission started
+     */
+    private static class Transmission {
+        private final byte[] bytes;
+        private final long startTime;
+        private final long nanosPerByte;
+
+        private Transmission(byte[] bytes, long startTime, long nanosPerByte) {
+            this.bytes = bytes;
+            this.startTime = startTime;
+            this.nanosPerByte = nanosPerByte;
+        }
+    }
+
+    /**
+     * One direction of the line
+     */
+    private class Pipe implements Runnable {
+        private final End receiver;
+        private final BlockingQueue<Transmission> queue = new LinkedBlockingQueue<>();
+        private final Thread thread;
+        private long lineFreeTime = 0;
+
+        private Pipe(End receiver, String threadName) {
+            this.receiver = receiver;
+            this.thread = new Thread(this, "LoopbackSerial-" + threadName);
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        /**
+         * Queue the bytes on the line and block until they have been transmitted
+         */
+        private void transmit(byte[] bytes) {
+            long nanosPerByte = nanosPerByte();
+            long startTime;
+            long endTime;
+            synchronized (this) {
+                startTime = Math.max(System.nanoTime(), lineFreeTime);
+                endTime = startTime + bytes.length * nanosPerByte;
+                lineFreeTime = endTime;
+            }
+            queue.add(new Transmission(bytes, startTime, nanosPerByte));
+            parkUntil(endTime);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Transmission transmission = queue.take();
+                    deliver(transmission);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void deliver(Transmission transmission) {
+            byte[] bytes = transmission.bytes;
+            int offset = 0;
+            while (offset < bytes.length) {
+                int chunkSize = maxChunkSize;
+                int length = chunkSize > 0 ? Math.min(bytes.length - offset, 1 + random.nextInt(chunkSize)) : bytes.length;
+                byte[] chunk = Arrays.copyOfRange(bytes, offset, offset + length);
+                offset += length;
+                corrupt(chunk);
+                parkUntil(transmission.startTime + offset * transmission.nanosPerByte);
+                try {
+                    receiver.receive(chunk);
+                } catch (RuntimeException e) {
+                    log.warn("Deliver data to {} error:", receiver.name, e);
+                }
+            }
+        }
+
+        private void corrupt(byte[] chunk) {
+            double rate = corruptionRate;
+            if (rate <= 0) {
+                return;
+            }
+            for (int i = 0; i < chunk.length; i++) {
+                if (random.nextDouble() < rate) {
+                    chunk[i] ^= (byte) (1 << random.nextInt(8));
+                }
+            }
+        }
+    }
+
+    private static void parkUntil(long time) {
+        long wait;
+        while ((wait = time - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    private static class End implements SerialTransport {
+        private final String name;
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        private Pipe out;
+        private volatile boolean open = false;
+        private volatile DataListener listener;
+
+        private End(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean open(SerialPortConfig config) {
+            open = true;
+            return true;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public boolean close() {
+            open = false;
+            listener = null;
+            synchronized (received) {
+                received.reset();
+            }
+            return true;
+        }
+
+        @Override
+        public int write(byte[] bytes, int length) {
+            if (!open) {
+                return -1;
+            }
+            out.transmit(Arrays.copyOf(bytes, length));
+            return length;
+        }
+
+        @Override
+        public int bytesAvailable() {
+            synchronized (received) {
+                return received.size();
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int length) {
+            synchronized (received) {
+                byte[] bytes = received.toByteArray();
+                int count = Math.min(length, bytes.length);
+                System.arraycopy(bytes, 0, buffer, 0, count);
+                received.reset();
+                received.write(bytes, count, bytes.length - count);
+                return count;
+            }
+        }
+
+        @Override
+        public void setDataListener(DataListener listener) {
+            byte[] pending;
+            synchronized (received) {
+                this.listener = listener;
+                pending = received.toByteArray();
+                received.reset();
+            }
+            if (pending.length > 0 && listener != null) {
+                listener.onData(pending);
+            }
+        }
+
+        /**
+         * Bytes arriving from the other end, dropped while closed like on a real port
+         */
+        private void receive(byte[] chunk) {
+            if (!open) {
+                return;
+            }
+            DataListener current;
+            synchronized (received) {
+                current = listener;
+                if (current == null) {
+                    received.write(chunk, 0, chunk.length);
+                    return;
+                }
+            }
+            current.onData(chunk);
+        }
+    }
+}
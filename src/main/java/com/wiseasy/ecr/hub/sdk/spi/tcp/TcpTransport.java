@@ -0,0 +1,81 @@
+package com.wiseasy.ecr.hub.sdk.spi.tcp;
+
+import com.wiseasy.ecr.hub.sdk.enums.EDirection;
+import com.wiseasy.ecr.hub.sdk.spi.nio.NioEventLoop;
+import com.wiseasy.ecr.hub.sdk.spi.nio.NioTransport;
+import com.wiseasy.ecr.hub.sdk.spi.transport.TransportContext;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Raw TCP transport, for terminals behind a LAN bridge.
+ *
+ * Each message is sent as one frame: a 4-byte big-endian length followed by the protobuf message.
+ * A frame of length 0 is a heartbeat, the terminal answers it with one.
+ */
+public class TcpTransport extends NioTransport {
+
+    public static final int HEADER_LENGTH = 4;
+    /**
+     * Larger frames are a protocol error and close the connection
+     */
+    public static final int MAX_FRAME_LENGTH = 1024 * 1024;
+    private static final byte[] HEARTBEAT = new byte[HEADER_LENGTH];
+
+    public TcpTransport(InetSocketAddress address, String terminal, TransportContext context) {
+        this(address, terminal, context, NioEventLoop.next());
+    }
+
+    public TcpTransport(InetSocketAddress address, String terminal, TransportContext context, NioEventLoop loop) {
+        super("Tcp", address, terminal, context, loop);
+    }
+
+    @Override
+    public int getHeadroom() {
+        return HEADER_LENGTH;
+    }
+
+    @Override
+    public int getTailroom() {
+        return 0;
+    }
+
+    @Override
+    protected byte[] encode(byte[] buffer, int length) {
+        buffer[0] = (byte) (length >>> 24);
+        buffer[1] = (byte) (length >>> 16);
+        buffer[2] = (byte) (length >>> 8);
+        buffer[3] = (byte) length;
+        return Arrays.copyOf(buffer, HEADER_LENGTH + length);
+    }
+
+    @Override
+    protected byte[] encodeHeartbeat() {
+        return HEARTBEAT;
+    }
+
+    @Override
+    protected int decode(ByteBuffer buffer) throws IOException {
+        while (buffer.remaining() >= HEADER_LENGTH) {
+            int length = buffer.getInt(buffer.position());
+            if (length < 0 || length > MAX_FRAME_LENGTH) {
+                throw new IOException("Invalid frame length:" + length);
+            }
+            if (buffer.remaining() < HEADER_LENGTH + length) {
+                return HEADER_LENGTH + length;
+            }
+            buffer.position(buffer.position() + HEADER_LENGTH);
+            byte[] message = new byte[length];
+            buffer.get(message);
+            if (length == 0) {
+                trace.trace(EDirection.INBOUND, null, "heartbeat frame", message);
+            } else {
+                onMessage(message);
+            }
+        }
+        return 0;
+    }
+}
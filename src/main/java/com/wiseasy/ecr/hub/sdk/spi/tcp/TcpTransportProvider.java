@@ -0,0 +1,37 @@
+package com.wiseasy.ecr.hub.sdk.spi.tcp;
+
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.spi.transport.Transport;
+import com.wiseasy.ecr.hub.sdk.spi.transport.TransportContext;
+import com.wiseasy.ecr.hub.sdk.spi.transport.TransportProvider;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Raw TCP transport: tcp://192.168.1.20:35780
+ */
+public class TcpTransportProvider implements TransportProvider {
+
+    @Override
+    public List<String> getSchemes() {
+        return Collections.singletonList("tcp");
+    }
+
+    @Override
+    public Transport create(String url, TransportContext context) throws ECRHubException {
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException e) {
+            throw new ECRHubException("Invalid url:" + url, e);
+        }
+        if (uri.getHost() == null || uri.getPort() < 0) {
+            throw new ECRHubException("Invalid url, host and port are required:" + url);
+        }
+        return new TcpTransport(InetSocketAddress.createUnresolved(uri.getHost(), uri.getPort()), url, context);
+    }
+}
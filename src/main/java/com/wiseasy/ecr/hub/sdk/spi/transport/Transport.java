@@ -0,0 +1,122 @@
+package com.wiseasy.ecr.hub.sdk.spi.transport;
+
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig;
+import com.wiseasy.ecr.hub.sdk.ECRHubHealth;
+import com.wiseasy.ecr.hub.sdk.enums.EPriority;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto;
+
+/**
+ * Message link between a client and a terminal.
+ *
+ * A transport only moves encoded messages: framing, link-level handshake, ACKs and heartbeats.
+ * Correlation of responses, timeouts and pairing are done once for every transport by the client core.
+ * Transports are created by a {@link TransportProvider} chosen by the URL scheme.
+ */
+public interface Transport {
+
+    /**
+     * Receives the messages arriving from the terminal, on a transport thread
+     */
+    interface Listener {
+        /**
+         * @param message Encoded response message, without the transport framing
+         * @return The decoded response, null if the message is invalid
+         */
+        ECRHubResponseProto.ECRHubResponse onMessage(byte[] message);
+
+        /**
+         * The link now goes to another address of the same terminal, e.g. after a sn:// move.
+         * What was measured on the old path no longer applies
+         */
+        default void onRetarget() {
+        }
+    }
+
+    /**
+     * Outcome of a message queued by {@link #send}, called on the write thread
+     */
+    interface WriteListener {
+        /**
+         * The message has been written to the link
+         */
+        void onWritten();
+
+        /**
+         * The message will not be written: it expired in the queue, was discarded or the write failed
+         */
+        default void onDropped(ECRHubException reason) {
+        }
+    }
+
+    /**
+     * Terminal name used in metrics: serial port name, URL...
+     */
+    String getTerminal();
+
+    void setListener(Listener listener);
+
+    /**
+     * Open the link and complete the link-level handshake
+     *
+     * @param deadline Absolute time (milliseconds)
+     */
+    void connect(long deadline) throws ECRHubException;
+
+    /**
+     * Start in the background the setup that can be done ahead of {@link #connect}, e.g. a TLS handshake.
+     * Nothing to do by default
+     */
+    default void prewarm() {
+    }
+
+    boolean disconnect() throws ECRHubException;
+
+    boolean isOpen();
+
+    /**
+     * Whether the terminal expects a pairing request after connecting
+     */
+    boolean isPairingRequired();
+
+    /**
+     * Connect timeout (milliseconds) configured for this transport
+     */
+    long getConnTimeout(ECRHubConfig config);
+
+    /**
+     * Response timeout (milliseconds) configured for this transport
+     */
+    long getReadTimeout(ECRHubConfig config);
+
+    /**
+     * Bytes to leave free in front of a message for the framing, see {@link #send}
+     */
+    int getHeadroom();
+
+    /**
+     * Bytes to leave free behind a message for the framing, see {@link #send}
+     */
+    int getTailroom();
+
+    /**
+     * Queue a message for writing
+     *
+     * @param buffer    The message at offset {@link #getHeadroom()}, with {@link #getTailroom()} free bytes after it.
+     *                  The buffer may be reused once the method returns
+     * @param length    Length of the message
+     * @param deadline  Absolute time (milliseconds) after which the message is no longer worth sending
+     * @param listener  Told once the message has been written to the link or dropped, may be null
+     */
+    void send(byte[] buffer, int length, String topic, EPriority priority, long deadline, WriteListener listener) throws ECRHubException;
+
+    /**
+     * Send a link-level heartbeat and wait for any frame from the terminal
+     */
+    boolean heartbeat(long timeout);
+
+    /**
+     * Fill in the link state: handshake, last frame and heartbeat, queue size
+     */
+    void fillHealth(ECRHubHealth health);
+}
@@ -0,0 +1,38 @@
+package com.wiseasy.ecr.hub.sdk.spi.transport;
+
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig;
+import com.wiseasy.ecr.hub.sdk.spi.FlightRecorder;
+import com.wiseasy.ecr.hub.sdk.spi.WireTrace;
+import com.wiseasy.ecr.hub.sdk.spi.metrics.MetricsRecorder;
+
+/**
+ * Per-client services shared by the client core and its transport
+ */
+public class TransportContext {
+
+    private final ECRHubConfig config;
+    private final WireTrace wireTrace;
+    private final FlightRecorder flightRecorder;
+
+    public TransportContext(ECRHubConfig config) {
+        this.config = config;
+        this.wireTrace = new WireTrace(config.getTraceConfig());
+        this.flightRecorder = new FlightRecorder(config.getRecorderConfig());
+    }
+
+    public ECRHubConfig getConfig() {
+        return config;
+    }
+
+    public WireTrace getWireTrace() {
+        return wireTrace;
+    }
+
+    public FlightRecorder getFlightRecorder() {
+        return flightRecorder;
+    }
+
+    public MetricsRecorder getMetrics() {
+        return config.getMetricsRecorder();
+    }
+}
@@ -0,0 +1,24 @@
+package com.wiseasy.ecr.hub.sdk.spi.transport;
+
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+
+import java.util.List;
+
+/**
+ * Creates the transports of some URL schemes.
+ *
+ * Providers are found with {@link java.util.ServiceLoader}: list the implementation class in
+ * META-INF/services/com.wiseasy.ecr.hub.sdk.spi.transport.TransportProvider.
+ */
+public interface TransportProvider {
+
+    /**
+     * URL schemes handled, e.g. "ws" and "wss"
+     */
+    List<String> getSchemes();
+
+    /**
+     * @param url The full URL, e.g. sp://COM6
+     */
+    Transport create(String url, TransportContext context) throws ECRHubException;
+}
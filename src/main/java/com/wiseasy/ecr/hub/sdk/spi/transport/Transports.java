@@ -0,0 +1,71 @@
+package com.wiseasy.ecr.hub.sdk.spi.transport;
+
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Registry of the {@link TransportProvider}s on the class path, by URL scheme
+ */
+public class Transports {
+
+    private static volatile Map<String, TransportProvider> providers;
+
+    private Transports() {
+    }
+
+    /**
+     * Create the transport of a URL, e.g. sp://COM6 or ws://192.168.1.20:35779
+     */
+    public static Transport create(String url, TransportContext context) throws ECRHubException {
+        return getProvider(getScheme(url)).create(url, context);
+    }
+
+    public static TransportProvider getProvider(String scheme) throws ECRHubException {
+        TransportProvider provider = getProviders().get(scheme.toLowerCase());
+        if (provider == null) {
+            throw new ECRHubException("No transport for scheme:" + scheme);
+        }
+        return provider;
+    }
+
+    /**
+     * Providers by scheme. The first provider found wins when several handle the same scheme
+     */
+    public static Map<String, TransportProvider> getProviders() {
+        Map<String, TransportProvider> result = providers;
+        if (result == null) {
+            synchronized (Transports.class) {
+                result = providers;
+                if (result == null) {
+                    result = new HashMap<>();
+                    for (TransportProvider provider : ServiceLoader.load(TransportProvider.class, Transports.class.getClassLoader())) {
+                        for (String scheme : provider.getSchemes()) {
+                            result.putIfAbsent(scheme.toLowerCase(), provider);
+                        }
+                    }
+                    providers = result = Collections.unmodifiableMap(result);
+                }
+            }
+        }
+        return result;
+    }
+
+    public static String getScheme(String url) throws ECRHubException {
+        int index = url.indexOf("://");
+        if (index <= 0) {
+            throw new ECRHubException("Invalid url:" + url);
+        }
+        return url.substring(0, index);
+    }
+
+    /**
+     * The part of a URL after the scheme, e.g. the port name of sp://COM6
+     */
+    public static String getAddress(String url) throws ECRHubException {
+        return url.substring(getScheme(url).length() + 3);
+    }
+}
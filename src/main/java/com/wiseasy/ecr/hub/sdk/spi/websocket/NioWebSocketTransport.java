@@ -0,0 +1,305 @@
+package com.wiseasy.ecr.hub.sdk.spi.websocket;
+
+import com.wiseasy.ecr.hub.sdk.enums.EDirection;
+import com.wiseasy.ecr.hub.sdk.spi.nio.NioEventLoop;
+import com.wiseasy.ecr.hub.sdk.spi.nio.NioTransport;
+import com.wiseasy.ecr.hub.sdk.spi.transport.TransportContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * ws:// transport served by the shared {@link NioEventLoop}, see {@link com.wiseasy.ecr.hub.sdk.ECRHubConfig.SocketConfig#setEventLoop(boolean)}.
+ *
+ * A selector-driven RFC 6455 client: HTTP upgrade, masked frames out, fragmented frames in, ping/pong and close.
+ * Unlike {@link WebSocketClientEngine}, which runs a read and a write thread per connection, all connections share
+ * the few loop threads, so thousands of terminals cost memory and context switches in proportion to the traffic.
+ */
+public class NioWebSocketTransport extends NioTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(NioWebSocketTransport.class);
+
+    /**
+     * Largest client frame header: 2 bytes, 8 bytes extended length, 4 bytes mask
+     */
+    public static final int MAX_HEADER_LENGTH = 14;
+    /**
+     * Larger messages are a protocol error and close the connection
+     */
+    public static final int MAX_MESSAGE_LENGTH = 1024 * 1024;
+    private static final int MAX_HANDSHAKE_LENGTH = 8 * 1024;
+    private static final String GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private static final int OPCODE_CONTINUATION = 0x0;
+    private static final int OPCODE_TEXT = 0x1;
+    private static final int OPCODE_BINARY = 0x2;
+    private static final int OPCODE_CLOSE = 0x8;
+    private static final int OPCODE_PING = 0x9;
+    private static final int OPCODE_PONG = 0xA;
+    private static final int CLOSE_NORMAL = 1000;
+
+    private final URI uri;
+    private final boolean textFrame;
+
+    /**
+     * Used by the loop thread only
+     */
+    private boolean upgraded;
+    private String expectedAccept;
+    private ByteArrayOutputStream fragments;
+
+    public NioWebSocketTransport(URI uri, TransportContext context) {
+        this(uri, context, NioEventLoop.next());
+    }
+
+    public NioWebSocketTransport(URI uri, TransportContext context, NioEventLoop loop) {
+        super("WebSocket", InetSocketAddress.createUnresolved(uri.getHost(), uri.getPort() > 0 ? uri.getPort() : 80), uri.toString(), context, loop);
+        this.uri = uri;
+        this.textFrame = context.getConfig().getSocketConfig().isTextFrame();
+    }
+
+    @Override
+    public int getHeadroom() {
+        return MAX_HEADER_LENGTH;
+    }
+
+    @Override
+    public int getTailroom() {
+        return 0;
+    }
+
+    @Override
+    protected void onConnect() throws IOException {
+        upgraded = false;
+        fragments = null;
+        byte[] nonce = new byte[16];
+        ThreadLocalRandom.current().nextBytes(nonce);
+        String key = Base64.getEncoder().encodeToString(nonce);
+        expectedAccept = accept(key);
+
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        if (uri.getRawQuery() != null) {
+            path += "?" + uri.getRawQuery();
+        }
+        String host = uri.getPort() > 0 ? uri.getHost() + ":" + uri.getPort() : uri.getHost();
+        String request = "GET " + path + " HTTP/1.1\r\n"
+                + "Host: " + host + "\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Key: " + key + "\r\n"
+                + "Sec-WebSocket-Version: 13\r\n\r\n";
+        write(request.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static String accept(String key) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            return Base64.getEncoder().encodeToString(sha1.digest((key + GUID).getBytes(StandardCharsets.ISO_8859_1)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    protected byte[] encode(byte[] buffer, int length) {
+        if (textFrame) {
+            // Text frame mode for old terminal firmware, same bytes as WebSocketClientEngine sends
+            byte[] text = new String(buffer, MAX_HEADER_LENGTH, length, StandardCharsets.UTF_8).getBytes(StandardCharsets.UTF_8);
+            return encodeFrame(OPCODE_TEXT, text);
+        }
+        return encodeFrame(OPCODE_BINARY, buffer, length);
+    }
+
+    @Override
+    protected byte[] encodeHeartbeat() {
+        return encodeFrame(OPCODE_PING, new byte[0]);
+    }
+
+    private static byte[] encodeFrame(int opcode, byte[] payload) {
+        byte[] buffer = new byte[MAX_HEADER_LENGTH + payload.length];
+        System.arraycopy(payload, 0, buffer, MAX_HEADER_LENGTH, payload.length);
+        return encodeFrame(opcode, buffer, payload.length);
+    }
+
+    /**
+     * Write the header in front of the payload at offset {@link #MAX_HEADER_LENGTH} and mask the payload in place
+     */
+    private static byte[] encodeFrame(int opcode, byte[] buffer, int length) {
+        int extended = length < 126 ? 0 : length <= 0xFFFF ? 2 : 8;
+        int start = MAX_HEADER_LENGTH - 2 - extended - 4;
+        int pos = start;
+        buffer[pos++] = (byte) (0x80 | opcode);
+        if (extended == 0) {
+            buffer[pos++] = (byte) (0x80 | length);
+        } else if (extended == 2) {
+            buffer[pos++] = (byte) (0x80 | 126);
+            buffer[pos++] = (byte) (length >>> 8);
+            buffer[pos++] = (byte) length;
+        } else {
+            buffer[pos++] = (byte) (0x80 | 127);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[pos++] = (byte) ((long) length >>> shift);
+            }
+        }
+        int mask = ThreadLocalRandom.current().nextInt();
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            buffer[pos++] = (byte) (mask >>> shift);
+        }
+        for (int i = 0; i < length; i++) {
+            buffer[MAX_HEADER_LENGTH + i] ^= (byte) (mask >>> (24 - 8 * (i & 3)));
+        }
+        return Arrays.copyOfRange(buffer, start, MAX_HEADER_LENGTH + length);
+    }
+
+    @Override
+    protected int decode(ByteBuffer buffer) throws IOException {
+        if (!upgraded && !decodeHandshake(buffer)) {
+            return 0;
+        }
+        while (buffer.remaining() >= 2) {
+            int start = buffer.position();
+            int b0 = buffer.get(start) & 0xFF;
+            int b1 = buffer.get(start + 1) & 0xFF;
+            boolean fin = (b0 & 0x80) != 0;
+            int opcode = b0 & 0x0F;
+            boolean masked = (b1 & 0x80) != 0;
+            int length7 = b1 & 0x7F;
+            int headerLength = 2 + (length7 == 126 ? 2 : length7 == 127 ? 8 : 0) + (masked ? 4 : 0);
+            if (buffer.remaining() < headerLength) {
+                return headerLength;
+            }
+            long length = length7;
+            if (length7 == 126) {
+                length = buffer.getShort(start + 2) & 0xFFFF;
+            } else if (length7 == 127) {
+                length = buffer.getLong(start + 2);
+            }
+            if (length < 0 || length > MAX_MESSAGE_LENGTH) {
+                throw new IOException("Invalid frame length:" + length);
+            }
+            if (buffer.remaining() < headerLength + length) {
+                return headerLength + (int) length;
+            }
+            byte[] payload = new byte[(int) length];
+            buffer.position(start + headerLength);
+            buffer.get(payload);
+            if (masked) {
+                int maskOffset = start + headerLength - 4;
+                for (int i = 0; i < payload.length; i++) {
+                    payload[i] ^= buffer.get(maskOffset + (i & 3));
+                }
+            }
+            if (!onFrame(fin, opcode, payload)) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return false when the connection was closed
+     */
+    private boolean onFrame(boolean fin, int opcode, byte[] payload) throws IOException {
+        switch (opcode) {
+            case OPCODE_TEXT:
+            case OPCODE_BINARY:
+                if (fin) {
+                    onMessage(payload);
+                } else {
+                    fragments = new ByteArrayOutputStream();
+                    appendFragment(payload);
+                }
+                return true;
+            case OPCODE_CONTINUATION:
+                if (fragments == null) {
+                    throw new IOException("Unexpected continuation frame");
+                }
+                appendFragment(payload);
+                if (fin) {
+                    byte[] message = fragments.toByteArray();
+                    fragments = null;
+                    onMessage(message);
+                }
+                return true;
+            case OPCODE_PING:
+                trace.trace(EDirection.INBOUND, null, "ping frame", payload);
+                write(encodeFrame(OPCODE_PONG, payload));
+                return true;
+            case OPCODE_PONG:
+                trace.trace(EDirection.INBOUND, null, "pong frame", payload);
+                return true;
+            case OPCODE_CLOSE:
+                log.info("socket onClose. code:{},remote:true", payload.length >= 2 ? ((payload[0] & 0xFF) << 8 | (payload[1] & 0xFF)) : CLOSE_NORMAL);
+                write(encodeFrame(OPCODE_CLOSE, payload.length >= 2 ? Arrays.copyOf(payload, 2) : new byte[0]));
+                closed();
+                return false;
+            default:
+                throw new IOException("Unknown opcode:" + opcode);
+        }
+    }
+
+    private void appendFragment(byte[] payload) throws IOException {
+        if (fragments.size() + payload.length > MAX_MESSAGE_LENGTH) {
+            throw new IOException("Message too large");
+        }
+        fragments.write(payload, 0, payload.length);
+    }
+
+    /**
+     * @return true once the upgrade response has been consumed
+     */
+    private boolean decodeHandshake(ByteBuffer buffer) throws IOException {
+        int end = -1;
+        for (int i = buffer.position(); i + 3 < buffer.limit(); i++) {
+            if (buffer.get(i) == '\r' && buffer.get(i + 1) == '\n' && buffer.get(i + 2) == '\r' && buffer.get(i + 3) == '\n') {
+                end = i + 4;
+                break;
+            }
+        }
+        if (end < 0) {
+            if (buffer.remaining() > MAX_HANDSHAKE_LENGTH) {
+                throw new IOException("Handshake response too large");
+            }
+            return false;
+        }
+        byte[] bytes = new byte[end - buffer.position()];
+        buffer.get(bytes);
+        String[] lines = new String(bytes, StandardCharsets.ISO_8859_1).split("\r\n");
+        String accept = null;
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon > 0 && lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT).equals("sec-websocket-accept")) {
+                accept = lines[i].substring(colon + 1).trim();
+            }
+        }
+        String[] status = lines[0].split(" ");
+        if (status.length < 2 || !status[1].equals("101") || !expectedAccept.equals(accept)) {
+            throw new IOException("WebSocket upgrade failed: " + lines[0]);
+        }
+        log.info("socket open success:{}", lines[0]);
+        upgraded = true;
+        connected();
+        return true;
+    }
+
+    @Override
+    protected void onClose() {
+        try {
+            write(encodeFrame(OPCODE_CLOSE, new byte[]{(byte) (CLOSE_NORMAL >>> 8), (byte) CLOSE_NORMAL}));
+        } catch (IOException e) {
+            log.warn("Send close frame error:", e);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.wiseasy.ecr.hub.sdk.spi.websocket;
+
+import cn.hutool.core.thread.ThreadUtil;
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig;
+import com.wiseasy.ecr.hub.sdk.enums.ECounter;
+import com.wiseasy.ecr.hub.sdk.enums.EEvent;
+import com.wiseasy.ecr.hub.sdk.enums.EMetric;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.spi.ECRHubEvents;
+import com.wiseasy.ecr.hub.sdk.spi.metrics.MetricsRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * TLS handshakes of the wss:// links.
+ *
+ * All links share one SSL context, so the JDK client session cache resumes sessions across reconnects and clients
+ * (the WebSocket library would otherwise create a new context per connection). Handshakes are driven here
+ * to time them and count resumptions, and can be done ahead of the first connect to prewarm the cache.
+ */
+public class TlsSessions {
+
+    private static final Logger log = LoggerFactory.getLogger(TlsSessions.class);
+
+    /**
+     * How long a prewarm waits for the TLS 1.3 session tickets (milliseconds)
+     */
+    private static final int TICKET_TIMEOUT = 500;
+
+    private final SSLContext context;
+    private final MetricsRecorder metrics;
+
+    public TlsSessions(ECRHubConfig.TlsConfig config, MetricsRecorder metrics) throws ECRHubException {
+        this.context = config.getSslContext() != null ? config.getSslContext() : getDefaultContext();
+        this.metrics = metrics;
+    }
+
+    private static SSLContext getDefaultContext() throws ECRHubException {
+        try {
+            return SSLContext.getDefault();
+        } catch (NoSuchAlgorithmException e) {
+            throw new ECRHubException("TLS is not available", e);
+        }
+    }
+
+    public SSLSocketFactory getSocketFactory() {
+        return context.getSocketFactory();
+    }
+
+    /**
+     * Verify the terminal host name against its certificate, as browsers do for wss://
+     */
+    public static void setEndpointIdentification(SSLParameters parameters) {
+        parameters.setEndpointIdentificationAlgorithm("HTTPS");
+    }
+
+    /**
+     * Do the handshake of a connected socket
+     *
+     * @param terminal WebSocket URL, for the metrics
+     */
+    public SSLSession handshake(SSLSocket socket, String terminal) throws IOException {
+        Object event = ECRHubEvents.begin(EEvent.HANDSHAKE);
+        long startTime = System.currentTimeMillis();
+        long start = System.nanoTime();
+        socket.startHandshake();
+        metrics.recordLatency(EMetric.TLS_HANDSHAKE, terminal, null, System.nanoTime() - start);
+        metrics.increment(ECounter.TLS_HANDSHAKES, terminal, null, 1);
+
+        SSLSession session = socket.getSession();
+        // A resumed session keeps the creation time of the handshake that established it
+        boolean resumed = session.getCreationTime() < startTime;
+        if (resumed) {
+            metrics.increment(ECounter.TLS_RESUMPTIONS, terminal, null, 1);
+        }
+        ECRHubEvents.commit(event, terminal, null, null, 0);
+        log.debug("TLS handshake with {} done, protocol:{}, resumed:{}", terminal, session.getProtocol(), resumed);
+        return session;
+    }
+
+    /**
+     * Establish a TLS session with the terminal in the background and close the connection,
+     * leaving the session in the cache for the next connect
+     *
+     * @param timeout Connect and read timeout (milliseconds)
+     * @return Completed when the session is cached, or the handshake failed
+     */
+    public CompletableFuture<Void> prewarm(URI uri, int timeout) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        ThreadUtil.execute(() -> {
+            try {
+                doPrewarm(uri, timeout);
+            } catch (IOException | RuntimeException e) {
+                log.warn("TLS prewarm of {} failed:", uri, e);
+            }
+            future.complete(null);
+        });
+        return future;
+    }
+
+    private void doPrewarm(URI uri, int timeout) throws IOException {
+        int port = uri.getPort() != -1 ? uri.getPort() : 443;
+        try (SSLSocket socket = (SSLSocket) getSocketFactory().createSocket()) {
+            socket.connect(new InetSocketAddress(uri.getHost(), port), timeout);
+            socket.setSoTimeout(timeout);
+            SSLParameters parameters = socket.getSSLParameters();
+            setEndpointIdentification(parameters);
+            socket.setSSLParameters(parameters);
+            SSLSession session = handshake(socket, uri.toString());
+            if ("TLSv1.3".equals(session.getProtocol())) {
+                // TLS 1.3 session tickets follow the handshake, read them until the terminal closes
+                socket.setSoTimeout(Math.min(timeout, TICKET_TIMEOUT));
+                socket.shutdownOutput();
+                try {
+                    while (socket.getInputStream().read() != -1) {
+                        // Nothing is expected before the close
+                    }
+                } catch (SocketTimeoutException e) {
+                    // The terminal keeps the connection open, the tickets have been read by now
+                }
+            }
+        }
+    }
+}
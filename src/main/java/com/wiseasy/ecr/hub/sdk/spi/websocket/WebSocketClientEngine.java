@@ -1,74 +1,321 @@
 package com.wiseasy.ecr.hub.sdk.spi.websocket;
 
-import cn.hutool.cache.impl.FIFOCache;
-import cn.hutool.core.codec.Base64;
-import cn.hutool.core.thread.ThreadUtil;
-import cn.hutool.core.util.StrUtil;
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig;
+import com.wiseasy.ecr.hub.sdk.ECRHubHealth;
+import com.wiseasy.ecr.hub.sdk.enums.ECounter;
+import com.wiseasy.ecr.hub.sdk.enums.EDirection;
+import com.wiseasy.ecr.hub.sdk.enums.EEvent;
+import com.wiseasy.ecr.hub.sdk.enums.EPriority;
 import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
 import com.wiseasy.ecr.hub.sdk.exception.ECRHubTimeoutException;
-import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubProtobufHelper;
 import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto;
+import com.wiseasy.ecr.hub.sdk.spi.ECRHubEvents;
+import com.wiseasy.ecr.hub.sdk.spi.FlightRecorder;
+import com.wiseasy.ecr.hub.sdk.spi.FrameScheduler;
+import com.wiseasy.ecr.hub.sdk.spi.LinkActivity;
+import com.wiseasy.ecr.hub.sdk.spi.WireTrace;
+import com.wiseasy.ecr.hub.sdk.spi.metrics.MetricsRecorder;
+import com.wiseasy.ecr.hub.sdk.spi.transport.Transport;
+import com.wiseasy.ecr.hub.sdk.spi.transport.TransportContext;
+import org.java_websocket.WebSocket;
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.enums.ReadyState;
 import org.java_websocket.handshake.ServerHandshake;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-public class WebSocketClientEngine extends WebSocketClient {
+public class WebSocketClientEngine extends WebSocketClient implements Transport {
 
     private static final Logger log = LoggerFactory.getLogger(WebSocketClientEngine.class);
 
-    private final FIFOCache<String, String> MSG_CACHE = new FIFOCache<>(20, 10 * 60 * 1000);
+    private final FrameScheduler outQueue;
+    private final WireTrace trace;
+    private final FlightRecorder recorder;
+    private final MetricsRecorder metrics;
+    private final String terminal;
+    private final boolean textFrame;
+    private final TlsSessions tls;
+    private final int connTimeout;
+    private volatile CompletableFuture<Void> prewarm;
+    /**
+     * Completed by the open or the close of a reconnect
+     */
+    private volatile CompletableFuture<Boolean> reconnecting;
+    private volatile Exception lastError;
+    private volatile Listener listener;
+    private final LinkActivity activity = new LinkActivity();
 
-    public WebSocketClientEngine(URI serverUri) {
+    public WebSocketClientEngine(URI serverUri, TransportContext context) throws ECRHubException {
         super(serverUri);
+        this.trace = context.getWireTrace();
+        this.recorder = context.getFlightRecorder();
+        this.metrics = context.getMetrics();
+        this.terminal = serverUri.toString();
+        this.textFrame = context.getConfig().getSocketConfig().isTextFrame();
+        this.outQueue = new FrameScheduler("WebSocket", context.getConfig().getSchedulerConfig(), this::sendFrame, terminal, metrics);
+        this.connTimeout = context.getConfig().getSocketConfig().getConnTimeout();
+        if ("wss".equalsIgnoreCase(serverUri.getScheme())) {
+            this.tls = new TlsSessions(context.getConfig().getTlsConfig(), metrics);
+            setSocketFactory(tls.getSocketFactory());
+        } else {
+            this.tls = null;
+        }
+    }
+
+    @Override
+    public String getTerminal() {
+        return terminal;
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Do a TLS handshake with the terminal in the background, so the next connect resumes the cached session
+     */
+    @Override
+    public synchronized void prewarm() {
+        if (tls != null && prewarm == null && !isOpen()) {
+            prewarm = tls.prewarm(getURI(), connTimeout);
+        }
+    }
+
+    @Override
+    public void connect(long deadline) throws ECRHubException {
+        if (isOpen()) {
+            return;
+        }
+        boolean open;
+        lastError = null;
+        try {
+            awaitPrewarm(deadline);
+            if (getReadyState() == ReadyState.NOT_YET_CONNECTED) {
+                open = connectBlocking(Math.max(deadline - System.currentTimeMillis(), 1), TimeUnit.MILLISECONDS);
+            } else {
+                open = reconnect(deadline);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ECRHubException("Connection interrupted", e);
+        }
+        if (!open) {
+            Exception error = lastError;
+            if (error != null) {
+                // e.g. the TLS handshake failed
+                throw new ECRHubException("Connection failed", error);
+            }
+            throw new ECRHubTimeoutException("Connection timeout");
+        }
+    }
+
+    /**
+     * Reconnect within the deadline, reconnectBlocking() would wait without a timeout
+     */
+    private boolean reconnect(long deadline) throws InterruptedException {
+        CompletableFuture<Boolean> opened = new CompletableFuture<>();
+        reconnecting = opened;
+        reconnect();
+        try {
+            return opened.get(Math.max(deadline - System.currentTimeMillis(), 1), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Do not leave a half-open connection behind
+            close();
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        } finally {
+            reconnecting = null;
+        }
+    }
+
+    /**
+     * Wait for a running TLS prewarm, so the connect resumes its session instead of doing a second full handshake
+     */
+    private void awaitPrewarm(long deadline) throws InterruptedException {
+        CompletableFuture<Void> current = prewarm;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.get(Math.max(deadline - System.currentTimeMillis(), 1), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("TLS prewarm not finished:", e);
+        }
+        prewarm = null;
+    }
+
+    @Override
+    public boolean disconnect() throws ECRHubException {
+        try {
+            closeBlocking();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ECRHubException("disconnect error", e);
+        }
+    }
+
+    @Override
+    public boolean isPairingRequired() {
+        return false;
+    }
+
+    @Override
+    public long getConnTimeout(ECRHubConfig config) {
+        return config.getSocketConfig().getConnTimeout();
+    }
+
+    @Override
+    public long getReadTimeout(ECRHubConfig config) {
+        return config.getSocketConfig().getSocketTimeout();
+    }
+
+    @Override
+    public int getHeadroom() {
+        return 0;
+    }
+
+    @Override
+    public int getTailroom() {
+        return 0;
+    }
+
+    private void sendFrame(byte[] bytes) {
+        recorder.record(EDirection.OUTBOUND, (byte) 0, (byte) 0, (byte) 0, bytes);
+        metrics.increment(ECounter.FRAMES_OUT, terminal, null, 1);
+        metrics.increment(ECounter.BYTES_OUT, terminal, null, bytes.length);
+        Object event = ECRHubEvents.begin(EEvent.FRAME_WRITE);
+        if (textFrame) {
+            // Text frame mode for old terminal firmware
+            send(new String(bytes, StandardCharsets.UTF_8));
+        } else {
+            send(bytes);
+        }
+        ECRHubEvents.commit(event, terminal, null, null, bytes.length);
+    }
+
+    /**
+     * Called on the connection thread once the TLS socket is connected, do the handshake here to time it
+     */
+    @Override
+    protected void onSetSSLParameters(SSLParameters sslParameters) {
+        TlsSessions.setEndpointIdentification(sslParameters);
+        SSLSocket socket = (SSLSocket) getSocket();
+        socket.setSSLParameters(sslParameters);
+        try {
+            tls.handshake(socket, terminal);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @Override
     public void onOpen(ServerHandshake handshakedata) {
         log.info("socket open success:{}", handshakedata);
+        outQueue.start();
+        CompletableFuture<Boolean> opened = reconnecting;
+        if (opened != null) {
+            opened.complete(true);
+        }
     }
 
     @Override
     public void onClose(int code, String reason, boolean remote) {
         log.info("socket onClose. code:{},reason:{},remote:{}", code, reason, remote);
+        outQueue.stop();
+        CompletableFuture<Boolean> opened = reconnecting;
+        if (opened != null) {
+            opened.complete(false);
+        }
     }
 
     @Override
     public void onError(Exception ex) {
         log.error("socket onError. ", ex);
+        lastError = ex;
+    }
+
+    @Override
+    public void onWebsocketPong(WebSocket conn, Framedata f) {
+        activity.onRead();
+        super.onWebsocketPong(conn, f);
     }
 
     @Override
     public void onMessage(String message) {
-        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
-        log.info("onMessage:{}", Base64.encode(bytes));
+        onMessage(message.getBytes(StandardCharsets.UTF_8));
+    }
 
-        ECRHubResponseProto.ECRHubResponse respProto;
-        try {
-            respProto = ECRHubProtobufHelper.unpack(bytes);
-        } catch (ECRHubException e) {
-            throw new RuntimeException(e);
-        }
+    @Override
+    public void onMessage(ByteBuffer message) {
+        byte[] bytes = new byte[message.remaining()];
+        message.get(bytes);
+        onMessage(bytes);
+    }
+
+    private void onMessage(byte[] bytes) {
+        Object event = ECRHubEvents.begin(EEvent.FRAME_READ);
+        activity.onRead();
+        recorder.record(EDirection.INBOUND, (byte) 0, (byte) 0, (byte) 0, bytes);
+        metrics.increment(ECounter.FRAMES_IN, terminal, null, 1);
+        metrics.increment(ECounter.BYTES_IN, terminal, null, bytes.length);
 
-        MSG_CACHE.put(respProto.getMsgId(), message);
+        Listener current = listener;
+        ECRHubResponseProto.ECRHubResponse respProto = current != null ? current.onMessage(bytes) : null;
+        String topic = respProto != null ? respProto.getTopic() : null;
+        trace.trace(EDirection.INBOUND, topic, "message", bytes);
+        ECRHubEvents.commit(event, terminal, topic, respProto != null ? respProto.getMsgId() : null, bytes.length);
     }
 
-    public String receive(String msgId, long timeout) throws ECRHubTimeoutException {
-        long before = System.currentTimeMillis();
-        while (true) {
-            String msg = MSG_CACHE.get(msgId);
-            if (StrUtil.isNotBlank(msg)) {
-                MSG_CACHE.remove(msgId);
-                return msg;
-            } else {
-                ThreadUtil.safeSleep(20);
-                if (System.currentTimeMillis() - before > timeout) {
-                    throw new ECRHubTimeoutException();
-                }
-            }
+    @Override
+    public void send(byte[] buffer, int length, String topic, EPriority priority, long deadline, WriteListener listener) throws ECRHubException {
+        if (!isOpen()) {
+            throw new ECRHubException("The websocket is not connected.");
+        }
+        byte[] msg = Arrays.copyOf(buffer, length);
+        trace.trace(EDirection.OUTBOUND, topic, "message", msg);
+        outQueue.submit(msg, topic, priority, deadline, listener);
+    }
+
+    /**
+     * Send a ping frame and wait for the pong (or any message) from the terminal
+     */
+    @Override
+    public boolean heartbeat(long timeout) {
+        if (!isOpen()) {
+            return false;
         }
+        CompletableFuture<Long> read = activity.expectRead();
+        try {
+            sendPing();
+        } catch (Exception e) {
+            log.warn("Send ping error:", e);
+            return false;
+        }
+        return activity.await(read, timeout);
+    }
+
+    @Override
+    public void fillHealth(ECRHubHealth health) {
+        health.setHandshake(isOpen());
+        health.setLastFrameTime(activity.getLastReadTime());
+        health.setLastHeartbeatTime(activity.getLastHeartbeatTime());
+        health.setQueueSize(outQueue.size());
     }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.wiseasy.ecr.hub.sdk.spi.websocket;
+
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.spi.transport.Transport;
+import com.wiseasy.ecr.hub.sdk.spi.transport.TransportContext;
+import com.wiseasy.ecr.hub.sdk.spi.transport.TransportProvider;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * WebSocket transport: ws://192.168.1.20:35779, wss://...
+ *
+ * ws:// links are served by {@link NioWebSocketTransport} when the event loop is enabled in the socket config.
+ * wss:// links share their TLS sessions through {@link TlsSessions}.
+ */
+public class WebSocketTransportProvider implements TransportProvider {
+
+    @Override
+    public List<String> getSchemes() {
+        return Arrays.asList("ws", "wss");
+    }
+
+    @Override
+    public Transport create(String url, TransportContext context) throws ECRHubException {
+        try {
+            URI uri = new URI(url);
+            if (context.getConfig().getSocketConfig().isEventLoop() && "ws".equalsIgnoreCase(uri.getScheme())) {
+                return new NioWebSocketTransport(uri, context);
+            }
+            return new WebSocketClientEngine(uri, context);
+        } catch (URISyntaxException e) {
+            throw new ECRHubException("ecrWebSocketClient error", e);
+        }
+    }
+}
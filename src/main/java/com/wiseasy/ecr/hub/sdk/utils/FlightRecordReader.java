@@ -0,0 +1,81 @@
+package com.wiseasy.ecr.hub.sdk.utils;
+
+import com.wiseasy.ecr.hub.sdk.enums.EDirection;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubRequestProto;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto;
+import com.wiseasy.ecr.hub.sdk.spi.FlightRecorder;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Prints a {@link FlightRecorder} dump as text, one frame per line.
+ *
+ * Usage: java -cp ecrhub-client-sdk.jar com.wiseasy.ecr.hub.sdk.utils.FlightRecordReader &lt;dump file&gt;...
+ */
+public class FlightRecordReader {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: FlightRecordReader <dump file>...");
+            System.exit(1);
+        }
+        for (String file : args) {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+                print(in, System.out);
+            }
+        }
+    }
+
+    public static void print(InputStream in, PrintStream out) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != FlightRecorder.MAGIC) {
+            throw new IOException("Not a flight recorder dump");
+        }
+        byte version = data.readByte();
+        if (version != FlightRecorder.VERSION) {
+            throw new IOException("Unsupported dump version: " + version);
+        }
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        int count = data.readInt();
+        for (int i = 0; i < count; i++) {
+            long timestamp = data.readLong();
+            EDirection direction = EDirection.values()[data.readByte()];
+            byte packType = data.readByte();
+            byte ack = data.readByte();
+            byte id = data.readByte();
+            int length = data.readInt();
+            byte[] payload = new byte[data.readInt()];
+            data.readFully(payload);
+            out.printf("%s %-8s type=%d ack=%d id=%d len=%d %s%s%s%n", format.format(new Date(timestamp)), direction,
+                    packType, ack & 0xFF, id & 0xFF, length, describe(direction, payload, length),
+                    HexUtil.byte2hex(payload), payload.length < length ? "..." : "");
+        }
+    }
+
+    /**
+     * Topic and message id of a complete data frame, if it parses
+     */
+    private static String describe(EDirection direction, byte[] payload, int length) {
+        if (payload.length == 0 || payload.length < length) {
+            return "";
+        }
+        try {
+            if (direction == EDirection.OUTBOUND) {
+                ECRHubRequestProto.ECRHubRequest request = ECRHubRequestProto.ECRHubRequest.parseFrom(payload);
+                return "topic=" + request.getTopic() + " msg_id=" + request.getMsgId() + " ";
+            } else {
+                ECRHubResponseProto.ECRHubResponse response = ECRHubResponseProto.ECRHubResponse.parseFrom(payload);
+                return "topic=" + response.getTopic() + " msg_id=" + response.getMsgId() + " ";
+            }
+        } catch (Exception e) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.wiseasy.ecr.hub.sdk.spi;
+
+import com.wiseasy.ecr.hub.sdk.enums.EEvent;
+import com.wiseasy.ecr.hub.sdk.spi.jfr.ECRHubEvent;
+
+/**
+ * Java Flight Recorder events of the transport and codec paths.
+ *
+ * Java 11+ implementation, emits the events in {@link com.wiseasy.ecr.hub.sdk.spi.jfr}.
+ */
+public class ECRHubEvents {
+
+    private ECRHubEvents() {
+    }
+
+    public static Object begin(EEvent event) {
+        ECRHubEvent jfrEvent = ECRHubEvent.create(event);
+        if (!jfrEvent.isEnabled()) {
+            return null;
+        }
+        jfrEvent.begin();
+        return jfrEvent;
+    }
+
+    public static void commit(Object event, String terminal, String topic, String msgId, int size) {
+        if (event == null) {
+            return;
+        }
+        ECRHubEvent jfrEvent = (ECRHubEvent) event;
+        jfrEvent.end();
+        if (jfrEvent.shouldCommit()) {
+            jfrEvent.terminal = terminal;
+            jfrEvent.topic = topic;
+            jfrEvent.msgId = msgId;
+            jfrEvent.size = size;
+            jfrEvent.commit();
+        }
+    }
+}
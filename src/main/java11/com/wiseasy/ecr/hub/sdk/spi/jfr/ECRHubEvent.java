@@ -0,0 +1,95 @@
+package com.wiseasy.ecr.hub.sdk.spi.jfr;
+
+import com.wiseasy.ecr.hub.sdk.enums.EEvent;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Common fields of the SDK events
+ */
+@Category("ECR Hub")
+@StackTrace(false)
+public abstract class ECRHubEvent extends Event {
+
+    @Label("Terminal")
+    @Description("Serial port name or WebSocket URL")
+    public String terminal;
+
+    @Label("Topic")
+    public String topic;
+
+    @Label("Message ID")
+    public String msgId;
+
+    @Label("Size")
+    @DataAmount
+    public int size;
+
+    public static ECRHubEvent create(EEvent event) {
+        switch (event) {
+            case FRAME_WRITE:
+                return new FrameWrite();
+            case FRAME_READ:
+                return new FrameRead();
+            case ACK:
+                return new Ack();
+            case HANDSHAKE:
+                return new Handshake();
+            case PAIRING:
+                return new Pairing();
+            case ENCODE:
+                return new Encode();
+            case DECODE:
+                return new Decode();
+            default:
+                return new Timeout();
+        }
+    }
+
+    @Name("com.wiseasy.ecrhub.FrameWrite")
+    @Label("Frame Write")
+    public static class FrameWrite extends ECRHubEvent {
+    }
+
+    @Name("com.wiseasy.ecrhub.FrameRead")
+    @Label("Frame Read")
+    public static class FrameRead extends ECRHubEvent {
+    }
+
+    @Name("com.wiseasy.ecrhub.Ack")
+    @Label("ACK")
+    @Description("From writing a serial data packet to receiving its ACK packet")
+    public static class Ack extends ECRHubEvent {
+    }
+
+    @Name("com.wiseasy.ecrhub.Handshake")
+    @Label("Handshake")
+    public static class Handshake extends ECRHubEvent {
+    }
+
+    @Name("com.wiseasy.ecrhub.Pairing")
+    @Label("Pairing")
+    public static class Pairing extends ECRHubEvent {
+    }
+
+    @Name("com.wiseasy.ecrhub.Encode")
+    @Label("Request Encode")
+    public static class Encode extends ECRHubEvent {
+    }
+
+    @Name("com.wiseasy.ecrhub.Decode")
+    @Label("Response Decode")
+    public static class Decode extends ECRHubEvent {
+    }
+
+    @Name("com.wiseasy.ecrhub.Timeout")
+    @Label("Response Timeout")
+    @Description("A response wait that timed out, the duration is the time waited")
+    public static class Timeout extends ECRHubEvent {
+    }
+}
@@ -0,0 +1,174 @@
+package com.wiseasy.ecr.hub.sdk.spi.emulator;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubRequestProto;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto;
+import com.wiseasy.ecr.hub.sdk.spi.tcp.TcpTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process TCP server emulating terminals behind a LAN bridge, one per connection, for the tcp:// transport.
+ *
+ * Frames are length-prefixed as in {@link TcpTransport}, heartbeats are echoed and requests are answered through
+ * a {@link TerminalResponder}. Each connection has its own reader thread, which is fine for a test stand-in.
+ */
+public class TcpTerminalEmulator {
+
+    private static final Logger log = LoggerFactory.getLogger(TcpTerminalEmulator.class);
+
+    private final ServerSocket serverSocket;
+    private final TerminalResponder responder;
+    private final ScheduledExecutorService scheduler;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong terminalSeq = new AtomicLong();
+    private volatile boolean running = true;
+
+    /**
+     * @param port 0 for any free port, see {@link #getPort()}
+     */
+    public TcpTerminalEmulator(int port) throws IOException {
+        this(port, new TerminalResponder());
+    }
+
+    public TcpTerminalEmulator(int port, TerminalResponder responder) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.responder = responder;
+        this.scheduler = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "TcpTerminalEmulator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Thread acceptThread = new Thread(this::accept, "TcpTerminalEmulator-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    public TerminalResponder getResponder() {
+        return responder;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * URL for the clients, e.g. tcp://127.0.0.1:12345
+     */
+    public String getUrl() {
+        return "tcp://" + serverSocket.getInetAddress().getHostAddress() + ":" + getPort();
+    }
+
+    public void shutdown() {
+        running = false;
+        scheduler.shutdownNow();
+        closeQuietly(serverSocket);
+        for (Socket socket : connections) {
+            closeQuietly(socket);
+        }
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                Thread thread = new Thread(() -> serve(socket, "EMU" + terminalSeq.incrementAndGet()), "TcpTerminalEmulator-" + socket.getPort());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("Accept error:", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket, String deviceSn) {
+        try {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            while (running) {
+                int length = in.readInt();
+                if (length < 0 || length > TcpTransport.MAX_FRAME_LENGTH) {
+                    throw new IOException("Invalid frame length:" + length);
+                }
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                if (length == 0) {
+                    write(out, bytes);
+                    continue;
+                }
+                onRequest(out, bytes, deviceSn);
+            }
+        } catch (EOFException | SocketException e) {
+            // Closed by the client
+        } catch (IOException e) {
+            log.warn("Terminal emulator error:", e);
+        } finally {
+            connections.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private void onRequest(DataOutputStream out, byte[] bytes, String deviceSn) {
+        ECRHubRequestProto.ECRHubRequest request;
+        try {
+            request = ECRHubRequestProto.ECRHubRequest.parseFrom(bytes);
+        } catch (InvalidProtocolBufferException e) {
+            log.warn("Invalid request:", e);
+            return;
+        }
+        long latency = responder.nextLatency();
+        if (latency == 0) {
+            answer(out, request, deviceSn);
+        } else {
+            scheduler.schedule(() -> answer(out, request, deviceSn), latency, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void answer(DataOutputStream out, ECRHubRequestProto.ECRHubRequest request, String deviceSn) {
+        try {
+            ECRHubResponseProto.ECRHubResponse response = responder.respond(request, deviceSn);
+            if (response != null) {
+                write(out, response.toByteArray());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Answer request[{}] error:", request.getMsgId(), e);
+        }
+    }
+
+    private static void write(DataOutputStream out, byte[] message) throws IOException {
+        synchronized (out) {
+            out.writeInt(message.length);
+            out.write(message);
+            out.flush();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+}
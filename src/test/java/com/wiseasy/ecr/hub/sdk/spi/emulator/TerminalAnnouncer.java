@@ -0,0 +1,114 @@
+package com.wiseasy.ecr.hub.sdk.spi.emulator;
+
+import com.alibaba.fastjson2.JSONObject;
+import com.wiseasy.ecr.hub.sdk.spi.discovery.LanDiscovery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Terminal side of {@link LanDiscovery} for the emulators: answers probes with the endpoint of an emulated
+ * terminal and announces it again when it moves.
+ */
+public class TerminalAnnouncer implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(TerminalAnnouncer.class);
+
+    private final String deviceSn;
+    private final DatagramSocket socket;
+    private volatile String scheme;
+    private volatile InetAddress address;
+    private volatile int port;
+    private volatile InetSocketAddress announceTarget = new InetSocketAddress("255.255.255.255", LanDiscovery.ANNOUNCE_PORT);
+    private volatile boolean running = true;
+
+    /**
+     * @param probePort UDP port the probes are received on, {@link LanDiscovery#PROBE_PORT} or 0 for any free port
+     */
+    public TerminalAnnouncer(String deviceSn, String scheme, InetAddress address, int port, int probePort) throws IOException {
+        this.deviceSn = deviceSn;
+        this.scheme = scheme;
+        this.address = address;
+        this.port = port;
+        this.socket = new DatagramSocket(null);
+        this.socket.setReuseAddress(true);
+        this.socket.setBroadcast(true);
+        this.socket.bind(new InetSocketAddress(probePort));
+        Thread thread = new Thread(this::receive, "TerminalAnnouncer-" + deviceSn);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public int getProbePort() {
+        return socket.getLocalPort();
+    }
+
+    /**
+     * Where unsolicited announcements are sent, the limited broadcast address by default
+     */
+    public void setAnnounceTarget(InetSocketAddress announceTarget) {
+        this.announceTarget = announceTarget;
+    }
+
+    /**
+     * Change the announced endpoint, as after a re-IP, and announce it
+     */
+    public void moveTo(String scheme, InetAddress address, int port) {
+        this.scheme = scheme;
+        this.address = address;
+        this.port = port;
+        announce();
+    }
+
+    public void announce() {
+        send(announceTarget);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        socket.close();
+    }
+
+    private void receive() {
+        byte[] buffer = new byte[2048];
+        while (running) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+            } catch (SocketException e) {
+                // Closed
+                continue;
+            } catch (IOException e) {
+                log.warn("Receive probe error:", e);
+                continue;
+            }
+            JSONObject json;
+            try {
+                json = JSONObject.parseObject(new String(packet.getData(), packet.getOffset(), packet.getLength(), StandardCharsets.UTF_8));
+            } catch (RuntimeException e) {
+                continue;
+            }
+            if (json != null && LanDiscovery.TOPIC_PROBE.equals(json.getString("topic"))) {
+                send((InetSocketAddress) packet.getSocketAddress());
+            }
+        }
+    }
+
+    private void send(InetSocketAddress target) {
+        byte[] bytes = LanDiscovery.encodeAnnounce(deviceSn, scheme, address, port);
+        try {
+            socket.send(new DatagramPacket(bytes, bytes.length, target));
+        } catch (IOException e) {
+            log.warn("Send announcement error:", e);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.wiseasy.ecr.hub.sdk.spi.emulator;
+
+import com.wiseasy.ecr.hub.sdk.enums.ETopic;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubRequestProto;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Request handling of the emulated terminals, independent of the transport.
+ *
+ * Answers each request with the handler registered for its topic. The default handlers accept pairing
+ * and heartbeats and approve every payment, query and close. Latency, failures and lost responses are
+ * drawn at random for each request.
+ */
+public class TerminalResponder {
+
+    public static final String APP_NAME = "ECR Hub Emulator";
+
+    /**
+     * Answers one request
+     */
+    public interface Handler {
+        /**
+         * @return The response, msg_id, topic, timestamp and device data are filled in if missing. Null to not answer.
+         */
+        ECRHubResponseProto.ECRHubResponse.Builder handle(ECRHubRequestProto.ECRHubRequest request);
+    }
+
+    private final Map<String, Handler> handlers = new ConcurrentHashMap<>();
+    private final AtomicLong transNo = new AtomicLong(System.currentTimeMillis());
+    private final AtomicLong requestCount = new AtomicLong();
+
+    /**
+     * Time (milliseconds) the terminal takes before answering a request
+     */
+    private volatile LongSupplier latency = fixed(0);
+    /**
+     * Probability that a request is answered with success=false
+     */
+    private volatile double failureRate = 0;
+    /**
+     * Probability that a request is not answered at all
+     */
+    private volatile double dropRate = 0;
+
+    public TerminalResponder() {
+        on(ETopic.PAIR.getValue(), request -> success());
+        on(ETopic.HEARTBEAT.getValue(), request -> success());
+        on(ETopic.PAY_ORDER.getValue(), this::approve);
+        on(ETopic.QUERY_ORDER.getValue(), this::approve);
+        on(ETopic.CLOSE_ORDER.getValue(), request -> success().setBizData(ECRHubResponseProto.ResponseBizData.newBuilder()
+                .setMerchantOrderNo(request.getBizData().getMerchantOrderNo())));
+    }
+
+    /**
+     * Constant latency
+     */
+    public static LongSupplier fixed(long millis) {
+        return () -> millis;
+    }
+
+    /**
+     * Latency uniformly distributed in [min, max]
+     */
+    public static LongSupplier uniform(long min, long max) {
+        return () -> min + ThreadLocalRandom.current().nextLong(max - min + 1);
+    }
+
+    /**
+     * Log-normal latency, the long-tailed shape of real terminal processing times
+     *
+     * @param median Median latency (milliseconds)
+     * @param sigma  Standard deviation of the log, 0.5 gives a p99 of about 3.2 times the median
+     */
+    public static LongSupplier logNormal(long median, double sigma) {
+        double mu = Math.log(median);
+        return () -> Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+
+    public TerminalResponder on(String topic, Handler handler) {
+        handlers.put(topic, handler);
+        return this;
+    }
+
+    /**
+     * Answer a request
+     *
+     * @param deviceSn SN of the emulated terminal
+     * @return The response, or null if it is dropped
+     */
+    public ECRHubResponseProto.ECRHubResponse respond(ECRHubRequestProto.ECRHubRequest request, String deviceSn) {
+        requestCount.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (dropRate > 0 && random.nextDouble() < dropRate) {
+            return null;
+        }
+        ECRHubResponseProto.ECRHubResponse.Builder response;
+        Handler handler = handlers.get(request.getTopic());
+        if (handler == null) {
+            response = ECRHubResponseProto.ECRHubResponse.newBuilder().setErrorMsg("Unsupported topic:" + request.getTopic());
+        } else if (failureRate > 0 && random.nextDouble() < failureRate) {
+            response = ECRHubResponseProto.ECRHubResponse.newBuilder().setErrorMsg("Emulated failure");
+        } else {
+            response = handler.handle(request);
+            if (response == null) {
+                return null;
+            }
+        }
+        if (response.getMsgId().isEmpty()) {
+            response.setMsgId(request.getMsgId());
+        }
+        if (response.getTopic().isEmpty()) {
+            response.setTopic(request.getTopic());
+        }
+        return complete(response, deviceSn);
+    }
+
+    /**
+     * An unsolicited payment result, as pushed by a terminal when a payment completes on the device
+     */
+    public ECRHubResponseProto.ECRHubResponse push(String msgId, String deviceSn) {
+        ECRHubResponseProto.ECRHubResponse.Builder response = success()
+                .setMsgId(msgId)
+                .setTopic(ETopic.PAY_ORDER.getValue())
+                .setBizData(ECRHubResponseProto.ResponseBizData.newBuilder()
+                        .setMerchantOrderNo("P" + transNo.incrementAndGet())
+                        .setOrderAmount("1")
+                        .setPaidAmount("1")
+                        .setTransNo(String.valueOf(transNo.get()))
+                        .setTransStatus("2"));
+        return complete(response, deviceSn);
+    }
+
+    /**
+     * Draw the latency of the next answer (milliseconds)
+     */
+    public long nextLatency() {
+        return Math.max(0, latency.getAsLong());
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public LongSupplier getLatency() {
+        return latency;
+    }
+
+    public void setLatency(LongSupplier latency) {
+        this.latency = latency;
+    }
+
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    public double getDropRate() {
+        return dropRate;
+    }
+
+    public void setDropRate(double dropRate) {
+        this.dropRate = dropRate;
+    }
+
+    private ECRHubResponseProto.ECRHubResponse complete(ECRHubResponseProto.ECRHubResponse.Builder response, String deviceSn) {
+        if (response.getTimestamp().isEmpty()) {
+            response.setTimestamp(String.valueOf(System.currentTimeMillis()));
+        }
+        if (!response.hasDeviceData()) {
+            response.setDeviceData(ECRHubResponseProto.ResponseDeviceData.newBuilder()
+                    .setDeviceSn(deviceSn)
+                    .setAppName(APP_NAME));
+        }
+        return response.build();
+    }
+
+    private static ECRHubResponseProto.ECRHubResponse.Builder success() {
+        return ECRHubResponseProto.ECRHubResponse.newBuilder()
+                .setSuccess(true)
+                .setVersion("1.0");
+    }
+
+    private ECRHubResponseProto.ECRHubResponse.Builder approve(ECRHubRequestProto.ECRHubRequest request) {
+        ECRHubRequestProto.RequestBizData bizData = request.getBizData();
+        return success().setBizData(ECRHubResponseProto.ResponseBizData.newBuilder()
+                .setMerchantOrderNo(bizData.getMerchantOrderNo())
+                .setOrderAmount(bizData.getOrderAmount())
+                .setPaidAmount(bizData.getOrderAmount())
+                .setPriceCurrency(bizData.getPriceCurrency())
+                .setTransType(bizData.getTransType())
+                .setTransNo(String.valueOf(transNo.incrementAndGet()))
+                .setTransStatus("2"));
+    }
+}
@@ -0,0 +1,114 @@
+package com.wiseasy.ecr.hub.sdk.spi.emulator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process TLS front of an emulator, e.g. wss:// in front of a {@link WebSocketTerminalEmulator}.
+ *
+ * Accepted TLS connections are piped to the plain port of the emulator, two threads per connection.
+ * The JDK server socket resumes cached sessions reliably, which the SSL channel of the WebSocket server does not.
+ */
+public class TlsTerminator implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(TlsTerminator.class);
+
+    private final SSLServerSocket serverSocket;
+    private final int backendPort;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+
+    /**
+     * @param sslContext  Holds the key and certificate presented to the clients
+     * @param port        0 for any free port, see {@link #getPort()}
+     * @param backendPort Plain port of the emulator on the loopback address
+     */
+    public TlsTerminator(SSLContext sslContext, int port, int backendPort) throws IOException {
+        this.serverSocket = (SSLServerSocket) sslContext.getServerSocketFactory().createServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.backendPort = backendPort;
+        Thread acceptThread = new Thread(this::accept, "TlsTerminator-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * URL for the clients, e.g. wss://127.0.0.1:12345
+     */
+    public String getUrl(String scheme) {
+        return scheme + "://" + serverSocket.getInetAddress().getHostAddress() + ":" + getPort();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        closeQuietly(serverSocket);
+        for (Socket socket : connections) {
+            closeQuietly(socket);
+        }
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                Socket client = serverSocket.accept();
+                client.setTcpNoDelay(true);
+                Socket backend = new Socket(InetAddress.getLoopbackAddress(), backendPort);
+                backend.setTcpNoDelay(true);
+                connections.add(client);
+                connections.add(backend);
+                pipe(client, backend, "TlsTerminator-in-" + client.getPort());
+                pipe(backend, client, "TlsTerminator-out-" + client.getPort());
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("Accept error:", e);
+                }
+            }
+        }
+    }
+
+    private void pipe(Socket from, Socket to, String name) {
+        Thread thread = new Thread(() -> {
+            byte[] buffer = new byte[8192];
+            try {
+                InputStream in = from.getInputStream();
+                OutputStream out = to.getOutputStream();
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, n);
+                }
+            } catch (IOException e) {
+                // Closed by either side
+            } finally {
+                connections.remove(from);
+                connections.remove(to);
+                closeQuietly(from);
+                closeQuietly(to);
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.wiseasy.ecr.hub.sdk.spi.emulator;
+
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig;
+import com.wiseasy.ecr.hub.sdk.ECRHubWebSocketClient;
+import com.wiseasy.ecr.hub.sdk.enums.EMetric;
+import com.wiseasy.ecr.hub.sdk.enums.ETopic;
+import com.wiseasy.ecr.hub.sdk.model.request.PurchaseRequest;
+import com.wiseasy.ecr.hub.sdk.spi.metrics.HistogramMetricsRecorder;
+import com.wiseasy.ecr.hub.sdk.spi.metrics.LatencyHistogram;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives purchase transactions over many WebSocket clients and reports throughput and latency.
+ *
+ * Without url= it starts a {@link WebSocketTerminalEmulator} in the same process. Each worker thread
+ * keeps one transaction in flight, going round the connections.
+ *
+ * Usage: java -cp benchmarks/target/benchmarks.jar com.wiseasy.ecr.hub.sdk.spi.emulator.WebSocketLoadDriver
+ * [connections=100] [threads=16] [duration=30] [latency=20] [failureRate=0] [pushInterval=0] [eventLoop=false] [url=ws://...]
+ */
+public class WebSocketLoadDriver {
+
+    private final int connections;
+    private final int threads;
+    private final long durationMillis;
+    private boolean eventLoop = false;
+    private final HistogramMetricsRecorder metrics = new HistogramMetricsRecorder();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public WebSocketLoadDriver(int connections, int threads, long durationMillis) {
+        this.connections = connections;
+        this.threads = threads;
+        this.durationMillis = durationMillis;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int index = arg.indexOf('=');
+            if (index <= 0) {
+                System.err.println("Invalid option: " + arg);
+                System.exit(1);
+            }
+            options.put(arg.substring(0, index), arg.substring(index + 1));
+        }
+        WebSocketLoadDriver driver = new WebSocketLoadDriver(
+                Integer.parseInt(options.getOrDefault("connections", "100")),
+                Integer.parseInt(options.getOrDefault("threads", "16")),
+                Long.parseLong(options.getOrDefault("duration", "30")) * 1000);
+        driver.setEventLoop(Boolean.parseBoolean(options.getOrDefault("eventLoop", "false")));
+
+        WebSocketTerminalEmulator emulator = null;
+        String url = options.get("url");
+        if (url == null) {
+            emulator = new WebSocketTerminalEmulator(0);
+            emulator.getResponder().setLatency(TerminalResponder.logNormal(Long.parseLong(options.getOrDefault("latency", "20")), 0.5));
+            emulator.getResponder().setFailureRate(Double.parseDouble(options.getOrDefault("failureRate", "0")));
+            emulator.setPushInterval(Long.parseLong(options.getOrDefault("pushInterval", "0")));
+            emulator.startAndWait(10000);
+            url = emulator.getUrl();
+        }
+        try {
+            driver.run(url);
+            driver.report(System.out);
+        } finally {
+            if (emulator != null) {
+                emulator.shutdown();
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Serve the clients from the shared NIO event loop, see {@link ECRHubConfig.SocketConfig#setEventLoop(boolean)}
+     */
+    public void setEventLoop(boolean eventLoop) {
+        this.eventLoop = eventLoop;
+    }
+
+    public void run(String url) throws Exception {
+        ECRHubConfig config = new ECRHubConfig("load-driver");
+        config.setMetricsRecorder(metrics);
+        config.getCircuitBreakerConfig().setEnabled(false);
+        config.getSocketConfig().setEventLoop(eventLoop);
+
+        List<ECRHubWebSocketClient> clients = connect(url, config);
+        System.out.println("Connected " + clients.size() + " clients to " + url + ", live threads: " + Thread.activeCount());
+        metrics.reset();
+
+        long deadline = System.currentTimeMillis() + durationMillis;
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            workers.execute(() -> {
+                while (System.currentTimeMillis() < deadline) {
+                    ECRHubWebSocketClient client = clients.get(Math.floorMod(next.getAndIncrement(), clients.size()));
+                    PurchaseRequest request = new PurchaseRequest();
+                    request.setMerchant_order_no("L" + System.nanoTime());
+                    request.setOrder_amount("1");
+                    request.setPay_method_category("BANKCARD");
+                    try {
+                        if (client.execute(request).isSuccess()) {
+                            completed.incrementAndGet();
+                        } else {
+                            failed.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(durationMillis + 60000, TimeUnit.MILLISECONDS);
+
+        for (ECRHubWebSocketClient client : clients) {
+            client.disconnect();
+        }
+    }
+
+    private List<ECRHubWebSocketClient> connect(String url, ECRHubConfig config) throws Exception {
+        List<ECRHubWebSocketClient> clients = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            clients.add(new ECRHubWebSocketClient(url, config));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(connections, 32));
+        CountDownLatch latch = new CountDownLatch(connections);
+        AtomicInteger failures = new AtomicInteger();
+        for (ECRHubWebSocketClient client : clients) {
+            pool.execute(() -> {
+                try {
+                    client.connect();
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        pool.shutdown();
+        if (failures.get() > 0) {
+            throw new IllegalStateException(failures.get() + " of " + connections + " clients failed to connect");
+        }
+        return clients;
+    }
+
+    public void report(PrintStream out) {
+        double seconds = durationMillis / 1000.0;
+        out.printf("Connections: %d, threads: %d, duration: %.0fs%n", connections, threads, seconds);
+        out.printf("Completed: %d, failed: %d, throughput: %.1f tx/s%n", completed.get(), failed.get(), completed.get() / seconds);
+        for (String terminal : metrics.getTerminals()) {
+            LatencyHistogram response = metrics.getHistogram(terminal, ETopic.PAY_ORDER.getValue(), EMetric.RESPONSE);
+            if (response != null && response.getCount() > 0) {
+                long[] values = response.getValuesAtPercentiles(50, 99, 99.9);
+                out.printf("Response latency (ms): p50 %.2f, p99 %.2f, p99.9 %.2f, max %.2f%n",
+                        values[0] / 1e6, values[1] / 1e6, values[2] / 1e6, response.getMax() / 1e6);
+            }
+        }
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+}
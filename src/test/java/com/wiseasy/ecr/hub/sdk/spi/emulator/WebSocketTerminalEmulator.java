@@ -0,0 +1,195 @@
+package com.wiseasy.ecr.hub.sdk.spi.emulator;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubRequestProto;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process WebSocket server emulating a fleet of terminals, one per connection.
+ *
+ * Requests are answered through a {@link TerminalResponder} after the latency it draws, in the frame type
+ * they arrived in. Optionally every connection receives unsolicited payment results at a fixed interval.
+ * Connections are served by the selector and decoder threads of the server and answers are scheduled
+ * on a small shared pool, so thousands of terminals fit in one process.
+ */
+public class WebSocketTerminalEmulator extends WebSocketServer {
+
+    private static final Logger log = LoggerFactory.getLogger(WebSocketTerminalEmulator.class);
+
+    private final TerminalResponder responder;
+    private final ScheduledExecutorService scheduler;
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final AtomicLong terminalSeq = new AtomicLong();
+    private final AtomicLong pushSeq = new AtomicLong();
+    private ScheduledFuture<?> pushTask;
+
+    /**
+     * @param port 0 for any free port, see {@link #getPort()} once started
+     */
+    public WebSocketTerminalEmulator(int port) {
+        this(new InetSocketAddress("127.0.0.1", port), new TerminalResponder());
+    }
+
+    public WebSocketTerminalEmulator(InetSocketAddress address, TerminalResponder responder) {
+        super(address);
+        this.responder = responder;
+        this.scheduler = Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread thread = new Thread(r, "WebSocketTerminalEmulator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        setReuseAddr(true);
+    }
+
+    public TerminalResponder getResponder() {
+        return responder;
+    }
+
+    /**
+     * Start the server and wait until it accepts connections
+     */
+    public void startAndWait(long timeout) throws InterruptedException {
+        start();
+        if (!started.await(timeout, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("The emulator did not start within " + timeout + "ms");
+        }
+    }
+
+    /**
+     * URL for the clients, e.g. ws://127.0.0.1:12345
+     */
+    public String getUrl() {
+        return "ws://" + getAddress().getHostString() + ":" + getPort();
+    }
+
+    /**
+     * Push an unsolicited payment result to every connected terminal at a fixed interval, 0 to stop
+     */
+    public synchronized void setPushInterval(long millis) {
+        if (pushTask != null) {
+            pushTask.cancel(false);
+            pushTask = null;
+        }
+        if (millis > 0) {
+            pushTask = scheduler.scheduleAtFixedRate(this::pushAll, millis, millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Push an unsolicited payment result to one terminal
+     */
+    public void push(WebSocket conn) {
+        Terminal terminal = conn.getAttachment();
+        if (terminal != null && conn.isOpen()) {
+            send(conn, terminal, responder.push("push-" + pushSeq.incrementAndGet(), terminal.deviceSn));
+        }
+    }
+
+    public void shutdown() throws InterruptedException {
+        scheduler.shutdownNow();
+        stop();
+    }
+
+    @Override
+    public void onStart() {
+        log.info("Terminal emulator listening on {}", getUrl());
+        started.countDown();
+    }
+
+    @Override
+    public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        conn.setAttachment(new Terminal("EMU" + terminalSeq.incrementAndGet()));
+    }
+
+    @Override
+    public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, String message) {
+        Terminal terminal = conn.getAttachment();
+        terminal.textFrame = true;
+        onRequest(conn, terminal, message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, ByteBuffer message) {
+        byte[] bytes = new byte[message.remaining()];
+        message.get(bytes);
+        onRequest(conn, conn.getAttachment(), bytes);
+    }
+
+    @Override
+    public void onError(WebSocket conn, Exception ex) {
+        log.warn("Terminal emulator error:", ex);
+    }
+
+    private void onRequest(WebSocket conn, Terminal terminal, byte[] bytes) {
+        ECRHubRequestProto.ECRHubRequest request;
+        try {
+            request = ECRHubRequestProto.ECRHubRequest.parseFrom(bytes);
+        } catch (InvalidProtocolBufferException e) {
+            log.warn("Invalid request:", e);
+            return;
+        }
+        long latency = responder.nextLatency();
+        if (latency == 0) {
+            answer(conn, terminal, request);
+        } else {
+            scheduler.schedule(() -> answer(conn, terminal, request), latency, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void answer(WebSocket conn, Terminal terminal, ECRHubRequestProto.ECRHubRequest request) {
+        try {
+            ECRHubResponseProto.ECRHubResponse response = responder.respond(request, terminal.deviceSn);
+            if (response != null && conn.isOpen()) {
+                send(conn, terminal, response);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Answer request[{}] error:", request.getMsgId(), e);
+        }
+    }
+
+    private void pushAll() {
+        for (WebSocket conn : getConnections()) {
+            push(conn);
+        }
+    }
+
+    private static void send(WebSocket conn, Terminal terminal, ECRHubResponseProto.ECRHubResponse response) {
+        byte[] bytes = response.toByteArray();
+        if (terminal.textFrame) {
+            conn.send(new String(bytes, StandardCharsets.UTF_8));
+        } else {
+            conn.send(bytes);
+        }
+    }
+
+    /**
+     * State of one emulated terminal, attached to its connection
+     */
+    private static class Terminal {
+        private final String deviceSn;
+        private volatile boolean textFrame;
+
+        private Terminal(String deviceSn) {
+            this.deviceSn = deviceSn;
+        }
+    }
+}
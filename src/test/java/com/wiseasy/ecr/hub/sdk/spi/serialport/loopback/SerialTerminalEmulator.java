@@ -0,0 +1,148 @@
+package com.wiseasy.ecr.hub.sdk.spi.serialport.loopback;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig.SerialPortConfig;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubRequestProto;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto;
+import com.wiseasy.ecr.hub.sdk.spi.emulator.TerminalResponder;
+import com.wiseasy.ecr.hub.sdk.spi.serialport.SerialPortPacket;
+import com.wiseasy.ecr.hub.sdk.spi.serialport.SerialPortPacketDecoder;
+import com.wiseasy.ecr.hub.sdk.spi.serialport.SerialTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scriptable terminal on the other end of a serial transport.
+ *
+ * Confirms handshakes, answers heartbeats, acknowledges data packets and answers requests
+ * through a {@link TerminalResponder}, whose handlers and latency can be changed at any time.
+ */
+public class SerialTerminalEmulator {
+
+    private static final Logger log = LoggerFactory.getLogger(SerialTerminalEmulator.class);
+
+    public static final String DEVICE_SN = "EMULATOR";
+
+    private final SerialTransport transport;
+    private final TerminalResponder responder;
+    private final SerialPortPacketDecoder decoder = new SerialPortPacketDecoder();
+    private ScheduledExecutorService executor;
+
+    private volatile boolean answerHandshake = true;
+
+    public SerialTerminalEmulator(SerialTransport transport) {
+        this(transport, new TerminalResponder());
+    }
+
+    public SerialTerminalEmulator(SerialTransport transport, TerminalResponder responder) {
+        this.transport = transport;
+        this.responder = responder;
+    }
+
+    public TerminalResponder getResponder() {
+        return responder;
+    }
+
+    public SerialTerminalEmulator on(String topic, TerminalResponder.Handler handler) {
+        responder.on(topic, handler);
+        return this;
+    }
+
+    public synchronized void start() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "SerialTerminalEmulator-" + transport.getName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            transport.open(new SerialPortConfig());
+            transport.setDataListener(this::onData);
+        }
+    }
+
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+            transport.close();
+        }
+    }
+
+    /**
+     * Answer every request after a fixed delay (milliseconds), see {@link TerminalResponder#setLatency}
+     */
+    public void setResponseDelay(long responseDelay) {
+        responder.setLatency(TerminalResponder.fixed(responseDelay));
+    }
+
+    public boolean isAnswerHandshake() {
+        return answerHandshake;
+    }
+
+    public void setAnswerHandshake(boolean answerHandshake) {
+        this.answerHandshake = answerHandshake;
+    }
+
+    /**
+     * Number of requests received
+     */
+    public long getRequestCount() {
+        return responder.getRequestCount();
+    }
+
+    private void onData(byte[] bytes) {
+        for (String hexPack : decoder.decode(bytes)) {
+            SerialPortPacket pack = new SerialPortPacket().decode(hexPack);
+            if (pack == null || !pack.isValid()) {
+                continue;
+            }
+            if (pack.getPackType() == SerialPortPacket.PACK_TYPE_HANDSHAKE) {
+                if (answerHandshake) {
+                    write(new SerialPortPacket.HandshakeConfirmPacket().encode());
+                }
+            } else if (pack.getPackType() == SerialPortPacket.PACK_TYPE_COMMON) {
+                if (pack.getId() != 0x00) {
+                    write(new SerialPortPacket.AckPacket(pack.getId()).encode());
+                    onRequest(pack.getData());
+                } else if (pack.getAck() == 0x00) {
+                    write(new SerialPortPacket.HeartBeatPacket().encode());
+                }
+            }
+        }
+    }
+
+    private void onRequest(byte[] data) {
+        ECRHubRequestProto.ECRHubRequest request;
+        try {
+            request = ECRHubRequestProto.ECRHubRequest.parseFrom(data);
+        } catch (InvalidProtocolBufferException e) {
+            log.warn("Invalid request:", e);
+            return;
+        }
+        ScheduledExecutorService current = executor;
+        if (current != null) {
+            current.schedule(() -> answer(request), responder.nextLatency(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void answer(ECRHubRequestProto.ECRHubRequest request) {
+        try {
+            ECRHubResponseProto.ECRHubResponse response = responder.respond(request, DEVICE_SN);
+            if (response != null) {
+                write(new SerialPortPacket.MsgPacket(response.toByteArray()).encode());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Answer request[{}] error:", request.getMsgId(), e);
+        }
+    }
+
+    private void write(byte[] pack) {
+        if (transport.isOpen()) {
+            transport.write(pack, pack.length);
+        }
+    }
+}
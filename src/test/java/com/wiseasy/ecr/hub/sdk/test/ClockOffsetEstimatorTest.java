@@ -0,0 +1,66 @@
+package com.wiseasy.ecr.hub.sdk.test;
+
+import com.wiseasy.ecr.hub.sdk.spi.ClockOffsetEstimator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Terminal clock offset from heartbeat exchanges: midpoint offset, shortest round trip of the window, reset
+ */
+public class ClockOffsetEstimatorTest {
+
+    @Test
+    @DisplayName("the offset is taken at the midpoint of the round trip")
+    public void midpoint() {
+        ClockOffsetEstimator clock = new ClockOffsetEstimator();
+        Assertions.assertFalse(clock.hasEstimate());
+        Assertions.assertEquals(0, clock.getOffset());
+        Assertions.assertEquals(-1, clock.getRoundTrip());
+
+        clock.addSample(1000, 1040, 6020);
+        Assertions.assertTrue(clock.hasEstimate());
+        Assertions.assertEquals(5000, clock.getOffset());
+        Assertions.assertEquals(40, clock.getRoundTrip());
+    }
+
+    @Test
+    @DisplayName("the sample with the shortest round trip wins, only the last 8 count")
+    public void shortestRoundTrip() {
+        ClockOffsetEstimator clock = new ClockOffsetEstimator();
+        clock.addSample(1000, 1010, 1505);
+        clock.addSample(2000, 2200, 2600);
+        Assertions.assertEquals(500, clock.getOffset());
+        Assertions.assertEquals(10, clock.getRoundTrip());
+
+        // Eight slower samples push the fast one out of the window
+        for (int i = 0; i < 8; i++) {
+            clock.addSample(3000 + i * 100, 3020 + i * 100, 3310 + i * 100);
+        }
+        Assertions.assertEquals(300, clock.getOffset());
+        Assertions.assertEquals(20, clock.getRoundTrip());
+    }
+
+    @Test
+    @DisplayName("samples without terminal time or with a negative round trip are ignored")
+    public void invalidSamples() {
+        ClockOffsetEstimator clock = new ClockOffsetEstimator();
+        clock.addSample(1000, 1010, 0);
+        clock.addSample(1010, 1000, 5000);
+        Assertions.assertFalse(clock.hasEstimate());
+    }
+
+    @Test
+    @DisplayName("a reset drops the samples of the previous link")
+    public void reset() {
+        ClockOffsetEstimator clock = new ClockOffsetEstimator();
+        clock.addSample(1000, 1002, 9001);
+        clock.reset();
+        Assertions.assertFalse(clock.hasEstimate());
+        Assertions.assertEquals(0, clock.getOffset());
+
+        clock.addSample(2000, 2100, 2550);
+        Assertions.assertEquals(500, clock.getOffset(), "Not the faster sample from before the reset");
+        Assertions.assertEquals(100, clock.getRoundTrip());
+    }
+}
@@ -0,0 +1,145 @@
+package com.wiseasy.ecr.hub.sdk.test;
+
+import com.wiseasy.ecr.hub.sdk.spi.DefaultMsgIdGenerator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Layout, text form and ordering of the default message IDs
+ */
+public class DefaultMsgIdGeneratorTest {
+
+    private static final long EPOCH = 1672531200000L;
+
+    @Test
+    @DisplayName("41 bits milliseconds, 10 bits node, 12 bits sequence")
+    public void layout() {
+        long before = System.currentTimeMillis();
+        long key = new DefaultMsgIdGenerator(0x2a5).nextKey();
+        long after = System.currentTimeMillis();
+
+        Assertions.assertTrue(key > 0);
+        Assertions.assertEquals(0, key >>> 63);
+        long millis = (key >>> 22) + EPOCH;
+        Assertions.assertTrue(millis >= before && millis <= after, "Timestamp " + millis);
+        Assertions.assertEquals(0x2a5, (key >>> 12) & 0x3ff);
+        Assertions.assertEquals(0, key & 0xfff, "First ID of the millisecond");
+
+        Assertions.assertEquals(0x3ff, (new DefaultMsgIdGenerator(-1).nextKey() >>> 12) & 0x3ff, "Node masked to 10 bits");
+    }
+
+    @Test
+    @DisplayName("lowercase base 36, at most 13 characters, mapped back to the key")
+    public void base36() {
+        DefaultMsgIdGenerator generator = new DefaultMsgIdGenerator(7);
+        for (int i = 0; i < 1000; i++) {
+            long key = generator.nextKey();
+            String id = DefaultMsgIdGenerator.format(key);
+            Assertions.assertEquals(Long.toString(key, 36), id);
+            Assertions.assertTrue(id.length() <= 13);
+            Assertions.assertEquals(key, DefaultMsgIdGenerator.toKey(id));
+        }
+        Assertions.assertEquals("0", DefaultMsgIdGenerator.format(0));
+        Assertions.assertEquals(Long.toString(Long.MAX_VALUE, 36), DefaultMsgIdGenerator.format(Long.MAX_VALUE));
+        Assertions.assertEquals(Long.MAX_VALUE, DefaultMsgIdGenerator.toKey(Long.toString(Long.MAX_VALUE, 36)));
+    }
+
+    @Test
+    @DisplayName("IDs not in canonical form have no key")
+    public void noKey() {
+        Assertions.assertEquals(DefaultMsgIdGenerator.NO_KEY, DefaultMsgIdGenerator.toKey(null));
+        Assertions.assertEquals(DefaultMsgIdGenerator.NO_KEY, DefaultMsgIdGenerator.toKey(""));
+        Assertions.assertEquals(DefaultMsgIdGenerator.NO_KEY, DefaultMsgIdGenerator.toKey("0abc"), "Leading zero");
+        Assertions.assertEquals(DefaultMsgIdGenerator.NO_KEY, DefaultMsgIdGenerator.toKey("ABC"), "Uppercase");
+        Assertions.assertEquals(DefaultMsgIdGenerator.NO_KEY, DefaultMsgIdGenerator.toKey("ab-c"));
+        Assertions.assertEquals(DefaultMsgIdGenerator.NO_KEY, DefaultMsgIdGenerator.toKey("1234567890abcd"), "Too long");
+        Assertions.assertEquals(DefaultMsgIdGenerator.NO_KEY, DefaultMsgIdGenerator.toKey("zzzzzzzzzzzzz"), "Overflow");
+        Assertions.assertEquals(DefaultMsgIdGenerator.NO_KEY, DefaultMsgIdGenerator.toKey("8b9a0d6e4c2f4a1b9c8d7e6f5a4b3c2d"), "UUID");
+    }
+
+    @Test
+    @DisplayName("sequence overflow borrows from the next millisecond")
+    public void sequenceOverflow() {
+        DefaultMsgIdGenerator generator = new FixedClockGenerator(new AtomicLong(EPOCH + 1000));
+        long first = generator.nextKey();
+        long prev = first;
+        for (int i = 1; i < 4096 + 10; i++) {
+            long key = generator.nextKey();
+            Assertions.assertTrue(key > prev);
+            prev = key;
+        }
+        Assertions.assertEquals((first >>> 22) + 1, prev >>> 22, "Moved on to the next millisecond");
+        Assertions.assertEquals(9, prev & 0xfff);
+    }
+
+    @Test
+    @DisplayName("IDs keep increasing when the clock goes back")
+    public void clockRegress() {
+        AtomicLong clock = new AtomicLong(EPOCH + 60000);
+        DefaultMsgIdGenerator generator = new FixedClockGenerator(clock);
+        long before = generator.nextKey();
+        clock.addAndGet(-5000);
+        long after = generator.nextKey();
+        Assertions.assertTrue(after > before);
+        Assertions.assertEquals(before >>> 22, after >>> 22, "Stays on the last millisecond handed out");
+
+        clock.addAndGet(10000);
+        long later = generator.nextKey();
+        Assertions.assertEquals(EPOCH + 65000, (later >>> 22) + EPOCH, "Follows the clock again once it caught up");
+        Assertions.assertEquals(0, later & 0xfff);
+    }
+
+    @Test
+    @DisplayName("unique under concurrency")
+    public void concurrentUniqueness() throws InterruptedException {
+        DefaultMsgIdGenerator generator = new DefaultMsgIdGenerator(1);
+        int threads = 8;
+        int perThread = 20000;
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int t = 0; t < threads; t++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        ids.add(generator.nextId());
+                    }
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            Assertions.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals(threads * perThread, ids.size());
+    }
+
+    private static class FixedClockGenerator extends DefaultMsgIdGenerator {
+        private final AtomicLong clock;
+
+        private FixedClockGenerator(AtomicLong clock) {
+            super(3);
+            this.clock = clock;
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return clock.get();
+        }
+    }
+}
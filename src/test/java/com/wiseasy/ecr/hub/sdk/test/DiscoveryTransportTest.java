@@ -0,0 +1,161 @@
+package com.wiseasy.ecr.hub.sdk.test;
+
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig;
+import com.wiseasy.ecr.hub.sdk.enums.EPriority;
+import com.wiseasy.ecr.hub.sdk.enums.ETopic;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubRequestProto;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto;
+import com.wiseasy.ecr.hub.sdk.spi.discovery.DiscoveryTransport;
+import com.wiseasy.ecr.hub.sdk.spi.discovery.TerminalEndpoint;
+import com.wiseasy.ecr.hub.sdk.spi.discovery.TerminalRegistry;
+import com.wiseasy.ecr.hub.sdk.spi.emulator.TcpTerminalEmulator;
+import com.wiseasy.ecr.hub.sdk.spi.emulator.TerminalResponder;
+import com.wiseasy.ecr.hub.sdk.spi.transport.Transport;
+import com.wiseasy.ecr.hub.sdk.spi.transport.TransportContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Re-addressing of sn:// links: the device SN is checked before a new address is used,
+ * and requests in flight on the old address still get their responses
+ */
+public class DiscoveryTransportTest {
+
+    private static final long TIMEOUT = 5000;
+    private static final String DEVICE_SN = "PP35272137000236";
+
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+    private final AtomicInteger retargets = new AtomicInteger();
+    private final TerminalRegistry registry = new TerminalRegistry();
+    private TcpTerminalEmulator first;
+    private TcpTerminalEmulator second;
+    private DiscoveryTransport transport;
+
+    @BeforeEach
+    public void setUp() throws ECRHubException, IOException {
+        first = new TcpTerminalEmulator(0, responder(DEVICE_SN));
+        registry.update(new TerminalEndpoint(DEVICE_SN, first.getUrl()));
+        transport = new DiscoveryTransport(DEVICE_SN, registry, new TransportContext(new ECRHubConfig()));
+        transport.setListener(new Transport.Listener() {
+            @Override
+            public ECRHubResponseProto.ECRHubResponse onMessage(byte[] message) {
+                try {
+                    ECRHubResponseProto.ECRHubResponse response = ECRHubResponseProto.ECRHubResponse.parseFrom(message);
+                    received.add(response.getMsgId());
+                    return response;
+                } catch (IOException e) {
+                    return null;
+                }
+            }
+
+            @Override
+            public void onRetarget() {
+                retargets.incrementAndGet();
+            }
+        });
+        transport.connect(System.currentTimeMillis() + TIMEOUT);
+        Assertions.assertEquals(first.getUrl(), transport.getCurrentUrl());
+    }
+
+    @AfterEach
+    public void tearDown() throws ECRHubException {
+        transport.disconnect();
+        first.shutdown();
+        if (second != null) {
+            second.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("an address answered by another device SN is not used")
+    public void otherDevice() throws Exception {
+        second = new TcpTerminalEmulator(0, responder("PP00000000000000"));
+        registry.update(new TerminalEndpoint(DEVICE_SN, second.getUrl()));
+        awaitTrue(() -> second.getResponder().getRequestCount() > 0);
+        Thread.sleep(200);
+        Assertions.assertEquals(first.getUrl(), transport.getCurrentUrl());
+        Assertions.assertEquals(0, retargets.get());
+
+        send("msg-1");
+        Assertions.assertEquals("msg-1", received.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @DisplayName("requests in flight are answered on the old address after the move")
+    public void drainOnMove() throws Exception {
+        first.getResponder().setLatency(TerminalResponder.fixed(500));
+        send("slow");
+
+        second = new TcpTerminalEmulator(0, responder(DEVICE_SN));
+        registry.update(new TerminalEndpoint(DEVICE_SN, second.getUrl()));
+        awaitTrue(() -> second.getUrl().equals(transport.getCurrentUrl()));
+        awaitTrue(() -> retargets.get() == 1);
+
+        send("fast");
+        Assertions.assertEquals("fast", received.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+        Assertions.assertEquals("slow", received.poll(TIMEOUT, TimeUnit.MILLISECONDS), "Answered on the old link");
+    }
+
+    @Test
+    @DisplayName("a failed connect stops following announcements")
+    public void failedConnect() throws Exception {
+        DiscoveryTransport unknown = new DiscoveryTransport("PP99999999999999", registry, new TransportContext(new ECRHubConfig()));
+        Assertions.assertThrows(ECRHubException.class, () -> unknown.connect(System.currentTimeMillis() + 100));
+
+        second = new TcpTerminalEmulator(0, responder("PP99999999999999"));
+        registry.update(new TerminalEndpoint("PP99999999999999", second.getUrl()));
+        Thread.sleep(200);
+        Assertions.assertEquals(0, second.getResponder().getRequestCount(), "No link opened in the background");
+        Assertions.assertNull(unknown.getCurrentUrl());
+    }
+
+    @Test
+    @DisplayName("a listener added twice is notified once")
+    public void listenerOnce() {
+        AtomicInteger changes = new AtomicInteger();
+        TerminalRegistry.Listener listener = (previous, current) -> changes.incrementAndGet();
+        registry.addListener(listener);
+        registry.addListener(listener);
+        registry.update(new TerminalEndpoint("PP11111111111111", "tcp://127.0.0.1:1"));
+        Assertions.assertEquals(1, changes.get());
+        registry.removeListener(listener);
+        registry.update(new TerminalEndpoint("PP11111111111111", "tcp://127.0.0.1:2"));
+        Assertions.assertEquals(1, changes.get());
+    }
+
+    private static TerminalResponder responder(String deviceSn) {
+        return new TerminalResponder().on(ETopic.HEARTBEAT.getValue(), request -> ECRHubResponseProto.ECRHubResponse.newBuilder()
+                .setSuccess(true)
+                .setDeviceData(ECRHubResponseProto.ResponseDeviceData.newBuilder().setDeviceSn(deviceSn)));
+    }
+
+    private void send(String msgId) throws ECRHubException {
+        byte[] request = ECRHubRequestProto.ECRHubRequest.newBuilder()
+                .setMsgId(msgId)
+                .setTopic(ETopic.QUERY_ORDER.getValue())
+                .build()
+                .toByteArray();
+        byte[] buffer = new byte[transport.getHeadroom() + request.length + transport.getTailroom()];
+        System.arraycopy(request, 0, buffer, transport.getHeadroom(), request.length);
+        transport.send(buffer, request.length, ETopic.QUERY_ORDER.getValue(), EPriority.PAYMENT, 0, null);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "Condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+}
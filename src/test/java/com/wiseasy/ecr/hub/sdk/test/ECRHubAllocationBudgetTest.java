@@ -0,0 +1,165 @@
+package com.wiseasy.ecr.hub.sdk.test;
+
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig;
+import com.wiseasy.ecr.hub.sdk.ECRHubSerialPortClient;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.model.request.CloseRequest;
+import com.wiseasy.ecr.hub.sdk.model.request.PurchaseRequest;
+import com.wiseasy.ecr.hub.sdk.model.request.QueryRequest;
+import com.wiseasy.ecr.hub.sdk.model.request.RefundRequest;
+import com.wiseasy.ecr.hub.sdk.spi.serialport.loopback.LoopbackSerialLink;
+import com.wiseasy.ecr.hub.sdk.spi.serialport.loopback.SerialTerminalEmulator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+
+/**
+ * Bytes allocated and threads started per transaction by the SDK, over the serial loopback.
+ *
+ * Allocation is summed over all threads except those of the emulated terminal, so it covers the caller,
+ * the write thread and the read listener. A change that exceeds a budget fails the test: either remove
+ * the garbage or raise the budget on purpose.
+ */
+public class ECRHubAllocationBudgetTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ECRHubAllocationBudgetTest.class);
+
+    public static final String APP_ID = "wz6012822ca2f1as78";
+
+    private static final int WARMUP = 300;
+    private static final int MEASURED = 500;
+    /**
+     * Synchronous transactions must not start threads
+     */
+    private static final int MAX_THREADS_STARTED = 0;
+
+    /**
+     * Bytes allocated per transaction, about 1.5x the measured cost
+     */
+    private static final long PURCHASE_BUDGET = 12 * 1024;
+    private static final long REFUND_BUDGET = 13 * 1024;
+    private static final long QUERY_BUDGET = 12 * 1024;
+    private static final long CLOSE_BUDGET = 11 * 1024;
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static LoopbackSerialLink link;
+    private static SerialTerminalEmulator emulator;
+    private static ECRHubSerialPortClient client;
+
+    private interface Transaction {
+        void execute(int i) throws ECRHubException;
+    }
+
+    @BeforeAll
+    public static void before() throws ECRHubException {
+        Assumptions.assumeTrue(THREADS.isThreadAllocatedMemorySupported(), "Thread allocation counters not supported");
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        link = new LoopbackSerialLink("LOOPBACK");
+        link.setBaudRate(0);
+        emulator = new SerialTerminalEmulator(link.terminal());
+        emulator.start();
+        client = new ECRHubSerialPortClient(link.host(), new ECRHubConfig(APP_ID));
+        client.connect();
+    }
+
+    @AfterAll
+    public static void after() throws ECRHubException {
+        if (client != null) {
+            client.disconnect();
+            emulator.stop();
+            link.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("purchase")
+    public void purchase() throws ECRHubException {
+        assertBudget("purchase", PURCHASE_BUDGET, i -> {
+            PurchaseRequest request = new PurchaseRequest();
+            request.setMerchant_order_no("O" + i);
+            request.setOrder_amount("10");
+            request.setPay_method_category("BANKCARD");
+            Assertions.assertTrue(client.execute(request).isSuccess());
+        });
+    }
+
+    @Test
+    @DisplayName("refund")
+    public void refund() throws ECRHubException {
+        assertBudget("refund", REFUND_BUDGET, i -> {
+            RefundRequest request = new RefundRequest();
+            request.setOrig_merchant_order_no("O" + i);
+            request.setMerchant_order_no("R" + i);
+            request.setOrder_amount("1");
+            request.setPay_method_category("BANKCARD");
+            Assertions.assertTrue(client.execute(request).isSuccess());
+        });
+    }
+
+    @Test
+    @DisplayName("query")
+    public void query() throws ECRHubException {
+        assertBudget("query", QUERY_BUDGET, i -> {
+            QueryRequest request = new QueryRequest();
+            request.setMerchant_order_no("O" + i);
+            Assertions.assertTrue(client.execute(request).isSuccess());
+        });
+    }
+
+    @Test
+    @DisplayName("close")
+    public void close() throws ECRHubException {
+        assertBudget("close", CLOSE_BUDGET, i -> {
+            CloseRequest request = new CloseRequest();
+            request.setMerchant_order_no("O" + i);
+            Assertions.assertTrue(client.execute(request).isSuccess());
+        });
+    }
+
+    private static void assertBudget(String name, long budget, Transaction transaction) throws ECRHubException {
+        for (int i = 0; i < WARMUP; i++) {
+            transaction.execute(i);
+        }
+        long startedBefore = THREADS.getTotalStartedThreadCount();
+        long allocatedBefore = allocatedBytes();
+        for (int i = 0; i < MEASURED; i++) {
+            transaction.execute(i);
+        }
+        long allocated = (allocatedBytes() - allocatedBefore) / MEASURED;
+        long started = THREADS.getTotalStartedThreadCount() - startedBefore;
+        log.info("{}: {} bytes allocated per transaction (budget {}), {} threads started", name, allocated, budget, started);
+
+        Assertions.assertTrue(allocated <= budget, name + " allocates " + allocated + " bytes per transaction, budget " + budget);
+        Assertions.assertTrue(started <= MAX_THREADS_STARTED, name + " started " + started + " threads");
+    }
+
+    /**
+     * Bytes allocated so far by the threads on the SDK side of the loopback
+     */
+    private static long allocatedBytes() {
+        long total = 0;
+        long[] ids = THREADS.getAllThreadIds();
+        long[] bytes = THREADS.getThreadAllocatedBytes(ids);
+        ThreadInfo[] infos = THREADS.getThreadInfo(ids);
+        for (int i = 0; i < ids.length; i++) {
+            if (infos[i] != null && bytes[i] > 0 && !isTerminalThread(infos[i].getThreadName())) {
+                total += bytes[i];
+            }
+        }
+        return total;
+    }
+
+    private static boolean isTerminalThread(String name) {
+        return name.startsWith("SerialTerminalEmulator") || (name.startsWith("LoopbackSerial-") && name.endsWith("-tx"));
+    }
+}
@@ -0,0 +1,166 @@
+package com.wiseasy.ecr.hub.sdk.test;
+
+import com.wiseasy.ecr.hub.sdk.ECRHubCircuitBreaker;
+import com.wiseasy.ecr.hub.sdk.ECRHubCircuitBreaker.State;
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubCircuitOpenException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * State machine of the circuit breaker: closed, open, half-open probe, closed or open again
+ */
+public class ECRHubCircuitBreakerTest {
+
+    private static final int OPEN_TIMEOUT = 50;
+
+    private ECRHubConfig.CircuitBreakerConfig config;
+    private final AtomicInteger probes = new AtomicInteger();
+    private final AtomicBoolean alive = new AtomicBoolean(true);
+    private ECRHubCircuitBreaker breaker;
+
+    @BeforeEach
+    public void before() {
+        config = new ECRHubConfig.CircuitBreakerConfig();
+        config.setEnabled(true);
+        config.setFailureThreshold(3);
+        config.setOpenTimeout(OPEN_TIMEOUT);
+        breaker = new ECRHubCircuitBreaker(config, timeout -> {
+            probes.incrementAndGet();
+            return alive.get();
+        });
+    }
+
+    @Test
+    @DisplayName("disabled by default")
+    public void disabledByDefault() throws ECRHubCircuitOpenException {
+        Assertions.assertFalse(new ECRHubConfig().getCircuitBreakerConfig().isEnabled());
+
+        config.setEnabled(false);
+        for (int i = 0; i < 10; i++) {
+            breaker.onFailure();
+        }
+        Assertions.assertEquals(State.CLOSED, breaker.getState());
+        breaker.acquire();
+        Assertions.assertEquals(0, probes.get());
+    }
+
+    @Test
+    @DisplayName("opens at the failure threshold")
+    public void opensAtThreshold() throws ECRHubCircuitOpenException {
+        breaker.onFailure();
+        breaker.onFailure();
+        Assertions.assertEquals(State.CLOSED, breaker.getState());
+        breaker.acquire();
+
+        breaker.onFailure();
+        Assertions.assertEquals(State.OPEN, breaker.getState());
+        Assertions.assertThrows(ECRHubCircuitOpenException.class, breaker::acquire);
+        Assertions.assertEquals(0, probes.get(), "No probe before the open timeout");
+    }
+
+    @Test
+    @DisplayName("a success resets the consecutive failures")
+    public void successResetsFailures() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        Assertions.assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    @DisplayName("half-open probe succeeds, then the request closes the circuit")
+    public void probeThenClose() throws Exception {
+        open();
+        Thread.sleep(OPEN_TIMEOUT + 20);
+
+        breaker.acquire();
+        Assertions.assertEquals(1, probes.get());
+        Assertions.assertEquals(State.HALF_OPEN, breaker.getState());
+        // Only the probing caller is let through
+        Assertions.assertThrows(ECRHubCircuitOpenException.class, breaker::acquire);
+
+        breaker.onSuccess();
+        Assertions.assertEquals(State.CLOSED, breaker.getState());
+        breaker.acquire();
+        Assertions.assertEquals(1, probes.get());
+    }
+
+    @Test
+    @DisplayName("half-open request fails, the circuit opens again")
+    public void probeThenFail() throws Exception {
+        open();
+        Thread.sleep(OPEN_TIMEOUT + 20);
+
+        breaker.acquire();
+        breaker.onFailure();
+        Assertions.assertEquals(State.OPEN, breaker.getState());
+        Assertions.assertThrows(ECRHubCircuitOpenException.class, breaker::acquire);
+        Assertions.assertEquals(1, probes.get());
+    }
+
+    @Test
+    @DisplayName("failed probe keeps the circuit open for another cool-down")
+    public void failedProbe() throws Exception {
+        open();
+        alive.set(false);
+        Thread.sleep(OPEN_TIMEOUT + 20);
+
+        Assertions.assertThrows(ECRHubCircuitOpenException.class, breaker::acquire);
+        Assertions.assertEquals(State.OPEN, breaker.getState());
+        Assertions.assertEquals(1, probes.get());
+        // The cool-down starts over
+        Assertions.assertThrows(ECRHubCircuitOpenException.class, breaker::acquire);
+        Assertions.assertEquals(1, probes.get());
+
+        alive.set(true);
+        Thread.sleep(OPEN_TIMEOUT + 20);
+        breaker.acquire();
+        Assertions.assertEquals(2, probes.get());
+    }
+
+    @Test
+    @DisplayName("a probe error counts as a failed probe")
+    public void probeError() throws Exception {
+        breaker = new ECRHubCircuitBreaker(config, timeout -> {
+            throw new IllegalStateException("link down");
+        });
+        open();
+        Thread.sleep(OPEN_TIMEOUT + 20);
+        Assertions.assertThrows(ECRHubCircuitOpenException.class, breaker::acquire);
+        Assertions.assertEquals(State.OPEN, breaker.getState());
+    }
+
+    @Test
+    @DisplayName("a locally rejected request after the probe closes the circuit")
+    public void rejectedAfterProbe() throws Exception {
+        open();
+        Thread.sleep(OPEN_TIMEOUT + 20);
+        breaker.acquire();
+        breaker.onRejected();
+        Assertions.assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    @DisplayName("reset closes the circuit")
+    public void reset() throws ECRHubCircuitOpenException {
+        open();
+        breaker.reset();
+        Assertions.assertEquals(State.CLOSED, breaker.getState());
+        breaker.acquire();
+    }
+
+    private void open() {
+        for (int i = 0; i < config.getFailureThreshold(); i++) {
+            breaker.onFailure();
+        }
+        Assertions.assertEquals(State.OPEN, breaker.getState());
+    }
+}
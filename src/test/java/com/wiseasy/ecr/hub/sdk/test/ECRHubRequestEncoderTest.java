@@ -0,0 +1,163 @@
+package com.wiseasy.ecr.hub.sdk.test;
+
+import cn.hutool.core.util.ReflectUtil;
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.annotation.JSONField;
+import com.google.protobuf.Message;
+import com.google.protobuf.util.JsonFormat;
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig;
+import com.wiseasy.ecr.hub.sdk.enums.ETopic;
+import com.wiseasy.ecr.hub.sdk.model.request.CloseRequest;
+import com.wiseasy.ecr.hub.sdk.model.request.ECRHubRequest;
+import com.wiseasy.ecr.hub.sdk.model.request.HeartbeatRequest;
+import com.wiseasy.ecr.hub.sdk.model.request.PurchaseRequest;
+import com.wiseasy.ecr.hub.sdk.model.request.QueryRequest;
+import com.wiseasy.ecr.hub.sdk.model.request.RefundRequest;
+import com.wiseasy.ecr.hub.sdk.model.response.ECRHubResponse;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubEncodeContext;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubProtobufHelper;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubRequestProto;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The reflective request encoder produces the same bytes as the former fastjson and JsonFormat bridge
+ */
+public class ECRHubRequestEncoderTest {
+
+    private static List<ECRHubRequest<?>> requests() {
+        return Arrays.asList(new PurchaseRequest(), new RefundRequest(), new QueryRequest(), new CloseRequest(),
+                new HeartbeatRequest(), new CustomRequest());
+    }
+
+    @Test
+    @DisplayName("biz data of every request type matches the JSON bridge")
+    public void bizData() throws Exception {
+        for (ECRHubRequest<?> request : requests()) {
+            fill(request);
+            Message expected = bridge(request, ECRHubRequestProto.RequestBizData.newBuilder());
+            if (!(request instanceof HeartbeatRequest)) {
+                Assertions.assertNotEquals(0, expected.getSerializedSize(), "Fields set");
+            }
+            assertSameBytes(request, expected, ECRHubProtobufHelper.buildBizData(request));
+        }
+    }
+
+    @Test
+    @DisplayName("voice, printer and notify data of every request type match the JSON bridge")
+    public void subMessages() throws Exception {
+        for (ECRHubRequest<?> request : requests()) {
+            ECRHubRequest.VoiceData voiceData = fill(new ECRHubRequest.VoiceData());
+            ECRHubRequest.PrinterData printerData = fill(new ECRHubRequest.PrinterData());
+            ECRHubRequest.NotifyData notifyData = fill(new ECRHubRequest.NotifyData());
+            request.setVoice_data(voiceData);
+            request.setPrinter_data(printerData);
+            request.setNotify_data(notifyData);
+
+            assertSameBytes(request, bridge(voiceData, ECRHubRequestProto.VoiceData.newBuilder()),
+                    ECRHubProtobufHelper.buildVoiceData(request));
+            assertSameBytes(request, bridge(printerData, ECRHubRequestProto.PrinterData.newBuilder()),
+                    ECRHubProtobufHelper.buildPrintData(request));
+            assertSameBytes(request, bridge(notifyData, ECRHubRequestProto.NotifyData.newBuilder()),
+                    ECRHubProtobufHelper.buildNotifyData(request));
+        }
+    }
+
+    @Test
+    @DisplayName("unset fields are left out as by the JSON bridge")
+    public void unsetFields() throws Exception {
+        for (ECRHubRequest<?> request : requests()) {
+            assertSameBytes(request, bridge(request, ECRHubRequestProto.RequestBizData.newBuilder()),
+                    ECRHubProtobufHelper.buildBizData(request));
+        }
+    }
+
+    @Test
+    @DisplayName("printing a request leaves its unset sub-messages out of the wire message")
+    public void toStringKeepsUnset() throws Exception {
+        PurchaseRequest request = new PurchaseRequest();
+        request.setMerchant_order_no("1217752501201407033233368018");
+        Assertions.assertTrue(request.toString().contains("\"merchantOrderNo\":\"1217752501201407033233368018\""));
+        Assertions.assertFalse(request.hasVoice_data());
+        Assertions.assertFalse(request.hasPrinter_data());
+        Assertions.assertFalse(request.hasNotify_data());
+        Assertions.assertFalse(request.hasMsg_id());
+
+        ECRHubConfig config = new ECRHubConfig();
+        config.setAppId("wz6012822ca2f1as78");
+        ECRHubRequestProto.ECRHubRequest message = ECRHubProtobufHelper.build(ECRHubEncodeContext.get(), config, request);
+        Assertions.assertFalse(message.hasVoiceData());
+        Assertions.assertFalse(message.hasPrinterData());
+        Assertions.assertFalse(message.hasNotifyData());
+
+        request.getNotify_data().setTitle("Thank you");
+        Assertions.assertTrue(request.toString().contains("\"notifyData\":{\"title\":\"Thank you\"}"));
+        message = ECRHubProtobufHelper.build(ECRHubEncodeContext.get(), config, request);
+        Assertions.assertEquals("Thank you", message.getNotifyData().getTitle());
+    }
+
+    /**
+     * Encoding of the former JSON bridge
+     */
+    private static Message bridge(Object source, Message.Builder builder) throws Exception {
+        JsonFormat.parser().ignoringUnknownFields().merge(JSON.toJSONString(source), builder);
+        return builder.build();
+    }
+
+    private static void assertSameBytes(ECRHubRequest<?> request, Message expected, Message actual) {
+        String type = request.getClass().getSimpleName() + " " + expected.getDescriptorForType().getName();
+        Assertions.assertEquals(expected, actual, type);
+        Assertions.assertArrayEquals(expected.toByteArray(), actual.toByteArray(), type);
+    }
+
+    /**
+     * Set every string field to a value of its own and every map field to one entry
+     */
+    private static <T> T fill(T source) {
+        for (Class<?> c = source.getClass(); c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                if (field.getType() == String.class) {
+                    ReflectUtil.setFieldValue(source, field, field.getName() + "-value");
+                } else if (field.getType() == Map.class) {
+                    ReflectUtil.setFieldValue(source, field, Collections.singletonMap("key", "value"));
+                }
+            }
+        }
+        return source;
+    }
+
+    /**
+     * Caller-defined request with fields the built-in requests do not have
+     */
+    public static class CustomRequest extends ECRHubRequest<ECRHubResponse> {
+
+        @JSONField(name = "token")
+        private String token;
+        @JSONField(name = "extendsParams")
+        private Map<String, String> extends_params;
+
+        @Override
+        public String getTopic() {
+            return ETopic.PAY_ORDER.getValue();
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        public Map<String, String> getExtends_params() {
+            return extends_params;
+        }
+    }
+}
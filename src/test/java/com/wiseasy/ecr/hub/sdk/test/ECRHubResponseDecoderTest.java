@@ -0,0 +1,115 @@
+package com.wiseasy.ecr.hub.sdk.test;
+
+import com.alibaba.fastjson2.JSONObject;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.wiseasy.ecr.hub.sdk.model.response.CloseResponse;
+import com.wiseasy.ecr.hub.sdk.model.response.ECRHubResponse;
+import com.wiseasy.ecr.hub.sdk.model.response.PurchaseResponse;
+import com.wiseasy.ecr.hub.sdk.model.response.QueryResponse;
+import com.wiseasy.ecr.hub.sdk.model.response.RefundResponse;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubProtobufHelper;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseDecoder;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The response decoder fills the POJOs like the former JsonFormat and fastjson path of decodeRespPack
+ */
+public class ECRHubResponseDecoderTest {
+
+    private static final List<Class<? extends ECRHubResponse>> RESPONSE_CLASSES = Arrays.asList(ECRHubResponse.class,
+            PurchaseResponse.class, RefundResponse.class, QueryResponse.class, CloseResponse.class);
+
+    @Test
+    @DisplayName("every response class decodes a full response like the JSON path")
+    public void fullResponse() throws Exception {
+        ECRHubResponseProto.ECRHubResponse respProto = ECRHubResponseProto.ECRHubResponse.newBuilder()
+                .setMsgId("msg-1")
+                .setSuccess(true)
+                .setErrorMsg("none")
+                .setBizData((ECRHubResponseProto.ResponseBizData) fill(ECRHubResponseProto.ResponseBizData.newBuilder()))
+                .setDeviceData((ECRHubResponseProto.ResponseDeviceData) fill(ECRHubResponseProto.ResponseDeviceData.newBuilder()))
+                .build();
+        for (Class<? extends ECRHubResponse> respClass : RESPONSE_CLASSES) {
+            ECRHubResponse resp = ECRHubResponseDecoder.decode(respProto, respClass);
+            assertSameFields(jsonPath(respProto, respClass), resp);
+            Assertions.assertEquals("device_sn-value", resp.getDevice_data().getDevice_sn());
+        }
+        PurchaseResponse purchase = ECRHubResponseDecoder.decode(respProto, PurchaseResponse.class);
+        Assertions.assertEquals("merchant_order_no-value", purchase.getMerchant_order_no(), "Fields set");
+    }
+
+    @Test
+    @DisplayName("empty values are left unset like the JSON path")
+    public void emptyResponse() throws Exception {
+        ECRHubResponseProto.ECRHubResponse respProto = ECRHubResponseProto.ECRHubResponse.newBuilder()
+                .setMsgId("msg-2")
+                .build();
+        for (Class<? extends ECRHubResponse> respClass : RESPONSE_CLASSES) {
+            assertSameFields(jsonPath(respProto, respClass), ECRHubResponseDecoder.decode(respProto, respClass));
+        }
+    }
+
+    /**
+     * Decoding of the former decodeRespPack: print to JSON, parse with fastjson and bind
+     */
+    private static <T extends ECRHubResponse> T jsonPath(ECRHubResponseProto.ECRHubResponse respProto, Class<T> respClass) throws Exception {
+        JSONObject deviceDataJson = ECRHubProtobufHelper.proto2Json(respProto.getDeviceData());
+        ECRHubResponse.DeviceData device = deviceDataJson.toJavaObject(ECRHubResponse.DeviceData.class);
+
+        JSONObject bizDataJson = ECRHubProtobufHelper.proto2Json(respProto.getBizData());
+        T resp = bizDataJson.toJavaObject(respClass);
+        resp.setMsg_id(respProto.getMsgId());
+        resp.setSuccess(respProto.getSuccess());
+        resp.setError_msg(respProto.getErrorMsg());
+        resp.setDevice_data(device);
+        return resp;
+    }
+
+    private static void assertSameFields(Object expected, Object actual) throws IllegalAccessException {
+        Assertions.assertSame(expected.getClass(), actual.getClass());
+        for (Class<?> c = expected.getClass(); c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                Object expectedValue = field.get(expected);
+                Object actualValue = field.get(actual);
+                String name = expected.getClass().getSimpleName() + "." + field.getName();
+                if (expectedValue instanceof ECRHubResponse.DeviceData) {
+                    assertSameFields(expectedValue, actualValue);
+                } else {
+                    Assertions.assertTrue(Objects.equals(expectedValue, actualValue),
+                            name + " expected:" + expectedValue + " but was:" + actualValue);
+                }
+            }
+        }
+    }
+
+    /**
+     * Set every string field to a value of its own and every map field to one entry
+     */
+    private static Message fill(Message.Builder builder) {
+        for (FieldDescriptor field : builder.getDescriptorForType().getFields()) {
+            if (field.isMapField()) {
+                Message.Builder entry = builder.newBuilderForField(field);
+                entry.setField(entry.getDescriptorForType().findFieldByName("key"), "key");
+                entry.setField(entry.getDescriptorForType().findFieldByName("value"), "value");
+                builder.addRepeatedField(field, entry.build());
+            } else if (field.getJavaType() == FieldDescriptor.JavaType.STRING) {
+                builder.setField(field, field.getName() + "-value");
+            }
+        }
+        return builder.build();
+    }
+}
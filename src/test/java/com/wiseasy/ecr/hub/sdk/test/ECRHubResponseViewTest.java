@@ -0,0 +1,42 @@
+package com.wiseasy.ecr.hub.sdk.test;
+
+import com.wiseasy.ecr.hub.sdk.model.response.ECRHubResponseView;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * String getters of the response view follow the protobuf getters: empty, never null, for absent fields
+ */
+public class ECRHubResponseViewTest {
+
+    @Test
+    @DisplayName("absent biz fields are empty")
+    public void absentBizFields() throws Exception {
+        ECRHubResponseView view = new ECRHubResponseView(ECRHubResponseProto.ECRHubResponse.newBuilder()
+                .setMsgId("msg-1")
+                .setBizData(ECRHubResponseProto.ResponseBizData.newBuilder().setTransNo("trans-1"))
+                .build()
+                .toByteArray());
+        Assertions.assertEquals("trans-1", view.getTrans_no());
+        Assertions.assertEquals("", view.getMerchant_order_no());
+        Assertions.assertEquals("", view.getPaid_amount());
+        // Cached, still empty
+        Assertions.assertEquals("", view.getMerchant_order_no());
+    }
+
+    @Test
+    @DisplayName("no biz data at all")
+    public void noBizData() throws Exception {
+        ECRHubResponseView view = new ECRHubResponseView(ECRHubResponseProto.ECRHubResponse.newBuilder()
+                .setMsgId("msg-2")
+                .build()
+                .toByteArray());
+        Assertions.assertEquals("msg-2", view.getMsg_id());
+        Assertions.assertEquals("", view.getError_msg());
+        Assertions.assertEquals("", view.getOrder_amount());
+        Assertions.assertEquals("", view.getTrans_status());
+        Assertions.assertTrue(view.getExtends_params().isEmpty());
+    }
+}
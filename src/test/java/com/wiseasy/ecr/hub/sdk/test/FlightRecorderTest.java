@@ -0,0 +1,95 @@
+package com.wiseasy.ecr.hub.sdk.test;
+
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig;
+import com.wiseasy.ecr.hub.sdk.enums.EDirection;
+import com.wiseasy.ecr.hub.sdk.spi.FlightRecorder;
+import com.wiseasy.ecr.hub.sdk.utils.FlightRecordReader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.EnumSet;
+
+/**
+ * Flight recorder defaults: off, and frame headers only unless payload capture is enabled
+ */
+public class FlightRecorderTest {
+
+    private static final byte[] PAYLOAD = "4111111111111111".getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    @DisplayName("off by default")
+    public void disabledByDefault() throws Exception {
+        ECRHubConfig.RecorderConfig config = new ECRHubConfig().getRecorderConfig();
+        Assertions.assertFalse(config.isEnabled());
+        Assertions.assertFalse(config.isCapturePayload());
+
+        FlightRecorder recorder = new FlightRecorder(config);
+        Assertions.assertFalse(recorder.isEnabled());
+        recorder.record(EDirection.OUTBOUND, (byte) 1, (byte) 0, (byte) 1, PAYLOAD);
+        Assertions.assertTrue(print(recorder).isEmpty());
+    }
+
+    @Test
+    @DisplayName("only headers and lengths are kept unless payload capture is enabled")
+    public void headersOnly() throws Exception {
+        ECRHubConfig.RecorderConfig config = new ECRHubConfig.RecorderConfig();
+        config.setEnabled(true);
+        FlightRecorder recorder = new FlightRecorder(config);
+        recorder.record(EDirection.OUTBOUND, (byte) 1, (byte) 0, (byte) 1, PAYLOAD);
+
+        String dump = print(recorder);
+        Assertions.assertTrue(dump.contains("len=" + PAYLOAD.length), dump);
+        Assertions.assertFalse(dump.contains("34313131"), "No payload bytes: " + dump);
+    }
+
+    @Test
+    @DisplayName("payload capture keeps at most maxPayloadBytes per frame")
+    public void capturePayload() throws Exception {
+        ECRHubConfig.RecorderConfig config = new ECRHubConfig.RecorderConfig();
+        config.setEnabled(true);
+        config.setCapturePayload(true);
+        config.setMaxPayloadBytes(4);
+        FlightRecorder recorder = new FlightRecorder(config);
+        recorder.record(EDirection.OUTBOUND, (byte) 1, (byte) 0, (byte) 1, PAYLOAD);
+
+        String dump = print(recorder).toUpperCase();
+        Assertions.assertTrue(dump.contains("34313131..."), dump);
+        Assertions.assertFalse(dump.contains("3431313131"), dump);
+    }
+
+    @Test
+    @DisplayName("dump files are only readable by their owner")
+    public void dumpFile(@TempDir File dir) throws Exception {
+        ECRHubConfig.RecorderConfig config = new ECRHubConfig.RecorderConfig();
+        config.setEnabled(true);
+        config.setDumpDir(dir.getPath());
+        FlightRecorder recorder = new FlightRecorder(config);
+        recorder.record(EDirection.INBOUND, (byte) 2, (byte) 1, (byte) 1, PAYLOAD);
+
+        File file = recorder.dump();
+        Assertions.assertEquals(dir, file.getParentFile());
+        Assertions.assertTrue(file.length() > 0);
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Assertions.assertEquals(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE),
+                    Files.getPosixFilePermissions(file.toPath()));
+        }
+    }
+
+    private static String print(FlightRecorder recorder) throws Exception {
+        ByteArrayOutputStream dump = new ByteArrayOutputStream();
+        recorder.dump(dump);
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        FlightRecordReader.print(new ByteArrayInputStream(dump.toByteArray()), new PrintStream(text, true, "UTF-8"));
+        return text.toString("UTF-8");
+    }
+}
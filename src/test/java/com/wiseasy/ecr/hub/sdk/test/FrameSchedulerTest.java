@@ -0,0 +1,216 @@
+package com.wiseasy.ecr.hub.sdk.test;
+
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig;
+import com.wiseasy.ecr.hub.sdk.enums.EPriority;
+import com.wiseasy.ecr.hub.sdk.enums.ERejectPolicy;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubRejectedException;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubTimeoutException;
+import com.wiseasy.ecr.hub.sdk.model.request.ECRHubRequest;
+import com.wiseasy.ecr.hub.sdk.model.request.HeartbeatRequest;
+import com.wiseasy.ecr.hub.sdk.model.request.PurchaseRequest;
+import com.wiseasy.ecr.hub.sdk.model.request.QueryRequest;
+import com.wiseasy.ecr.hub.sdk.spi.FrameScheduler;
+import com.wiseasy.ecr.hub.sdk.spi.metrics.MetricsRecorder;
+import com.wiseasy.ecr.hub.sdk.spi.transport.Transport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbound scheduler: priority order, write listeners, expired and discarded frames
+ */
+public class FrameSchedulerTest {
+
+    private final List<String> written = new ArrayList<>();
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final ECRHubConfig.SchedulerConfig config = new ECRHubConfig.SchedulerConfig();
+
+    /**
+     * Scheduler in executor mode, its drain tasks run when the test calls {@link #runTasks()}
+     */
+    private FrameScheduler newScheduler() {
+        FrameScheduler scheduler = new FrameScheduler("test", config, frame -> written.add(new String(frame)),
+                "test", MetricsRecorder.NOOP, tasks::add);
+        scheduler.start();
+        return scheduler;
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    @Test
+    @DisplayName("frames are written by priority class, control frames first")
+    public void priorityOrder() throws ECRHubRejectedException {
+        FrameScheduler scheduler = newScheduler();
+        scheduler.submit("background".getBytes(), null, EPriority.BACKGROUND, 0);
+        scheduler.submit("payment".getBytes(), null, EPriority.PAYMENT, 0);
+        scheduler.submit("urgent".getBytes(), null, EPriority.URGENT, 0);
+        scheduler.submitControl("ack".getBytes());
+        runTasks();
+        Assertions.assertEquals(Arrays.asList("ack", "urgent", "payment", "background"), written);
+    }
+
+    @Test
+    @DisplayName("the listener of a control frame is called after the write")
+    public void controlListenerAfterWrite() throws ECRHubRejectedException {
+        FrameScheduler scheduler = newScheduler();
+        Listener listener = new Listener() {
+            @Override
+            public void onWritten() {
+                Assertions.assertEquals(Arrays.asList("ack"), written, "Written before the listener is called");
+                super.onWritten();
+            }
+        };
+        scheduler.submit("ack".getBytes(), null, EPriority.CONTROL, 0, listener);
+        Assertions.assertEquals(0, listener.writes, "Not called on submit");
+        runTasks();
+        Assertions.assertEquals(1, listener.writes);
+    }
+
+    @Test
+    @DisplayName("an expired frame is not written and fails its caller with a timeout")
+    public void expiredFrame() throws ECRHubRejectedException {
+        FrameScheduler scheduler = newScheduler();
+        Listener expired = new Listener();
+        Listener live = new Listener();
+        scheduler.submit("expired".getBytes(), null, EPriority.PAYMENT, System.currentTimeMillis() - 1, expired);
+        scheduler.submit("live".getBytes(), null, EPriority.PAYMENT, System.currentTimeMillis() + 60000, live);
+        runTasks();
+
+        Assertions.assertEquals(Arrays.asList("live"), written);
+        Assertions.assertEquals(0, expired.writes);
+        Assertions.assertInstanceOf(ECRHubTimeoutException.class, expired.dropped);
+        Assertions.assertEquals(1, live.writes);
+        Assertions.assertNull(live.dropped);
+    }
+
+    @Test
+    @DisplayName("a frame discarded from a full queue fails its caller with a rejection")
+    public void discardedFrame() throws ECRHubRejectedException {
+        config.setQueueCapacity(1);
+        config.setRejectPolicy(ERejectPolicy.DISCARD_OLDEST);
+        FrameScheduler scheduler = newScheduler();
+        Listener oldest = new Listener();
+        scheduler.submit("oldest".getBytes(), null, EPriority.PAYMENT, 0, oldest);
+        scheduler.submit("newest".getBytes(), null, EPriority.PAYMENT, 0, new Listener());
+        runTasks();
+
+        Assertions.assertEquals(Arrays.asList("newest"), written);
+        Assertions.assertInstanceOf(ECRHubRejectedException.class, oldest.dropped);
+    }
+
+    @Test
+    @DisplayName("a failed write fails its caller")
+    public void failedWrite() throws ECRHubRejectedException {
+        FrameScheduler scheduler = new FrameScheduler("test", config, frame -> {
+            throw new IllegalStateException("link down");
+        }, "test", MetricsRecorder.NOOP, tasks::add);
+        scheduler.start();
+        Listener listener = new Listener();
+        scheduler.submit("frame".getBytes(), null, EPriority.PAYMENT, 0, listener);
+        runTasks();
+
+        Assertions.assertEquals(0, listener.writes);
+        Assertions.assertNotNull(listener.dropped);
+    }
+
+    @Test
+    @DisplayName("stopping the write thread writes the frames still queued")
+    public void stopDrains() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> frames = new ArrayList<>();
+        FrameScheduler scheduler = new FrameScheduler("test", config, frame -> {
+            String value = new String(frame);
+            if ("first".equals(value)) {
+                blocked.countDown();
+                // Ignores the interrupt of stop(), like a write already in progress
+                while (release.getCount() > 0) {
+                    Thread.yield();
+                }
+            }
+            synchronized (frames) {
+                frames.add(value);
+            }
+        });
+        scheduler.start();
+        scheduler.submit("first".getBytes(), null, EPriority.PAYMENT, 0);
+        Assertions.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        scheduler.submit("second".getBytes(), null, EPriority.BACKGROUND, 0);
+        scheduler.submit("third".getBytes(), null, EPriority.BACKGROUND, 0);
+        // The submits did not wait for the frame being written
+        Assertions.assertEquals(2, scheduler.size());
+
+        scheduler.stop();
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            synchronized (frames) {
+                if (frames.size() == 3) {
+                    break;
+                }
+            }
+            Thread.sleep(10);
+        }
+        synchronized (frames) {
+            Assertions.assertEquals(Arrays.asList("first", "second", "third"), frames);
+        }
+    }
+
+    @Test
+    @DisplayName("request priority: only voice, printer or notify data is background, the rest by topic")
+    public void requestPriority() {
+        Assertions.assertEquals(EPriority.PAYMENT, new PurchaseRequest().getPriority());
+        Assertions.assertEquals(EPriority.URGENT, new HeartbeatRequest().getPriority());
+
+        HeartbeatRequest notify = new HeartbeatRequest();
+        ECRHubRequest.NotifyData notifyData = new ECRHubRequest.NotifyData();
+        notifyData.setTitle("Thank you");
+        notify.setNotify_data(notifyData);
+        Assertions.assertEquals(EPriority.BACKGROUND, notify.getPriority());
+
+        QueryRequest print = new QueryRequest();
+        ECRHubRequest.PrinterData printerData = new ECRHubRequest.PrinterData();
+        printerData.setContent("receipt");
+        print.setPrinter_data(printerData);
+        Assertions.assertEquals(EPriority.BACKGROUND, print.getPriority());
+        print.setMerchant_order_no("1217752501201407033233368018");
+        Assertions.assertEquals(EPriority.URGENT, print.getPriority(), "A query with a receipt stays urgent");
+
+        PurchaseRequest purchase = new PurchaseRequest();
+        ECRHubRequest.VoiceData voiceData = new ECRHubRequest.VoiceData();
+        voiceData.setContent("Please pay");
+        purchase.setVoice_data(voiceData);
+        Assertions.assertEquals(EPriority.PAYMENT, purchase.getPriority());
+        purchase.setPriority(EPriority.BACKGROUND);
+        Assertions.assertEquals(EPriority.BACKGROUND, purchase.getPriority());
+    }
+
+    private static class Listener implements Transport.WriteListener {
+        private int writes;
+        private ECRHubException dropped;
+
+        @Override
+        public void onWritten() {
+            writes++;
+        }
+
+        @Override
+        public void onDropped(ECRHubException reason) {
+            dropped = reason;
+        }
+    }
+}
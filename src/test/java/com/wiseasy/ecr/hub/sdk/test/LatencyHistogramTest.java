@@ -0,0 +1,120 @@
+package com.wiseasy.ecr.hub.sdk.test;
+
+import com.wiseasy.ecr.hub.sdk.enums.ECounter;
+import com.wiseasy.ecr.hub.sdk.enums.EMetric;
+import com.wiseasy.ecr.hub.sdk.spi.metrics.HistogramMetricsRecorder;
+import com.wiseasy.ecr.hub.sdk.spi.metrics.LatencyHistogram;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Bucket layout and percentiles of the log-linear histogram, and the per-terminal recorder built on it
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("values below 64 are exact, above that buckets hold 2^n values")
+    public void bucketBoundaries() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 0; value < 64; value++) {
+            histogram.record(value);
+        }
+        for (int rank = 1; rank <= 64; rank++) {
+            Assertions.assertEquals(rank - 1, histogram.getValueAtPercentile(rank * 100.0 / 64), "rank " + rank);
+        }
+
+        // Two values per bucket from 64, four from 128
+        Assertions.assertEquals(64, single(64));
+        Assertions.assertEquals(65, bucketOf(64, 65));
+        Assertions.assertEquals(67, bucketOf(66, 67));
+        Assertions.assertEquals(127, bucketOf(126, 127));
+        Assertions.assertEquals(131, bucketOf(128, 131));
+    }
+
+    @Test
+    @DisplayName("percentiles of a uniform distribution are within the bucket error")
+    public void knownDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 10000; value++) {
+            histogram.record(value);
+        }
+        Assertions.assertEquals(10000, histogram.getCount());
+        Assertions.assertEquals(5000.5, histogram.getMean(), 1e-9);
+        Assertions.assertEquals(10000, histogram.getMax());
+
+        double[] percentiles = {50, 90, 99, 99.9, 100};
+        long[] values = histogram.getValuesAtPercentiles(percentiles);
+        for (int i = 0; i < percentiles.length; i++) {
+            long exact = (long) (percentiles[i] * 100);
+            Assertions.assertTrue(values[i] >= exact, percentiles[i] + ": " + values[i] + " is an upper bound");
+            Assertions.assertTrue(values[i] <= exact * 1.04, percentiles[i] + ": " + values[i] + " within 4%");
+            Assertions.assertEquals(values[i], histogram.getValueAtPercentile(percentiles[i]), "Same as one at a time");
+        }
+        Assertions.assertEquals(10000, values[4], "p100 is the maximum");
+    }
+
+    @Test
+    @DisplayName("the largest long, negative values and percentiles above 100")
+    public void overflow() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        Assertions.assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(50));
+        Assertions.assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(150));
+        Assertions.assertEquals(Long.MAX_VALUE, histogram.getMax());
+
+        Assertions.assertEquals(Long.MAX_VALUE - 1, single(Long.MAX_VALUE - 1), "Capped by the maximum");
+        Assertions.assertEquals(0, single(-5), "Recorded as 0");
+    }
+
+    @Test
+    @DisplayName("an empty or reset histogram reports 0")
+    public void empty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assertions.assertArrayEquals(new long[]{0, 0}, histogram.getValuesAtPercentiles(50, 99));
+        histogram.record(1000);
+        histogram.reset();
+        Assertions.assertEquals(0, histogram.getCount());
+        Assertions.assertEquals(0, histogram.getValueAtPercentile(99));
+        Assertions.assertEquals(0, histogram.getMean());
+    }
+
+    @Test
+    @DisplayName("the recorder keeps histograms and counters per terminal and topic")
+    public void recorder() {
+        HistogramMetricsRecorder metrics = new HistogramMetricsRecorder();
+        metrics.recordLatency(EMetric.RESPONSE, "COM1", "ecrhub.pay.order", 2000);
+        metrics.recordLatency(EMetric.RESPONSE, "COM1", "ecrhub.pay.order", 4000);
+        metrics.recordLatency(EMetric.RESPONSE, "COM2", "ecrhub.pay.order", 8000);
+        metrics.increment(ECounter.FRAMES_OUT, "COM1", null, 3);
+
+        Assertions.assertEquals(2, metrics.getTerminals().size());
+        LatencyHistogram response = metrics.getHistogram("COM1", "ecrhub.pay.order", EMetric.RESPONSE);
+        Assertions.assertEquals(2, response.getCount());
+        Assertions.assertEquals(4000, response.getMax());
+        Assertions.assertEquals(3, metrics.getCount("COM1", HistogramMetricsRecorder.NO_TOPIC, ECounter.FRAMES_OUT),
+                "Recorded without a topic");
+        Assertions.assertEquals(0, metrics.getCount("COM2", HistogramMetricsRecorder.NO_TOPIC, ECounter.FRAMES_OUT));
+
+        metrics.reset();
+        Assertions.assertTrue(metrics.getTerminals().isEmpty());
+    }
+
+    private static long single(long value) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(value);
+        return histogram.getValueAtPercentile(50);
+    }
+
+    /**
+     * Upper bound reported for the bucket of first, which must also hold last
+     */
+    private static long bucketOf(long first, long last) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(first);
+        histogram.record(last);
+        long bound = histogram.getValueAtPercentile(50);
+        Assertions.assertEquals(last, histogram.getValueAtPercentile(100), "Same bucket as " + first);
+        return bound;
+    }
+}
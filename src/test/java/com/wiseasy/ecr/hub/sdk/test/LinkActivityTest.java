@@ -0,0 +1,59 @@
+package com.wiseasy.ecr.hub.sdk.test;
+
+import com.wiseasy.ecr.hub.sdk.spi.LinkActivity;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heartbeat wait of the transports, woken by the read path
+ */
+public class LinkActivityTest {
+
+    @Test
+    @DisplayName("a read wakes the waiting heartbeat")
+    public void readWakesHeartbeat() {
+        LinkActivity activity = new LinkActivity();
+        ScheduledExecutorService reader = Executors.newSingleThreadScheduledExecutor();
+        try {
+            CompletableFuture<Long> read = activity.expectRead();
+            reader.schedule(activity::onRead, 20, TimeUnit.MILLISECONDS);
+            long start = System.currentTimeMillis();
+            Assertions.assertTrue(activity.await(read, 5000));
+            Assertions.assertTrue(System.currentTimeMillis() - start < 1000, "Woken by the read, not the timeout");
+            Assertions.assertEquals(activity.getLastReadTime(), activity.getLastHeartbeatTime());
+        } finally {
+            reader.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("no read times out")
+    public void timeout() {
+        LinkActivity activity = new LinkActivity();
+        long start = System.currentTimeMillis();
+        Assertions.assertFalse(activity.await(activity.expectRead(), 50));
+        Assertions.assertTrue(System.currentTimeMillis() - start >= 50);
+        Assertions.assertEquals(0, activity.getLastHeartbeatTime());
+    }
+
+    @Test
+    @DisplayName("reads before the heartbeat do not count, concurrent heartbeats share the next read")
+    public void onlyLaterReads() {
+        LinkActivity activity = new LinkActivity();
+        activity.onRead();
+        CompletableFuture<Long> first = activity.expectRead();
+        CompletableFuture<Long> second = activity.expectRead();
+        Assertions.assertSame(first, second);
+        Assertions.assertFalse(first.isDone());
+
+        activity.onRead();
+        Assertions.assertTrue(first.isDone());
+        Assertions.assertNotSame(first, activity.expectRead());
+    }
+}
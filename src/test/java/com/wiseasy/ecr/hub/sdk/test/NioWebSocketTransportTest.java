@@ -0,0 +1,297 @@
+package com.wiseasy.ecr.hub.sdk.test;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig;
+import com.wiseasy.ecr.hub.sdk.enums.EPriority;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubRequestProto;
+import com.wiseasy.ecr.hub.sdk.protobuf.ECRHubResponseProto;
+import com.wiseasy.ecr.hub.sdk.spi.emulator.WebSocketTerminalEmulator;
+import com.wiseasy.ecr.hub.sdk.spi.nio.NioEventLoop;
+import com.wiseasy.ecr.hub.sdk.spi.transport.TransportContext;
+import com.wiseasy.ecr.hub.sdk.spi.websocket.NioWebSocketTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * RFC 6455 client of the ws:// event loop transport, against the terminal emulator and a scripted peer socket
+ */
+public class NioWebSocketTransportTest {
+
+    private static final long TIMEOUT = 5000;
+    private static final String GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private final BlockingQueue<byte[]> received = new LinkedBlockingQueue<>();
+    private final ExecutorService peerThread = Executors.newSingleThreadExecutor();
+    private NioEventLoop loop;
+    private NioWebSocketTransport transport;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        loop = new NioEventLoop("NioWebSocketTransportTest");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (transport != null) {
+            transport.disconnect();
+        }
+        loop.shutdown();
+        peerThread.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("requests and responses through the emulator, heartbeats answered by its pongs")
+    public void emulator() throws Exception {
+        WebSocketTerminalEmulator emulator = new WebSocketTerminalEmulator(0);
+        emulator.startAndWait(TIMEOUT);
+        try {
+            open(emulator.getUrl());
+            transport.connect(System.currentTimeMillis() + TIMEOUT);
+
+            send(ECRHubRequestProto.ECRHubRequest.newBuilder().setMsgId("msg-1").setTopic("ecrhub.pay.query").build().toByteArray());
+            ECRHubResponseProto.ECRHubResponse response = ECRHubResponseProto.ECRHubResponse.parseFrom(poll());
+            Assertions.assertEquals("msg-1", response.getMsgId());
+            Assertions.assertTrue(transport.heartbeat(TIMEOUT), "Ping answered");
+        } finally {
+            transport.disconnect();
+            emulator.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("a wrong Sec-WebSocket-Accept fails the connect")
+    public void handshakeAccept() throws Exception {
+        try (ServerSocket server = server()) {
+            open("ws://127.0.0.1:" + server.getLocalPort() + "/ecr");
+            Future<String> request = peer(() -> {
+                Socket peer = server.accept();
+                String head = readHead(peer.getInputStream());
+                respond(peer.getOutputStream(), accept("dGhlIHNhbXBsZSBub25jZQ=="));
+                return head;
+            });
+            Assertions.assertThrows(ECRHubException.class, () -> transport.connect(System.currentTimeMillis() + TIMEOUT));
+            Assertions.assertFalse(transport.isOpen());
+
+            String head = request.get(TIMEOUT, TimeUnit.MILLISECONDS);
+            Assertions.assertTrue(head.startsWith("GET /ecr HTTP/1.1\r\n"), head);
+            Assertions.assertTrue(head.contains("\r\nSec-WebSocket-Version: 13\r\n"), head);
+        }
+    }
+
+    @Test
+    @DisplayName("client frames are masked")
+    public void masking() throws Exception {
+        try (ServerSocket server = server(); Socket peer = connect(server)) {
+            byte[] message = new byte[300];
+            for (int i = 0; i < message.length; i++) {
+                message[i] = (byte) i;
+            }
+            send(message);
+
+            DataInputStream in = new DataInputStream(peer.getInputStream());
+            Assertions.assertEquals(0x82, in.readUnsignedByte(), "FIN and binary opcode");
+            Assertions.assertEquals(0x80 | 126, in.readUnsignedByte(), "Mask bit and 16-bit length");
+            Assertions.assertEquals(message.length, in.readUnsignedShort());
+            byte[] mask = new byte[4];
+            in.readFully(mask);
+            byte[] payload = new byte[message.length];
+            in.readFully(payload);
+            for (int i = 0; i < payload.length; i++) {
+                payload[i] ^= mask[i & 3];
+            }
+            Assertions.assertArrayEquals(message, payload);
+        }
+    }
+
+    @Test
+    @DisplayName("fragmented messages are joined, a ping between the fragments is answered")
+    public void fragments() throws Exception {
+        try (ServerSocket server = server(); Socket peer = connect(server)) {
+            OutputStream out = peer.getOutputStream();
+            out.write(frame(0x02, false, "frag".getBytes()));
+            out.write(frame(0x09, true, "ping".getBytes()));
+            out.write(frame(0x00, false, "men".getBytes()));
+            out.flush();
+
+            DataInputStream in = new DataInputStream(peer.getInputStream());
+            Assertions.assertEquals(0x8A, in.readUnsignedByte(), "Pong");
+            Assertions.assertArrayEquals("ping".getBytes(), readMasked(in));
+            Assertions.assertNull(received.poll(50, TimeUnit.MILLISECONDS), "Not delivered before the last fragment");
+
+            out.write(frame(0x00, true, "ted".getBytes()));
+            out.flush();
+            Assertions.assertArrayEquals("fragmented".getBytes(), poll());
+        }
+    }
+
+    @Test
+    @DisplayName("a close from the peer is echoed and closes the link")
+    public void remoteClose() throws Exception {
+        try (ServerSocket server = server(); Socket peer = connect(server)) {
+            peer.getOutputStream().write(frame(0x08, true, new byte[]{0x03, (byte) 0xE9}));
+            peer.getOutputStream().flush();
+
+            DataInputStream in = new DataInputStream(peer.getInputStream());
+            Assertions.assertEquals(0x88, in.readUnsignedByte(), "Close");
+            Assertions.assertArrayEquals(new byte[]{0x03, (byte) 0xE9}, readMasked(in), "Status code echoed");
+            Assertions.assertEquals(-1, in.read());
+            awaitTrue(() -> !transport.isOpen());
+        }
+    }
+
+    @Test
+    @DisplayName("a local disconnect sends a normal close")
+    public void localClose() throws Exception {
+        try (ServerSocket server = server(); Socket peer = connect(server)) {
+            Assertions.assertTrue(transport.disconnect());
+            Assertions.assertFalse(transport.isOpen());
+
+            DataInputStream in = new DataInputStream(peer.getInputStream());
+            Assertions.assertEquals(0x88, in.readUnsignedByte(), "Close");
+            Assertions.assertArrayEquals(new byte[]{0x03, (byte) 0xE8}, readMasked(in), "1000");
+            Assertions.assertEquals(-1, in.read());
+        }
+    }
+
+    private void open(String url) {
+        ECRHubConfig config = new ECRHubConfig();
+        transport = new NioWebSocketTransport(URI.create(url), new TransportContext(config), loop);
+        transport.setListener(message -> {
+            received.add(message);
+            try {
+                return ECRHubResponseProto.ECRHubResponse.parseFrom(message);
+            } catch (InvalidProtocolBufferException e) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Connect to a scripted peer that accepts the upgrade
+     */
+    private Socket connect(ServerSocket server) throws Exception {
+        open("ws://127.0.0.1:" + server.getLocalPort());
+        Future<Socket> accepted = peer(() -> {
+            Socket peer = server.accept();
+            String head = readHead(peer.getInputStream());
+            String key = null;
+            for (String line : head.split("\r\n")) {
+                if (line.startsWith("Sec-WebSocket-Key:")) {
+                    key = line.substring(line.indexOf(':') + 1).trim();
+                }
+            }
+            respond(peer.getOutputStream(), accept(key));
+            return peer;
+        });
+        transport.connect(System.currentTimeMillis() + TIMEOUT);
+        Assertions.assertTrue(transport.isOpen());
+        return accepted.get(TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    private <T> Future<T> peer(Callable<T> script) {
+        return peerThread.submit(script);
+    }
+
+    private void send(byte[] message) throws ECRHubException {
+        byte[] buffer = new byte[NioWebSocketTransport.MAX_HEADER_LENGTH + message.length];
+        System.arraycopy(message, 0, buffer, NioWebSocketTransport.MAX_HEADER_LENGTH, message.length);
+        transport.send(buffer, message.length, null, EPriority.PAYMENT, 0, null);
+    }
+
+    private byte[] poll() throws InterruptedException {
+        byte[] message = received.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+        Assertions.assertNotNull(message, "No message received");
+        return message;
+    }
+
+    private static ServerSocket server() throws IOException {
+        ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        server.setSoTimeout((int) TIMEOUT);
+        return server;
+    }
+
+    private static String readHead(InputStream in) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        while (!head.toString("ISO-8859-1").endsWith("\r\n\r\n")) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Closed during the handshake");
+            }
+            head.write(b);
+        }
+        return head.toString("ISO-8859-1");
+    }
+
+    private static void respond(OutputStream out, String accept) throws IOException {
+        out.write(("HTTP/1.1 101 Switching Protocols\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+
+    private static String accept(String key) throws Exception {
+        MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+        return Base64.getEncoder().encodeToString(sha1.digest((key + GUID).getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    /**
+     * Unmasked server frame with a payload below 126 bytes
+     */
+    private static byte[] frame(int opcode, boolean fin, byte[] payload) {
+        byte[] frame = new byte[2 + payload.length];
+        frame[0] = (byte) ((fin ? 0x80 : 0) | opcode);
+        frame[1] = (byte) payload.length;
+        System.arraycopy(payload, 0, frame, 2, payload.length);
+        return frame;
+    }
+
+    /**
+     * Payload of a masked client frame below 126 bytes, after its first byte
+     */
+    private static byte[] readMasked(DataInputStream in) throws IOException {
+        int b1 = in.readUnsignedByte();
+        Assertions.assertTrue((b1 & 0x80) != 0, "Masked");
+        byte[] mask = new byte[4];
+        in.readFully(mask);
+        byte[] payload = new byte[b1 & 0x7F];
+        in.readFully(payload);
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] ^= mask[i & 3];
+        }
+        return payload;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "Condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+}
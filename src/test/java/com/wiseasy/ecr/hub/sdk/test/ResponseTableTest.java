@@ -0,0 +1,137 @@
+package com.wiseasy.ecr.hub.sdk.test;
+
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubRejectedException;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubTimeoutException;
+import com.wiseasy.ecr.hub.sdk.spi.DefaultMsgIdGenerator;
+import com.wiseasy.ecr.hub.sdk.spi.ResponseTable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ring of received responses and the callers waiting for them
+ */
+public class ResponseTableTest {
+
+    private final AtomicInteger evictions = new AtomicInteger();
+    private final DefaultMsgIdGenerator generator = new DefaultMsgIdGenerator(1);
+
+    @Test
+    @DisplayName("a response is taken once")
+    public void putTake() throws ECRHubException {
+        ResponseTable table = new ResponseTable(4, 60000, evictions::incrementAndGet);
+        String msgId = generator.nextId();
+        table.put(msgId, new byte[]{1});
+        Assertions.assertEquals(1, table.size());
+        Assertions.assertArrayEquals(new byte[]{1}, table.take(msgId));
+        Assertions.assertNull(table.take(msgId));
+        Assertions.assertEquals(0, table.size());
+    }
+
+    @Test
+    @DisplayName("IDs that are not canonical are matched by string")
+    public void nonCanonicalIds() throws ECRHubException {
+        ResponseTable table = new ResponseTable(4, 60000, evictions::incrementAndGet);
+        table.put("ORDER-1", new byte[]{1});
+        table.put("ORDER-2", new byte[]{2});
+        Assertions.assertNull(table.take("ORDER-3"));
+        Assertions.assertArrayEquals(new byte[]{2}, table.take("ORDER-2"));
+        Assertions.assertArrayEquals(new byte[]{1}, table.take("ORDER-1"));
+    }
+
+    @Test
+    @DisplayName("a full ring reuses the oldest slot and reports the eviction")
+    public void slotReuse() throws ECRHubException {
+        ResponseTable table = new ResponseTable(3, 60000, evictions::incrementAndGet);
+        String[] ids = new String[4];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = generator.nextId();
+            table.put(ids[i], new byte[]{(byte) i});
+        }
+        Assertions.assertEquals(1, evictions.get());
+        Assertions.assertEquals(3, table.size());
+        Assertions.assertNull(table.take(ids[0]), "Oldest evicted");
+        for (int i = 1; i < ids.length; i++) {
+            Assertions.assertArrayEquals(new byte[]{(byte) i}, table.take(ids[i]));
+        }
+
+        // A taken slot is free again without an eviction
+        table.put(generator.nextId(), new byte[0]);
+        table.put(generator.nextId(), new byte[0]);
+        Assertions.assertEquals(1, evictions.get());
+    }
+
+    @Test
+    @DisplayName("a response put twice keeps its slot")
+    public void replace() throws ECRHubException {
+        ResponseTable table = new ResponseTable(2, 60000, evictions::incrementAndGet);
+        String msgId = generator.nextId();
+        table.put(msgId, new byte[]{1});
+        table.put(msgId, new byte[]{2});
+        Assertions.assertEquals(1, table.size());
+        Assertions.assertArrayEquals(new byte[]{2}, table.take(msgId));
+        Assertions.assertEquals(0, evictions.get());
+    }
+
+    @Test
+    @DisplayName("an expired response is dropped and reported")
+    public void expired() throws Exception {
+        ResponseTable table = new ResponseTable(4, 10, evictions::incrementAndGet);
+        String msgId = generator.nextId();
+        table.put(msgId, new byte[]{1});
+        Thread.sleep(30);
+        Assertions.assertNull(table.take(msgId));
+        Assertions.assertEquals(1, evictions.get());
+    }
+
+    @Test
+    @DisplayName("a waiting caller is woken by the response")
+    public void awaitWoken() throws Exception {
+        ResponseTable table = new ResponseTable(4, 60000, evictions::incrementAndGet);
+        String msgId = generator.nextId();
+        ScheduledExecutorService reader = Executors.newSingleThreadScheduledExecutor();
+        try {
+            reader.schedule(() -> table.put(generator.nextId(), new byte[]{9}), 10, TimeUnit.MILLISECONDS);
+            reader.schedule(() -> table.put(msgId, new byte[]{1}), 30, TimeUnit.MILLISECONDS);
+            long start = System.currentTimeMillis();
+            Assertions.assertArrayEquals(new byte[]{1}, table.await(msgId, start + 5000));
+            Assertions.assertTrue(System.currentTimeMillis() - start < 1000, "Woken by the response, not the deadline");
+        } finally {
+            reader.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("a waiting caller times out at the deadline")
+    public void awaitTimeout() {
+        ResponseTable table = new ResponseTable(4, 60000, evictions::incrementAndGet);
+        long start = System.currentTimeMillis();
+        Assertions.assertThrows(ECRHubTimeoutException.class, () -> table.await(generator.nextId(), start + 50));
+        Assertions.assertTrue(System.currentTimeMillis() - start >= 50);
+    }
+
+    @Test
+    @DisplayName("a failed request wakes its caller with the error")
+    public void fail() throws Exception {
+        ResponseTable table = new ResponseTable(4, 60000, evictions::incrementAndGet);
+        String msgId = generator.nextId();
+        ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor();
+        try {
+            writer.schedule(() -> table.fail(msgId, new ECRHubRejectedException("discarded")), 10, TimeUnit.MILLISECONDS);
+            long start = System.currentTimeMillis();
+            ECRHubRejectedException e = Assertions.assertThrows(ECRHubRejectedException.class, () -> table.await(msgId, start + 5000));
+            Assertions.assertEquals("discarded", e.getMessage());
+            Assertions.assertTrue(System.currentTimeMillis() - start < 1000);
+        } finally {
+            writer.shutdownNow();
+        }
+        Assertions.assertEquals(0, table.size());
+        Assertions.assertNull(table.take(msgId), "The failure is taken once");
+    }
+}
@@ -0,0 +1,135 @@
+package com.wiseasy.ecr.hub.sdk.test;
+
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig;
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig.SerialPortConfig;
+import com.wiseasy.ecr.hub.sdk.enums.EPriority;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.spi.serialport.SerialPortEngine;
+import com.wiseasy.ecr.hub.sdk.spi.serialport.SerialPortPacket;
+import com.wiseasy.ecr.hub.sdk.spi.serialport.SerialTransport;
+import com.wiseasy.ecr.hub.sdk.spi.serialport.loopback.LoopbackSerialLink;
+import com.wiseasy.ecr.hub.sdk.spi.serialport.loopback.SerialTerminalEmulator;
+import com.wiseasy.ecr.hub.sdk.spi.transport.Transport;
+import com.wiseasy.ecr.hub.sdk.spi.transport.TransportContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serial engine over the loopback link and the serial terminal emulator
+ */
+public class SerialPortEngineTest {
+
+    @Test
+    @DisplayName("connecting a connected engine does not handshake again")
+    public void connectTwice() throws Exception {
+        LoopbackSerialLink link = new LoopbackSerialLink("LOOPBACK");
+        link.setBaudRate(0);
+        SerialTerminalEmulator emulator = new SerialTerminalEmulator(link.terminal());
+        emulator.start();
+        SerialPortEngine engine = new SerialPortEngine(link.host(), new TransportContext(new ECRHubConfig()));
+        try {
+            engine.connect(System.currentTimeMillis() + 5000);
+            Assertions.assertTrue(engine.isOpen());
+
+            long start = System.currentTimeMillis();
+            engine.connect(start + 5000);
+            Assertions.assertTrue(System.currentTimeMillis() - start < 100, "Returned at once");
+            Assertions.assertTrue(engine.heartbeat(5000), "The read listener still answers");
+        } finally {
+            engine.disconnect();
+            emulator.stop();
+            link.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("a frame the port takes only partly is dropped to its listener")
+    public void shortWrite() throws Exception {
+        LoopbackSerialLink link = new LoopbackSerialLink("LOOPBACK");
+        link.setBaudRate(0);
+        SerialTerminalEmulator emulator = new SerialTerminalEmulator(link.terminal());
+        emulator.start();
+        ShortWriteTransport port = new ShortWriteTransport(link.host());
+        SerialPortEngine engine = new SerialPortEngine(port, new TransportContext(new ECRHubConfig()));
+        try {
+            engine.connect(System.currentTimeMillis() + 5000);
+            port.shortWrites = true;
+
+            byte[] message = new byte[SerialPortPacket.HEADER_LENGTH + 16 + SerialPortPacket.TRAILER_LENGTH];
+            CompletableFuture<ECRHubException> dropped = new CompletableFuture<>();
+            engine.send(message, 16, null, EPriority.PAYMENT, 0, new Transport.WriteListener() {
+                @Override
+                public void onWritten() {
+                    dropped.complete(null);
+                }
+
+                @Override
+                public void onDropped(ECRHubException reason) {
+                    dropped.complete(reason);
+                }
+            });
+            Assertions.assertNotNull(dropped.get(5000, TimeUnit.MILLISECONDS), "Dropped, not written");
+        } finally {
+            engine.disconnect();
+            emulator.stop();
+            link.shutdown();
+        }
+    }
+
+    /**
+     * Takes one byte less than asked once short writes are on
+     */
+    private static class ShortWriteTransport implements SerialTransport {
+
+        private final SerialTransport delegate;
+        private volatile boolean shortWrites;
+
+        ShortWriteTransport(SerialTransport delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String getName() {
+            return delegate.getName();
+        }
+
+        @Override
+        public boolean open(SerialPortConfig config) {
+            return delegate.open(config);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public boolean close() {
+            return delegate.close();
+        }
+
+        @Override
+        public int write(byte[] bytes, int length) {
+            return shortWrites ? length - 1 : delegate.write(bytes, length);
+        }
+
+        @Override
+        public int bytesAvailable() {
+            return delegate.bytesAvailable();
+        }
+
+        @Override
+        public int read(byte[] buffer, int length) {
+            return delegate.read(buffer, length);
+        }
+
+        @Override
+        public void setDataListener(DataListener listener) {
+            delegate.setDataListener(listener);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.wiseasy.ecr.hub.sdk.test;
+
+import com.wiseasy.ecr.hub.sdk.spi.serialport.SerialPortPacket;
+import com.wiseasy.ecr.hub.sdk.spi.serialport.SerialPortPacketDecoder;
+import com.wiseasy.ecr.hub.sdk.utils.HexUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splitting of the serial byte stream into packets: split reads, tails inside the data, corrupted lengths, long packets
+ */
+public class SerialPortPacketDecoderTest {
+
+    /**
+     * Data holding a packet tail and a packet head
+     */
+    private static final byte[] TRICKY_DATA = {0x01, (byte) 0xCC, 0x33, 0x02, 0x55, (byte) 0xAA, 0x03};
+
+    @Test
+    @DisplayName("a tail inside the data does not end the packet")
+    public void tailInData() {
+        byte[] packet = packet(TRICKY_DATA);
+        Assertions.assertEquals(Arrays.asList(hex(packet)), decode(new SerialPortPacketDecoder(), packet));
+    }
+
+    @Test
+    @DisplayName("packets split across reads of any size")
+    public void splitChunks() {
+        byte[] first = packet(TRICKY_DATA);
+        byte[] second = packet("second".getBytes());
+        byte[] stream = concat(first, second);
+        for (int chunk = 1; chunk <= stream.length; chunk++) {
+            SerialPortPacketDecoder decoder = new SerialPortPacketDecoder();
+            List<String> packets = new ArrayList<>();
+            for (int i = 0; i < stream.length; i += chunk) {
+                packets.addAll(decoder.decode(Arrays.copyOfRange(stream, i, Math.min(i + chunk, stream.length))));
+            }
+            Assertions.assertEquals(Arrays.asList(hex(first), hex(second)), packets, "Chunks of " + chunk);
+        }
+    }
+
+    @Test
+    @DisplayName("a corrupted length resyncs on the next head once the announced packet would be complete")
+    public void corruptedLength() {
+        byte[] corrupted = packet("corrupted".getBytes());
+        corrupted[5] = (byte) 0xFF;
+        corrupted[6] = (byte) 0xFF;
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(corrupted, 0, corrupted.length);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; stream.size() < SerialPortPacket.MAX_DATA_LENGTH + 2048; i++) {
+            byte[] packet = packet(("packet-" + i).getBytes());
+            stream.write(packet, 0, packet.length);
+            expected.add(hex(packet));
+        }
+
+        AtomicInteger drops = new AtomicInteger();
+        SerialPortPacketDecoder decoder = new SerialPortPacketDecoder(drops::incrementAndGet);
+        List<String> packets = new ArrayList<>();
+        byte[] bytes = stream.toByteArray();
+        for (int i = 0; i < bytes.length; i += 4096) {
+            packets.addAll(decoder.decode(Arrays.copyOfRange(bytes, i, Math.min(i + 4096, bytes.length))));
+        }
+        Assertions.assertEquals(expected, packets);
+        Assertions.assertEquals(1, drops.get(), "The drop is reported");
+    }
+
+    @Test
+    @DisplayName("a packet above 1 KiB split across reads")
+    public void largePacket() {
+        byte[] data = new byte[5000];
+        new Random(1).nextBytes(data);
+        byte[] packet = packet(data);
+        byte[] next = packet("next".getBytes());
+        byte[] stream = concat(packet, next);
+
+        AtomicInteger drops = new AtomicInteger();
+        SerialPortPacketDecoder decoder = new SerialPortPacketDecoder(drops::incrementAndGet);
+        List<String> packets = new ArrayList<>();
+        for (int i = 0; i < stream.length; i += 64) {
+            packets.addAll(decoder.decode(Arrays.copyOfRange(stream, i, Math.min(i + 64, stream.length))));
+        }
+        Assertions.assertEquals(Arrays.asList(hex(packet), hex(next)), packets);
+        Assertions.assertEquals(0, drops.get());
+        Assertions.assertArrayEquals(data, new SerialPortPacket().decode(packets.get(0)).getData());
+    }
+
+    @Test
+    @DisplayName("a packet of the maximum length is accepted, a longer one is not encoded")
+    public void maximumLength() {
+        byte[] packet = packet(new byte[SerialPortPacket.MAX_DATA_LENGTH]);
+        Assertions.assertEquals(Arrays.asList(hex(packet)), decode(new SerialPortPacketDecoder(), packet));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> packet(new byte[SerialPortPacket.MAX_DATA_LENGTH + 1]));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SerialPortPacket.MsgPacket(new byte[SerialPortPacket.MAX_DATA_LENGTH + 1]));
+    }
+
+    private static List<String> decode(SerialPortPacketDecoder decoder, byte[] bytes) {
+        return new ArrayList<>(decoder.decode(bytes));
+    }
+
+    private static byte[] packet(byte[] data) {
+        byte[] buffer = new byte[SerialPortPacket.HEADER_LENGTH + data.length + SerialPortPacket.TRAILER_LENGTH];
+        System.arraycopy(data, 0, buffer, SerialPortPacket.HEADER_LENGTH, data.length);
+        return SerialPortPacket.encodeMsgPacket(buffer, data.length);
+    }
+
+    private static byte[] concat(byte[]... packets) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] packet : packets) {
+            out.write(packet, 0, packet.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static String hex(byte[] bytes) {
+        return HexUtil.byte2hex(bytes);
+    }
+}
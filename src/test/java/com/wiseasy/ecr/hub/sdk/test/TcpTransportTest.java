@@ -0,0 +1,212 @@
+package com.wiseasy.ecr.hub.sdk.test;
+
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig;
+import com.wiseasy.ecr.hub.sdk.enums.EPriority;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.spi.nio.NioEventLoop;
+import com.wiseasy.ecr.hub.sdk.spi.tcp.TcpTransport;
+import com.wiseasy.ecr.hub.sdk.spi.transport.Transport;
+import com.wiseasy.ecr.hub.sdk.spi.transport.TransportContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Length-prefixed framing of the tcp:// transport over the NIO event loop, against a scripted peer socket
+ */
+public class TcpTransportTest {
+
+    private static final long TIMEOUT = 5000;
+
+    private final BlockingQueue<byte[]> received = new LinkedBlockingQueue<>();
+    private ServerSocket server;
+    private NioEventLoop loop;
+    private TcpTransport transport;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        server.setSoTimeout((int) TIMEOUT);
+        loop = new NioEventLoop("TcpTransportTest");
+        ECRHubConfig config = new ECRHubConfig();
+        transport = new TcpTransport(new InetSocketAddress("127.0.0.1", server.getLocalPort()), "tcp://127.0.0.1:" + server.getLocalPort(),
+                new TransportContext(config), loop);
+        transport.setListener(message -> {
+            received.add(message);
+            return null;
+        });
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        transport.disconnect();
+        loop.shutdown();
+        server.close();
+    }
+
+    @Test
+    @DisplayName("frames split across reads and frames sharing a read")
+    public void partialReads() throws Exception {
+        try (Socket peer = connect()) {
+            OutputStream out = peer.getOutputStream();
+            byte[] first = frame("first".getBytes());
+            for (byte b : first) {
+                out.write(b);
+                out.flush();
+                Thread.sleep(2);
+            }
+            Assertions.assertArrayEquals("first".getBytes(), poll());
+
+            // Two frames and the head of a third in one write, the rest later
+            byte[] third = frame("third".getBytes());
+            out.write(concat(frame("second".getBytes()), frame(new byte[0]), Arrays.copyOf(third, 6)));
+            out.flush();
+            Assertions.assertArrayEquals("second".getBytes(), poll());
+            Assertions.assertNull(received.poll(50, TimeUnit.MILLISECONDS), "Heartbeats and incomplete frames are not delivered");
+            out.write(Arrays.copyOfRange(third, 6, third.length));
+            out.flush();
+            Assertions.assertArrayEquals("third".getBytes(), poll());
+        }
+    }
+
+    @Test
+    @DisplayName("frames larger than the socket accepts at once are written in order")
+    public void partialWrites() throws Exception {
+        try (Socket peer = connect()) {
+            byte[] large = random(8 * 1024 * 1024);
+            CountDownLatch written = new CountDownLatch(2);
+            send(large, written);
+            send("after".getBytes(), written);
+
+            // Nothing is read until both frames are queued, so the socket fills up
+            Thread.sleep(100);
+            DataInputStream in = new DataInputStream(peer.getInputStream());
+            Assertions.assertArrayEquals(large, readFrame(in));
+            Assertions.assertArrayEquals("after".getBytes(), readFrame(in));
+            Assertions.assertTrue(written.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    @DisplayName("a frame larger than the 64 KB read buffer")
+    public void largeFrame() throws Exception {
+        try (Socket peer = connect()) {
+            byte[] large = random(300 * 1024);
+            OutputStream out = peer.getOutputStream();
+            out.write(concat(frame(large), frame("next".getBytes())));
+            out.flush();
+            Assertions.assertArrayEquals(large, poll());
+            Assertions.assertArrayEquals("next".getBytes(), poll());
+        }
+    }
+
+    @Test
+    @DisplayName("an invalid length closes the connection")
+    public void invalidLength() throws Exception {
+        try (Socket peer = connect()) {
+            OutputStream out = peer.getOutputStream();
+            out.write(ByteBuffer.allocate(8).putInt(TcpTransport.MAX_FRAME_LENGTH + 1).putInt(0).array());
+            out.flush();
+            awaitTrue(() -> !transport.isOpen());
+            Assertions.assertEquals(-1, peer.getInputStream().read(), "Closed by the transport");
+            Assertions.assertThrows(ECRHubException.class, () -> send("late".getBytes(), new CountDownLatch(1)));
+        }
+    }
+
+    @Test
+    @DisplayName("a connection closed by the peer can be connected again")
+    public void remoteCloseReconnect() throws Exception {
+        try (Socket peer = connect()) {
+            peer.getOutputStream().write(frame("before".getBytes()));
+            peer.getOutputStream().flush();
+            Assertions.assertArrayEquals("before".getBytes(), poll());
+        }
+        awaitTrue(() -> !transport.isOpen());
+
+        try (Socket peer = connect()) {
+            CountDownLatch written = new CountDownLatch(1);
+            send("again".getBytes(), written);
+            Assertions.assertArrayEquals("again".getBytes(), readFrame(new DataInputStream(peer.getInputStream())));
+            Assertions.assertTrue(written.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+            peer.getOutputStream().write(frame("after".getBytes()));
+            peer.getOutputStream().flush();
+            Assertions.assertArrayEquals("after".getBytes(), poll());
+        }
+    }
+
+    private Socket connect() throws Exception {
+        transport.connect(System.currentTimeMillis() + TIMEOUT);
+        Socket peer = server.accept();
+        peer.setTcpNoDelay(true);
+        Assertions.assertTrue(transport.isOpen());
+        return peer;
+    }
+
+    private void send(byte[] message, CountDownLatch written) throws ECRHubException {
+        byte[] buffer = new byte[TcpTransport.HEADER_LENGTH + message.length];
+        System.arraycopy(message, 0, buffer, TcpTransport.HEADER_LENGTH, message.length);
+        transport.send(buffer, message.length, null, EPriority.PAYMENT, 0, new Transport.WriteListener() {
+            @Override
+            public void onWritten() {
+                written.countDown();
+            }
+        });
+    }
+
+    private byte[] poll() throws InterruptedException {
+        byte[] message = received.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+        Assertions.assertNotNull(message, "No message received");
+        return message;
+    }
+
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        byte[] message = new byte[in.readInt()];
+        in.readFully(message);
+        return message;
+    }
+
+    private static byte[] frame(byte[] message) {
+        return ByteBuffer.allocate(TcpTransport.HEADER_LENGTH + message.length).putInt(message.length).put(message).array();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteBuffer buffer = ByteBuffer.allocate(Arrays.stream(parts).mapToInt(part -> part.length).sum());
+        for (byte[] part : parts) {
+            buffer.put(part);
+        }
+        return buffer.array();
+    }
+
+    private static byte[] random(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "Condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+}
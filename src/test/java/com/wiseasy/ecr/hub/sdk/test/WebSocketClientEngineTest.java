@@ -0,0 +1,64 @@
+package com.wiseasy.ecr.hub.sdk.test;
+
+import com.wiseasy.ecr.hub.sdk.ECRHubConfig;
+import com.wiseasy.ecr.hub.sdk.exception.ECRHubException;
+import com.wiseasy.ecr.hub.sdk.spi.emulator.WebSocketTerminalEmulator;
+import com.wiseasy.ecr.hub.sdk.spi.transport.TransportContext;
+import com.wiseasy.ecr.hub.sdk.spi.websocket.WebSocketClientEngine;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+
+/**
+ * Connection setup of the threaded WebSocket transport: TLS prewarm on request, reconnects within the deadline
+ */
+public class WebSocketClientEngineTest {
+
+    @Test
+    @DisplayName("no connection before prewarm()")
+    public void prewarmOnRequest() throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            WebSocketClientEngine engine = new WebSocketClientEngine(URI.create("wss://127.0.0.1:" + server.getLocalPort()),
+                    new TransportContext(new ECRHubConfig()));
+
+            server.setSoTimeout(200);
+            Assertions.assertThrows(SocketTimeoutException.class, server::accept, "Constructed without I/O");
+
+            engine.prewarm();
+            server.setSoTimeout(5000);
+            try (Socket socket = server.accept()) {
+                Assertions.assertTrue(socket.isConnected());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("a reconnect to a terminal that never answers the upgrade ends at the deadline")
+    public void reconnectDeadline() throws Exception {
+        WebSocketTerminalEmulator emulator = new WebSocketTerminalEmulator(0);
+        emulator.startAndWait(5000);
+        int port = emulator.getPort();
+        WebSocketClientEngine engine = new WebSocketClientEngine(URI.create(emulator.getUrl()), new TransportContext(new ECRHubConfig()));
+        engine.connect(System.currentTimeMillis() + 5000);
+        Assertions.assertTrue(engine.isOpen());
+        engine.disconnect();
+        emulator.shutdown();
+
+        // Accepts the TCP connection but never answers the upgrade
+        try (ServerSocket server = new ServerSocket()) {
+            server.setReuseAddress(true);
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            long start = System.currentTimeMillis();
+            Assertions.assertThrows(ECRHubException.class, () -> engine.connect(start + 300));
+            Assertions.assertTrue(System.currentTimeMillis() - start < 2000, "Gave up at the deadline");
+            Assertions.assertFalse(engine.isOpen());
+        }
+    }
+}